@@ -0,0 +1,260 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.cptool.compgeom;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import javax.vecmath.Vector2d;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import oripa.geom.GeomUtil;
+import oripa.util.StopWatch;
+import oripa.value.CalculationResource;
+import oripa.value.OriLine;
+import oripa.value.OriPoint;
+
+/**
+ * Splits a batch of segments at all of their intersections. The segments are
+ * swept from left to right and each segment is tested only against the
+ * segments whose x ranges contain its left end and whose y ranges overlap its
+ * y range. The end points and the cross points closer than {@code eps} are
+ * merged into a vertex, and the split segments which connect the same
+ * vertices are output only once.
+ *
+ * Unlike {@link oripa.domain.cptool.LineAdder}, this class is for building an
+ * arrangement from scratch: it doesn't need the lines to be split beforehand
+ * and takes O(n log n + p) time where p is the number of the tested pairs.
+ */
+public class PlanarArrangementBuilder {
+	private static final Logger logger = LoggerFactory.getLogger(PlanarArrangementBuilder.class);
+
+	private final double eps;
+
+	/**
+	 * Constructs a builder with {@link CalculationResource#POINT_EPS}.
+	 */
+	public PlanarArrangementBuilder() {
+		this(CalculationResource.POINT_EPS);
+	}
+
+	/**
+	 *
+	 * @param eps
+	 *            distance within which points are regarded as the same.
+	 */
+	public PlanarArrangementBuilder(final double eps) {
+		this.eps = eps;
+	}
+
+	/**
+	 * Splits the given lines at their intersections, including the end points
+	 * on other lines and the overlaps of the collinear lines.
+	 *
+	 * @param lines
+	 *            lines to be split. They are not affected.
+	 * @return split lines without duplication. Each split line has the type of
+	 *         the first given line which contains it.
+	 */
+	public List<OriLine> build(final Collection<OriLine> lines) {
+		var watch = new StopWatch(true);
+
+		var segments = lines.stream()
+				.filter(line -> GeomUtil.distance(line.p0, line.p1) >= eps)
+				.map(Segment::new)
+				.collect(Collectors.toList());
+
+		sweep(segments);
+
+		logger.debug("build() sweep: " + watch.getMilliSec() + "[ms]");
+
+		var vertices = new TreeMap<OriPoint, OriPoint>();
+		var keys = new HashSet<List<OriPoint>>();
+		var splitLines = new ArrayList<OriLine>();
+
+		for (var segment : segments) {
+			var points = segment.sortedSplitPoints().stream()
+					.map(p -> findOrAddVertex(vertices, p))
+					.collect(Collectors.toList());
+
+			for (int i = 1; i < points.size(); i++) {
+				var p = points.get(i - 1);
+				var q = points.get(i);
+				if (p == q) {
+					continue;
+				}
+				var key = p.compareTo(q) < 0 ? List.of(p, q) : List.of(q, p);
+				if (keys.add(key)) {
+					splitLines.add(new OriLine(p, q, segment.line.getType()));
+				}
+			}
+		}
+
+		logger.debug("build(): " + lines.size() + " lines -> " + splitLines.size() + " lines, "
+				+ watch.getMilliSec() + "[ms]");
+
+		return splitLines;
+	}
+
+	/**
+	 * Adds the cross points of the segments to the segments.
+	 */
+	private void sweep(final List<Segment> segments) {
+		var sorted = new ArrayList<>(segments);
+		sorted.sort(Comparator.comparing(Segment::getMinX));
+
+		// segments whose x ranges contain the current sweep position.
+		var active = new ArrayList<Segment>();
+
+		for (var segment : sorted) {
+			var x = segment.getMinX();
+			int alive = 0;
+			for (int i = 0; i < active.size(); i++) {
+				var other = active.get(i);
+				if (other.getMaxX() < x - eps) {
+					continue;
+				}
+				active.set(alive++, other);
+				if (other.getMinY() > segment.getMaxY() + eps
+						|| segment.getMinY() > other.getMaxY() + eps) {
+					continue;
+				}
+				addCrossPoints(segment, other);
+			}
+			active.subList(alive, active.size()).clear();
+			active.add(segment);
+		}
+	}
+
+	private void addCrossPoints(final Segment s0, final Segment s1) {
+		var crossPoint = GeomUtil.getCrossPoint(s0.line, s1.line);
+		if (crossPoint != null) {
+			s0.addSplitPoint(crossPoint);
+			s1.addSplitPoint(crossPoint);
+			return;
+		}
+
+		// parallel. the segments overlap if an end point is on the other.
+		addIfOnSegment(s1.line.p0, s0);
+		addIfOnSegment(s1.line.p1, s0);
+		addIfOnSegment(s0.line.p0, s1);
+		addIfOnSegment(s0.line.p1, s1);
+	}
+
+	private void addIfOnSegment(final Vector2d p, final Segment segment) {
+		if (GeomUtil.distancePointToSegment(p, segment.line.p0, segment.line.p1) < eps) {
+			segment.addSplitPoint(p);
+		}
+	}
+
+	/**
+	 * @return the vertex closer than {@code eps} to {@code p}, or a new vertex
+	 *         at {@code p} if there isn't.
+	 */
+	private OriPoint findOrAddVertex(final TreeMap<OriPoint, OriPoint> vertices, final Vector2d p) {
+		var boundMap = vertices
+				.headMap(new OriPoint(p.getX() + eps, p.getY() + eps), true)
+				.tailMap(new OriPoint(p.getX() - eps, p.getY() - eps));
+
+		var neighbor = boundMap.keySet().stream()
+				.filter(point -> GeomUtil.distance(point, p) < eps)
+				.findFirst();
+
+		if (neighbor.isPresent()) {
+			return neighbor.get();
+		}
+
+		var vertex = new OriPoint(p);
+		vertices.put(vertex, vertex);
+		return vertex;
+	}
+
+	/**
+	 * A segment with the points which split it.
+	 */
+	private static class Segment {
+		private final OriLine line;
+		private final double minX, maxX, minY, maxY;
+		private final List<Vector2d> splitPoints = new ArrayList<>();
+
+		Segment(final OriLine line) {
+			this.line = line;
+			minX = Math.min(line.p0.x, line.p1.x);
+			maxX = Math.max(line.p0.x, line.p1.x);
+			minY = Math.min(line.p0.y, line.p1.y);
+			maxY = Math.max(line.p0.y, line.p1.y);
+		}
+
+		double getMinX() {
+			return minX;
+		}
+
+		double getMaxX() {
+			return maxX;
+		}
+
+		double getMinY() {
+			return minY;
+		}
+
+		double getMaxY() {
+			return maxY;
+		}
+
+		void addSplitPoint(final Vector2d p) {
+			splitPoints.add(p);
+		}
+
+		/**
+		 * @return the end points and the split points in the order from
+		 *         {@code p0} to {@code p1}.
+		 */
+		List<Vector2d> sortedSplitPoints() {
+			var dir = new Vector2d(line.p1);
+			dir.sub(line.p0);
+			var lengthSquared = dir.lengthSquared();
+
+			// cross points are computed with tolerance and can be slightly
+			// out of the segment.
+			var points = splitPoints.stream()
+					.filter(p -> {
+						var t = computeParameter(p, dir);
+						return t > 0 && t < lengthSquared;
+					})
+					.sorted(Comparator.comparing(p -> computeParameter(p, dir)))
+					.collect(Collectors.toCollection(ArrayList::new));
+
+			points.add(0, line.p0);
+			points.add(line.p1);
+
+			return points;
+		}
+
+		private double computeParameter(final Vector2d p, final Vector2d dir) {
+			return (p.x - line.p0.x) * dir.x + (p.y - line.p0.y) * dir.y;
+		}
+	}
+}
@@ -0,0 +1,134 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold;
+
+import java.util.List;
+
+import oripa.domain.fold.halfedge.OriFace;
+import oripa.domain.fold.origeom.FaceBoundingBoxGrid;
+import oripa.domain.fold.origeom.HalfedgeFaceCrossingTable;
+import oripa.domain.fold.origeom.OverlapRelation;
+import oripa.domain.fold.subface.SubFace;
+
+/**
+ * The results of the geometric tests on the faces after fold, which don't
+ * depend on the line types. {@link FoldGeometryFactory} can reuse them for
+ * the faces which don't change after an edit of the crease pattern.
+ */
+class FoldGeometry {
+	private final List<OriFace> faces;
+	private final double paperSize;
+	private final List<String> faceSignatures;
+	private final List<SubFace> splitSubFaces;
+	private final FaceBoundingBoxGrid grid;
+	private final OverlapRelation overlaps;
+	private final HalfedgeFaceCrossingTable penetrationCrossings;
+	private final HalfedgeFaceCrossingTable estimationCrossings;
+	private final int reusedFaceCount;
+	private final int reusedSubFaceCount;
+
+	/**
+	 * @param faces
+	 *            faces after fold.
+	 * @param paperSize
+	 *            size of the paper, which gives the tolerances of the tests.
+	 * @param faceSignatures
+	 *            signature of each face, which identifies the face through
+	 *            edits.
+	 * @param splitSubFaces
+	 *            subfaces given by
+	 *            {@link oripa.domain.fold.subface.SubFacesFactory#createSplitSubFaces(List, double)}.
+	 * @param grid
+	 *            grid of the faces.
+	 * @param overlaps
+	 *            UNDEFINED for the pairs of the faces which overlap each
+	 *            other and NO_OVERLAP for the others.
+	 * @param penetrationCrossings
+	 *            crossings for the penetration test.
+	 * @param estimationCrossings
+	 *            crossings for the estimation.
+	 * @param reusedFaceCount
+	 *            the number of faces whose tests are reused.
+	 * @param reusedSubFaceCount
+	 *            the number of subfaces which are reused.
+	 */
+	FoldGeometry(final List<OriFace> faces, final double paperSize, final List<String> faceSignatures,
+			final List<SubFace> splitSubFaces, final FaceBoundingBoxGrid grid, final OverlapRelation overlaps,
+			final HalfedgeFaceCrossingTable penetrationCrossings,
+			final HalfedgeFaceCrossingTable estimationCrossings,
+			final int reusedFaceCount, final int reusedSubFaceCount) {
+		this.faces = faces;
+		this.paperSize = paperSize;
+		this.faceSignatures = faceSignatures;
+		this.splitSubFaces = splitSubFaces;
+		this.grid = grid;
+		this.overlaps = overlaps;
+		this.penetrationCrossings = penetrationCrossings;
+		this.estimationCrossings = estimationCrossings;
+		this.reusedFaceCount = reusedFaceCount;
+		this.reusedSubFaceCount = reusedSubFaceCount;
+	}
+
+	List<OriFace> getFaces() {
+		return faces;
+	}
+
+	double getPaperSize() {
+		return paperSize;
+	}
+
+	List<String> getFaceSignatures() {
+		return faceSignatures;
+	}
+
+	List<SubFace> getSplitSubFaces() {
+		return splitSubFaces;
+	}
+
+	FaceBoundingBoxGrid getGrid() {
+		return grid;
+	}
+
+	/**
+	 * @return a new copy of the overlaps, which can be modified.
+	 */
+	OverlapRelation createOverlapRelation() {
+		return overlaps.clone();
+	}
+
+	OverlapRelation getOverlaps() {
+		return overlaps;
+	}
+
+	HalfedgeFaceCrossingTable getPenetrationCrossings() {
+		return penetrationCrossings;
+	}
+
+	HalfedgeFaceCrossingTable getEstimationCrossings() {
+		return estimationCrossings;
+	}
+
+	int getReusedFaceCount() {
+		return reusedFaceCount;
+	}
+
+	int getReusedSubFaceCount() {
+		return reusedSubFaceCount;
+	}
+}
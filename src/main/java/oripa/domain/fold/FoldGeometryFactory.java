@@ -0,0 +1,338 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import oripa.domain.fold.halfedge.OriFace;
+import oripa.domain.fold.origeom.FaceBoundingBoxGrid;
+import oripa.domain.fold.origeom.HalfedgeFaceCrossingTable;
+import oripa.domain.fold.origeom.OriGeomUtil;
+import oripa.domain.fold.origeom.OverlapRelation;
+import oripa.domain.fold.subface.SubFace;
+import oripa.domain.fold.subface.SubFacesFactory;
+
+/**
+ * Computes {@link FoldGeometry} from the faces after fold. If the geometry of
+ * the previous faces is given, a face is regarded as unchanged if it has the
+ * same half-edges at the same positions before and after fold, and the tests
+ * on the unchanged faces are copied from the previous geometry.
+ *
+ * The subfaces are recomputed only around the changed faces. The changed
+ * region is the union of the boxes of the changed faces of both sides. The
+ * previous subfaces out of the region are kept and the subfaces touching the
+ * region are split again from the faces around the region. The faces are
+ * added until no other face touches the new subfaces so that the new
+ * subfaces are the same as the ones from all faces.
+ */
+class FoldGeometryFactory {
+	private static final Logger logger = LoggerFactory.getLogger(FoldGeometryFactory.class);
+
+	/**
+	 * how many times the faces around the changes can be selected again to
+	 * cover the subfaces in the changed region.
+	 */
+	private static final int MAX_GROWTH_COUNT = 3;
+
+	private final SubFacesFactory subFacesFactory;
+
+	FoldGeometryFactory(final SubFacesFactory subFacesFactory) {
+		this.subFacesFactory = subFacesFactory;
+	}
+
+	/**
+	 * @param faces
+	 *            faces after fold. The ID of each face should be its index in
+	 *            this list.
+	 * @param paperSize
+	 *            size of the paper.
+	 * @param previous
+	 *            geometry of the previous fold. null for no reuse.
+	 * @param job
+	 *            running job, which is tested between the computations and
+	 *            for each pair of faces.
+	 * @return geometry of the faces, or null if the job stops.
+	 */
+	FoldGeometry create(final List<OriFace> faces, final double paperSize, final FoldGeometry previous,
+			final FoldJob job) {
+		var signatures = createSignatures(faces, paperSize);
+
+		// the margin covers the tolerances of the geometric tests.
+		var grid = new FaceBoundingBoxGrid(faces, paperSize * 0.001);
+
+		var previousFaceIDs = new int[faces.size()];
+		var reusedFaceCount = 0;
+		if (previous == null || previous.getPaperSize() != paperSize) {
+			previousFaceIDs = null;
+		} else {
+			var previousIDs = new HashMap<String, Integer>();
+			for (int q = 0; q < previous.getFaces().size(); q++) {
+				previousIDs.put(previous.getFaceSignatures().get(q), q);
+			}
+			for (int i = 0; i < faces.size(); i++) {
+				previousFaceIDs[i] = previousIDs.getOrDefault(signatures.get(i), -1);
+				if (previousFaceIDs[i] >= 0) {
+					reusedFaceCount++;
+				}
+			}
+		}
+
+		List<SubFace> splitSubFaces = null;
+		if (previousFaceIDs != null) {
+			splitSubFaces = createSplitSubFacesAroundChanges(faces, paperSize, previous, previousFaceIDs);
+		}
+		var reusedSubFaceCount = 0;
+		if (splitSubFaces == null) {
+			splitSubFaces = subFacesFactory.createSplitSubFaces(faces, paperSize);
+		} else {
+			var previousOutlines = Collections.newSetFromMap(new IdentityHashMap<OriFace, Boolean>());
+			previous.getSplitSubFaces().forEach(sub -> previousOutlines.add(sub.outline));
+			reusedSubFaceCount = (int) splitSubFaces.stream()
+					.filter(sub -> previousOutlines.contains(sub.outline))
+					.count();
+		}
+		if (job.shouldStop()) {
+			return null;
+		}
+
+		var overlaps = createOverlaps(faces, paperSize, grid, previous, previousFaceIDs, job);
+		if (job.shouldStop()) {
+			return null;
+		}
+
+		var penetrationCrossings = new HalfedgeFaceCrossingTable(faces, paperSize * 0.001, grid,
+				previousFaceIDs == null ? null : previous.getPenetrationCrossings(), orEmpty(previousFaceIDs));
+		var estimationCrossings = new HalfedgeFaceCrossingTable(faces, 0.0001, grid,
+				previousFaceIDs == null ? null : previous.getEstimationCrossings(), orEmpty(previousFaceIDs));
+
+		logger.debug("reused faces = " + reusedFaceCount + "/" + faces.size()
+				+ ", reused subfaces = " + reusedSubFaceCount + "/" + splitSubFaces.size());
+
+		return new FoldGeometry(faces, paperSize, signatures, splitSubFaces, grid, overlaps,
+				penetrationCrossings, estimationCrossings, reusedFaceCount, reusedSubFaceCount);
+	}
+
+	private int[] orEmpty(final int[] previousFaceIDs) {
+		return previousFaceIDs == null ? new int[0] : previousFaceIDs;
+	}
+
+	/**
+	 * The signature consists of the positions before and after fold of the
+	 * half-edges and whether each half-edge has the pair, in the order of the
+	 * half-edges.
+	 */
+	private List<String> createSignatures(final List<OriFace> faces, final double paperSize) {
+		var eps = paperSize * 1.0e-8;
+		var signatures = new ArrayList<String>(faces.size());
+		for (var face : faces) {
+			var signature = new StringBuilder();
+			for (var he : face.halfedgeIterable()) {
+				var before = he.getPositionBeforeFolding();
+				var after = he.getPosition();
+				signature.append(Math.round(before.x / eps)).append(',')
+						.append(Math.round(before.y / eps)).append(',')
+						.append(Math.round(after.x / eps)).append(',')
+						.append(Math.round(after.y / eps)).append(',')
+						.append(he.getPair() == null ? 'b' : 'p').append(';');
+			}
+			signatures.add(signature.toString());
+		}
+		return signatures;
+	}
+
+	private OverlapRelation createOverlaps(final List<OriFace> faces, final double paperSize,
+			final FaceBoundingBoxGrid grid, final FoldGeometry previous, final int[] previousFaceIDs,
+			final FoldJob job) {
+
+		int size = faces.size();
+		var overlapRelation = new OverlapRelation(size);
+
+		double eps = paperSize * 0.00001;
+
+		grid.forEachCandidatePair((face_i, face_j) -> {
+			if (job.shouldStop()) {
+				return;
+			}
+			var i = face_i.getFaceID();
+			var j = face_j.getFaceID();
+			boolean overlapping;
+			if (previousFaceIDs != null && previousFaceIDs[i] >= 0 && previousFaceIDs[j] >= 0) {
+				overlapping = previous.getOverlaps().isUndefined(previousFaceIDs[i], previousFaceIDs[j]);
+			} else {
+				overlapping = OriGeomUtil.isFaceOverlap(face_i, face_j, eps);
+			}
+			if (overlapping) {
+				overlapRelation.setUndefined(i, j);
+			}
+		});
+
+		return overlapRelation;
+	}
+
+	/**
+	 * @return the previous subfaces out of the changed region and the
+	 *         subfaces split again in the region. null if a previous subface
+	 *         can't be kept.
+	 */
+	private List<SubFace> createSplitSubFacesAroundChanges(final List<OriFace> faces, final double paperSize,
+			final FoldGeometry previous, final int[] previousFaceIDs) {
+		// twice the tolerance of the parent face test so that a face which
+		// contains a point of a subface touches the box of the subface.
+		var margin = paperSize * 0.002;
+
+		var currentFaceIDs = new int[previous.getFaces().size()];
+		Arrays.fill(currentFaceIDs, -1);
+		var region = new ArrayList<BoundingBox>();
+		for (int i = 0; i < faces.size(); i++) {
+			if (previousFaceIDs[i] < 0) {
+				region.add(new BoundingBox(faces.get(i), margin));
+			} else {
+				currentFaceIDs[previousFaceIDs[i]] = i;
+			}
+		}
+		for (int q = 0; q < currentFaceIDs.length; q++) {
+			if (currentFaceIDs[q] < 0) {
+				region.add(new BoundingBox(previous.getFaces().get(q), margin));
+			}
+		}
+
+		var splitSubFaces = new ArrayList<SubFace>();
+		for (var previousSub : previous.getSplitSubFaces()) {
+			if (new BoundingBox(previousSub.outline, 0).intersectsAny(region)) {
+				continue;
+			}
+			var sub = new SubFace(previousSub.outline);
+			for (var parent : previousSub.parentFaces) {
+				var i = currentFaceIDs[parent.getFaceID()];
+				if (i < 0) {
+					return null;
+				}
+				sub.parentFaces.add(faces.get(i));
+			}
+			sub.parentFaces.sort(Comparator.comparing(OriFace::getFaceID));
+			splitSubFaces.add(sub);
+		}
+
+		if (region.isEmpty()) {
+			return splitSubFaces;
+		}
+
+		// a face which only touches a subface doesn't split it.
+		var eps = paperSize * 1.0e-6;
+		var faceBoxes = new ArrayList<BoundingBox>();
+		var selection = new BitSet(faces.size());
+		for (int i = 0; i < faces.size(); i++) {
+			faceBoxes.add(new BoundingBox(faces.get(i), 0));
+			if (new BoundingBox(faces.get(i), margin).intersectsAny(region)) {
+				selection.set(i);
+			}
+		}
+
+		for (int iteration = 0; !selection.isEmpty(); iteration++) {
+			// splitting many faces repeatedly costs more than splitting all
+			// once.
+			if (iteration >= MAX_GROWTH_COUNT || selection.cardinality() > faces.size() / 2) {
+				return null;
+			}
+			var selectedFaces = selection.stream()
+					.mapToObj(faces::get)
+					.collect(Collectors.toList());
+			var regionSubFaces = new ArrayList<SubFace>();
+			var regionSubFaceBoxes = new ArrayList<BoundingBox>();
+			for (var sub : subFacesFactory.createSplitSubFaces(selectedFaces, paperSize)) {
+				var box = new BoundingBox(sub.outline, 0);
+				if (box.intersectsAny(region)) {
+					regionSubFaces.add(sub);
+					regionSubFaceBoxes.add(box);
+				}
+			}
+
+			var added = new ArrayList<BoundingBox>();
+			for (int i = 0; i < faces.size(); i++) {
+				var box = faceBoxes.get(i);
+				if (!selection.get(i) && regionSubFaceBoxes.stream().anyMatch(b -> box.overlaps(b, eps))) {
+					selection.set(i);
+					added.add(box);
+				}
+			}
+			// the added faces will split the subfaces around them. selecting
+			// their neighbors now saves the next try.
+			for (int i = 0; i < faces.size(); i++) {
+				var box = faceBoxes.get(i);
+				if (!selection.get(i) && added.stream().anyMatch(b -> box.overlaps(b, eps))) {
+					selection.set(i);
+				}
+			}
+			if (added.isEmpty()) {
+				splitSubFaces.addAll(regionSubFaces);
+				break;
+			}
+		}
+		return splitSubFaces;
+	}
+
+	/**
+	 * Axis-aligned bounding box of a face after fold.
+	 */
+	private static class BoundingBox {
+		private double minX = Double.POSITIVE_INFINITY;
+		private double minY = Double.POSITIVE_INFINITY;
+		private double maxX = Double.NEGATIVE_INFINITY;
+		private double maxY = Double.NEGATIVE_INFINITY;
+
+		BoundingBox(final OriFace face, final double margin) {
+			for (var he : face.halfedgeIterable()) {
+				var p = he.getPosition();
+				minX = Math.min(minX, p.x - margin);
+				minY = Math.min(minY, p.y - margin);
+				maxX = Math.max(maxX, p.x + margin);
+				maxY = Math.max(maxY, p.y + margin);
+			}
+		}
+
+		boolean intersects(final BoundingBox box) {
+			return minX <= box.maxX && box.minX <= maxX
+					&& minY <= box.maxY && box.minY <= maxY;
+		}
+
+		/**
+		 * @return true if the intersection is wider than {@code eps} in both
+		 *         directions.
+		 */
+		boolean overlaps(final BoundingBox box, final double eps) {
+			return minX + eps < box.maxX && box.minX + eps < maxX
+					&& minY + eps < box.maxY && box.minY + eps < maxY;
+		}
+
+		boolean intersectsAny(final List<BoundingBox> boxes) {
+			return boxes.stream().anyMatch(this::intersects);
+		}
+	}
+}
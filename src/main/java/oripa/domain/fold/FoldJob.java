@@ -0,0 +1,249 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A full estimation run by {@link Folder#fold(oripa.domain.fold.halfedge.OrigamiModel, FoldJob)}.
+ * The job works as a cancellation token which can be used from another
+ * thread, holds optional limits of time, search nodes and solutions, and
+ * reports its progress to a listener. If the job stops early, the folded
+ * model holds the states found before the stop.
+ *
+ * A job can be run only once.
+ */
+public class FoldJob {
+	/**
+	 * the minimum interval of progress notifications.
+	 */
+	private static final long PROGRESS_INTERVAL_MILLISEC = 100;
+
+	private long timeLimitMilliSec = Long.MAX_VALUE;
+	private long nodeLimit = Long.MAX_VALUE;
+	private long solutionLimit = Long.MAX_VALUE;
+	private FoldProgressListener progressListener = progress -> {
+	};
+
+	private volatile boolean cancelled = false;
+	private volatile FoldJobStatus status = FoldJobStatus.READY;
+
+	private long startNanoTime;
+	private volatile long lastNotificationNanoTime;
+
+	private volatile int subFaceCount = 0;
+	private final AtomicInteger processedSubFaceCount = new AtomicInteger();
+	private final AtomicLong searchNodeCount = new AtomicLong();
+	private final AtomicLong solutionCount = new AtomicLong();
+
+	/**
+	 * @param timeLimitMilliSec
+	 *            wall-clock time limit of the job in milliseconds. No limit
+	 *            by default.
+	 */
+	public void setTimeLimit(final long timeLimitMilliSec) {
+		if (timeLimitMilliSec < 0) {
+			throw new IllegalArgumentException("time limit should not be negative.");
+		}
+		this.timeLimitMilliSec = timeLimitMilliSec;
+	}
+
+	/**
+	 * @param nodeLimit
+	 *            the maximum number of nodes visited by the layer ordering
+	 *            search. No limit by default.
+	 */
+	public void setNodeLimit(final long nodeLimit) {
+		if (nodeLimit < 0) {
+			throw new IllegalArgumentException("node limit should not be negative.");
+		}
+		this.nodeLimit = nodeLimit;
+	}
+
+	/**
+	 * Makes the job keep at most the given number of folded states, which is
+	 * useful to check whether the model folds or not. The job stops with
+	 * {@link FoldJobStatus#SOLUTION_LIMIT_REACHED} when a state beyond the
+	 * limit is found, and completes if the model has no more states.
+	 *
+	 * @param solutionLimit
+	 *            the maximum number of folded states. No limit by default.
+	 */
+	public void setSolutionLimit(final long solutionLimit) {
+		if (solutionLimit < 1) {
+			throw new IllegalArgumentException("solution limit should be positive.");
+		}
+		this.solutionLimit = solutionLimit;
+	}
+
+	/**
+	 * @return the maximum number of folded states.
+	 */
+	public long getSolutionLimit() {
+		return solutionLimit;
+	}
+
+	/**
+	 * @param progressListener
+	 *            listener which is notified at most every
+	 *            {@value #PROGRESS_INTERVAL_MILLISEC} milliseconds and at the
+	 *            end of the job.
+	 */
+	public void setProgressListener(final FoldProgressListener progressListener) {
+		this.progressListener = progressListener;
+	}
+
+	/**
+	 * Requests the job to stop. The search stops at the next node and the
+	 * states found so far are returned as the result.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	public FoldJobStatus getStatus() {
+		return status;
+	}
+
+	/**
+	 *
+	 * @return the current progress.
+	 */
+	public FoldProgress getProgress() {
+		return new FoldProgress(subFaceCount, processedSubFaceCount.get(),
+				searchNodeCount.get(), solutionCount.get());
+	}
+
+	void start() {
+		if (status != FoldJobStatus.READY) {
+			throw new IllegalStateException("the job has already been run.");
+		}
+		startNanoTime = System.nanoTime();
+		lastNotificationNanoTime = startNanoTime;
+		status = FoldJobStatus.RUNNING;
+	}
+
+	void setSubFaceCount(final int subFaceCount) {
+		this.subFaceCount = subFaceCount;
+		notifyProgress(true);
+	}
+
+	/**
+	 * Records that the candidate stacks of a subface are computed.
+	 *
+	 * @return true if the job should stop.
+	 */
+	boolean subFaceProcessed() {
+		processedSubFaceCount.incrementAndGet();
+		notifyProgress(false);
+		return shouldStop();
+	}
+
+	/**
+	 * Records a visit of a search node.
+	 *
+	 * @return true if the job should stop.
+	 */
+	boolean nodeVisited() {
+		searchNodeCount.incrementAndGet();
+		notifyProgress(false);
+		return shouldStop();
+	}
+
+	/**
+	 * Records a folded state found by the search. A state beyond the solution
+	 * limit is not recorded and stops the job.
+	 *
+	 * @return true if the state should be kept, false if it should be
+	 *         dropped.
+	 */
+	boolean solutionFound() {
+		if (solutionCount.get() >= solutionLimit) {
+			stop(FoldJobStatus.SOLUTION_LIMIT_REACHED);
+			return false;
+		}
+		solutionCount.incrementAndGet();
+		notifyProgress(false);
+		return true;
+	}
+
+	/**
+	 * Ends the job. The status becomes {@link FoldJobStatus#COMPLETED} if the
+	 * job has not been stopped.
+	 */
+	void finish() {
+		if (status == FoldJobStatus.RUNNING) {
+			status = FoldJobStatus.COMPLETED;
+		}
+		notifyProgress(true);
+	}
+
+	/**
+	 * Whether the job should stop or not. Once this method returns true, it
+	 * keeps returning true.
+	 *
+	 * @return true if the job has been cancelled or has exceeded a limit.
+	 */
+	boolean shouldStop() {
+		if (status != FoldJobStatus.RUNNING) {
+			return status.isStoppedEarly();
+		}
+
+		if (cancelled) {
+			stop(FoldJobStatus.CANCELLED);
+		} else if (searchNodeCount.get() > nodeLimit) {
+			stop(FoldJobStatus.NODE_LIMIT_EXCEEDED);
+		} else if (getElapsedMilliSec() > timeLimitMilliSec) {
+			stop(FoldJobStatus.TIME_LIMIT_EXCEEDED);
+		}
+
+		return status.isStoppedEarly();
+	}
+
+	/**
+	 * Stops the job with the given cause unless it has already stopped.
+	 *
+	 * @param cause
+	 *            status after the stop.
+	 */
+	synchronized void stop(final FoldJobStatus cause) {
+		// keeps the first cause.
+		if (status == FoldJobStatus.RUNNING) {
+			status = cause;
+		}
+	}
+
+	private long getElapsedMilliSec() {
+		return (System.nanoTime() - startNanoTime) / 1_000_000;
+	}
+
+	private void notifyProgress(final boolean force) {
+		var now = System.nanoTime();
+		if (!force && (now - lastNotificationNanoTime) / 1_000_000 < PROGRESS_INTERVAL_MILLISEC) {
+			return;
+		}
+		lastNotificationNanoTime = now;
+		progressListener.progressChanged(getProgress());
+	}
+}
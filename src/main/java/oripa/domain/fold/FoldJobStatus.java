@@ -0,0 +1,59 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold;
+
+/**
+ * The state of a {@link FoldJob}.
+ */
+public enum FoldJobStatus {
+	/**
+	 * The job has not been given to {@link Folder} yet.
+	 */
+	READY,
+	RUNNING,
+	/**
+	 * The search has enumerated all folded states.
+	 */
+	COMPLETED,
+	/**
+	 * {@link FoldJob#cancel()} stopped the job.
+	 */
+	CANCELLED,
+	/**
+	 * The job stopped since it exceeded the time limit.
+	 */
+	TIME_LIMIT_EXCEEDED,
+	/**
+	 * The job stopped since it exceeded the limit of search nodes.
+	 */
+	NODE_LIMIT_EXCEEDED,
+	/**
+	 * The job stopped since it found the requested number of folded states.
+	 */
+	SOLUTION_LIMIT_REACHED;
+
+	/**
+	 *
+	 * @return true if the job stopped before enumerating all folded states.
+	 */
+	public boolean isStoppedEarly() {
+		return this == CANCELLED || this == TIME_LIMIT_EXCEEDED || this == NODE_LIMIT_EXCEEDED
+				|| this == SOLUTION_LIMIT_REACHED;
+	}
+}
@@ -0,0 +1,65 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold;
+
+/**
+ * A snapshot of the progress of a {@link FoldJob}.
+ */
+public class FoldProgress {
+	private final int subFaceCount;
+	private final int processedSubFaceCount;
+	private final long searchNodeCount;
+	private final long solutionCount;
+
+	public FoldProgress(final int subFaceCount, final int processedSubFaceCount,
+			final long searchNodeCount, final long solutionCount) {
+		this.subFaceCount = subFaceCount;
+		this.processedSubFaceCount = processedSubFaceCount;
+		this.searchNodeCount = searchNodeCount;
+		this.solutionCount = solutionCount;
+	}
+
+	/**
+	 * @return the number of subfaces. 0 until the subfaces are created.
+	 */
+	public int getSubFaceCount() {
+		return subFaceCount;
+	}
+
+	/**
+	 * @return the number of subfaces whose candidate stacks are computed.
+	 */
+	public int getProcessedSubFaceCount() {
+		return processedSubFaceCount;
+	}
+
+	/**
+	 * @return the number of nodes visited by the layer ordering search.
+	 */
+	public long getSearchNodeCount() {
+		return searchNodeCount;
+	}
+
+	/**
+	 * @return the number of folded states found so far.
+	 */
+	public long getSolutionCount() {
+		return solutionCount;
+	}
+}
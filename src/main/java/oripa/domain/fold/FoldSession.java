@@ -0,0 +1,108 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold;
+
+import oripa.domain.creasepattern.CreasePatternInterface;
+import oripa.domain.fold.halfedge.OrigamiModel;
+
+/**
+ * Folds a crease pattern repeatedly during editing. The session keeps the
+ * faces after fold, the subfaces and the geometric tests of the overlaps and
+ * the crossings of the previous fold. The next fold finds the faces which
+ * are unchanged by the edit and recomputes the subfaces and the tests only
+ * around the changed faces. The estimation and the search run on the whole
+ * model since an edit can change the layer ordering far away. The crease
+ * pattern unchanged since a completed fold is restored by the cache of the
+ * folder if the folder has one.
+ *
+ * The states are the same as the ones of {@link Folder#fold(OrigamiModel, FoldJob)}
+ * while their order can be different since the subfaces are in a different
+ * order.
+ */
+public class FoldSession {
+	private final Folder folder;
+
+	private FoldGeometry previousGeometry;
+
+	/**
+	 * @param folder
+	 *            folder used by this session. It shouldn't be used for other
+	 *            folds.
+	 */
+	public FoldSession(final Folder folder) {
+		this.folder = folder;
+	}
+
+	/**
+	 * @return folder used by this session.
+	 */
+	public Folder getFolder() {
+		return folder;
+	}
+
+	/**
+	 * Computes all possible folded states as
+	 * {@link Folder#fold(CreasePatternInterface, OrigamiModel, FoldJob)},
+	 * reusing the geometry of the previous fold.
+	 *
+	 * @param creasePattern
+	 *            crease pattern from which {@code origamiModel} is built.
+	 * @param origamiModel
+	 *            half-edge based data structure. It will be affected by this
+	 *            method.
+	 * @param job
+	 *            a job which has not been run yet.
+	 * @return folded model whose {@link FoldedModel#getOrigamiModel()} returns
+	 *         the given {@code origamiModel}.
+	 */
+	public FoldedModel fold(final CreasePatternInterface creasePattern, final OrigamiModel origamiModel,
+			final FoldJob job) {
+		folder.setReusableFoldGeometry(previousGeometry);
+		var foldedModel = folder.fold(creasePattern, origamiModel, job);
+
+		// a fold restored from the cache doesn't compute the geometry.
+		var geometry = folder.getFoldGeometry();
+		if (geometry != null && geometry.getFaces() == origamiModel.getFaces()) {
+			previousGeometry = geometry;
+		}
+		return foldedModel;
+	}
+
+	/**
+	 * @return the number of faces whose geometric tests were reused by the
+	 *         last fold.
+	 */
+	public int getReusedFaceCount() {
+		return previousGeometry == null ? 0 : previousGeometry.getReusedFaceCount();
+	}
+
+	/**
+	 * @return the number of subfaces which were reused by the last fold.
+	 */
+	public int getReusedSubFaceCount() {
+		return previousGeometry == null ? 0 : previousGeometry.getReusedSubFaceCount();
+	}
+
+	/**
+	 * Forgets the previous fold so that the next fold computes everything.
+	 */
+	public void clear() {
+		previousGeometry = null;
+	}
+}
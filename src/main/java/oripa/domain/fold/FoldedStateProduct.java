@@ -0,0 +1,105 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold;
+
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import oripa.domain.fold.origeom.OverlapRelation;
+
+/**
+ * Folded states as the Cartesian product of the solutions of independent
+ * subface groups. Each state is built when it is requested by applying one
+ * solution of every group to the matrix after estimation. The states are
+ * given in lexicographic order of the solution indices where the first group
+ * is the most significant, which is the order of the sequential search if
+ * the subfaces of each group are contiguous.
+ */
+class FoldedStateProduct implements Iterator<OverlapRelation> {
+	private final OverlapRelation base;
+	private final List<List<int[]>> groupSolutions;
+
+	/**
+	 * the index of the solution of each group for the next state.
+	 */
+	private final int[] cursors;
+	private boolean finished;
+
+	/**
+	 * @param base
+	 *            overlap relation matrix after estimation. It will not be
+	 *            affected by this object.
+	 * @param groupSolutions
+	 *            solutions of each group as (i, j, value) triples of the cells
+	 *            to be set.
+	 */
+	FoldedStateProduct(final OverlapRelation base, final List<List<int[]>> groupSolutions) {
+		this.base = base;
+		this.groupSolutions = groupSolutions;
+		cursors = new int[groupSolutions.size()];
+		finished = groupSolutions.stream().anyMatch(List::isEmpty);
+	}
+
+	@Override
+	public boolean hasNext() {
+		return !finished;
+	}
+
+	@Override
+	public OverlapRelation next() {
+		if (finished) {
+			throw new NoSuchElementException();
+		}
+
+		var state = base.clone();
+		for (int g = 0; g < cursors.length; g++) {
+			var changes = groupSolutions.get(g).get(cursors[g]);
+			for (int e = 0; e < changes.length; e += 3) {
+				state.set(changes[e], changes[e + 1], changes[e + 2]);
+			}
+		}
+
+		advance();
+
+		return state;
+	}
+
+	private void advance() {
+		for (int g = cursors.length - 1; g >= 0; g--) {
+			if (++cursors[g] < groupSolutions.get(g).size()) {
+				return;
+			}
+			cursors[g] = 0;
+		}
+		finished = true;
+	}
+
+	/**
+	 * @return the number of states, which may exceed the range of long.
+	 */
+	BigInteger size() {
+		var size = BigInteger.ONE;
+		for (var solutions : groupSolutions) {
+			size = size.multiply(BigInteger.valueOf(solutions.size()));
+		}
+		return size;
+	}
+}
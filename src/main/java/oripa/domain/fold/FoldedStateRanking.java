@@ -0,0 +1,36 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold;
+
+/**
+ * The order of folded states given by {@link Folder}.
+ */
+public enum FoldedStateRanking {
+	/**
+	 * The order in which the layer ordering search finds the states.
+	 */
+	SEARCH_ORDER,
+	/**
+	 * Ascending order of the number of inversions, that is, the number of
+	 * overlapping pairs of faces where the face of the larger ID is above the
+	 * other. The states are found by a best-first search, so the first states
+	 * come without searching the whole tree.
+	 */
+	FEWEST_INVERSIONS
+}
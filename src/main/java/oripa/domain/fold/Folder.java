@@ -18,28 +18,49 @@
 
 package oripa.domain.fold;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.IntStream;
-
-import javax.vecmath.Vector2d;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import oripa.domain.creasepattern.CreasePatternInterface;
+import oripa.domain.fold.cache.CreasePatternHasher;
+import oripa.domain.fold.cache.FoldResult;
+import oripa.domain.fold.cache.FoldResultCache;
 import oripa.domain.fold.halfedge.OriEdge;
 import oripa.domain.fold.halfedge.OriFace;
 import oripa.domain.fold.halfedge.OriHalfedge;
 import oripa.domain.fold.halfedge.OrigamiModel;
-import oripa.domain.fold.origeom.OriGeomUtil;
+import oripa.domain.fold.origeom.HalfedgeFaceCrossingTable;
+import oripa.domain.fold.origeom.OverlapRelation;
+import oripa.domain.fold.origeom.OverlapRelationTrail;
 import oripa.domain.fold.origeom.OverlapRelationValues;
 import oripa.domain.fold.stackcond.StackConditionOf3Faces;
 import oripa.domain.fold.stackcond.StackConditionOf4Faces;
+import oripa.domain.fold.subface.AnswerStacks;
+import oripa.domain.fold.subface.AsCreatedSubFaceOrdering;
 import oripa.domain.fold.subface.SubFace;
+import oripa.domain.fold.subface.SubFaceOrdering;
 import oripa.domain.fold.subface.SubFacesFactory;
 import oripa.geom.GeomUtil;
-import oripa.geom.Line;
-import oripa.util.Matrices;
+import oripa.util.StopWatch;
 import oripa.value.OriLine;
 
 public class Folder {
@@ -48,13 +69,281 @@ public class Folder {
 	private ArrayList<StackConditionOf4Faces> condition4s;
 	private List<SubFace> subFaces;
 
+	/**
+	 * independent groups of the subfaces whose stacks are undecided.
+	 */
+	private List<List<SubFace>> subFaceComponents;
+
+	/**
+	 * faces crossed by each half-edge with the tolerance for the penetration
+	 * test.
+	 */
+	private HalfedgeFaceCrossingTable penetrationCrossings;
+
+	/**
+	 * whether the estimation has found contradicting relations, which means
+	 * that there is no folded state.
+	 */
+	private boolean estimationConflicted;
+
 	private final SubFacesFactory subFacesFactory;
+	private final FoldGeometryFactory foldGeometryFactory;
+
+	/**
+	 * geometry of the last fold.
+	 */
+	private FoldGeometry foldGeometry;
+
+	/**
+	 * geometry whose tests are reused by the next fold.
+	 */
+	private FoldGeometry reusableFoldGeometry;
 
 	// helper object
 	private final FolderTool folderTool = new FolderTool();
+	private final SimpleFolder simpleFolder = new SimpleFolder();
+
+	private BacktrackMode backtrackMode = BacktrackMode.TRAIL;
+
+	private LayerOrderingEngine layerOrderingEngine = LayerOrderingEngine.BACKTRACK;
+
+	private FoldedStateRanking foldedStateRanking = FoldedStateRanking.SEARCH_ORDER;
+
+	private SubFaceOrdering subFaceOrdering = new AsCreatedSubFaceOrdering();
+
+	/**
+	 * the number of threads for the layer ordering search.
+	 */
+	private int parallelism = 1;
+
+	/**
+	 * the search stops forking tasks when the number of tasks reaches
+	 * {@code parallelism * TASKS_PER_THREAD}.
+	 */
+	private static final int TASKS_PER_THREAD = 16;
+
+	private long searchNodeCount;
+	private long searchMilliSec;
+
+	/**
+	 * the maximum number of nogoods kept by each search.
+	 */
+	private int nogoodCapacity = 1024;
+
+	/**
+	 * the number of candidate stacks kept in memory for each subface.
+	 */
+	private int stackCapacity = AnswerStacks.DEFAULT_CAPACITY;
+	private NogoodStatistics nogoodStatistics = new NogoodStatistics();
+
+	private FoldResultCache foldResultCache = null;
 
 	public Folder(final SubFacesFactory subFacesFactory) {
 		this.subFacesFactory = subFacesFactory;
+		this.foldGeometryFactory = new FoldGeometryFactory(subFacesFactory);
+	}
+
+	/**
+	 * @param backtrackMode
+	 *            how the layer ordering search restores the overlap relation
+	 *            matrix on backtrack. {@link BacktrackMode#TRAIL} by default.
+	 */
+	public void setBacktrackMode(final BacktrackMode backtrackMode) {
+		this.backtrackMode = backtrackMode;
+	}
+
+	/**
+	 * @return backtrackMode
+	 */
+	public BacktrackMode getBacktrackMode() {
+		return backtrackMode;
+	}
+
+	/**
+	 *
+	 * @param layerOrderingEngine
+	 *            engine of {@link #fold(OrigamiModel, FoldJob)} for the
+	 *            subsequent folds. {@link LayerOrderingEngine#BACKTRACK} by
+	 *            default.
+	 */
+	public void setLayerOrderingEngine(final LayerOrderingEngine layerOrderingEngine) {
+		this.layerOrderingEngine = layerOrderingEngine;
+	}
+
+	/**
+	 * @return layerOrderingEngine
+	 */
+	public LayerOrderingEngine getLayerOrderingEngine() {
+		return layerOrderingEngine;
+	}
+
+	/**
+	 *
+	 * @param foldedStateRanking
+	 *            order of the states given by
+	 *            {@link #fold(OrigamiModel, FoldJob)}.
+	 *            {@link FoldedStateRanking#SEARCH_ORDER} by default.
+	 */
+	public void setFoldedStateRanking(final FoldedStateRanking foldedStateRanking) {
+		this.foldedStateRanking = foldedStateRanking;
+	}
+
+	/**
+	 * @return foldedStateRanking
+	 */
+	public FoldedStateRanking getFoldedStateRanking() {
+		return foldedStateRanking;
+	}
+
+	/**
+	 * @param foldResultCache
+	 *            cache of
+	 *            {@link #fold(CreasePatternInterface, OrigamiModel, FoldJob)}.
+	 *            null for no cache, which is the default.
+	 */
+	public void setFoldResultCache(final FoldResultCache foldResultCache) {
+		this.foldResultCache = foldResultCache;
+	}
+
+	/**
+	 * @return foldResultCache
+	 */
+	public FoldResultCache getFoldResultCache() {
+		return foldResultCache;
+	}
+
+	/**
+	 * @param reusableFoldGeometry
+	 *            geometry of a previous fold whose tests are reused for the
+	 *            unchanged faces by the subsequent folds. null for no reuse,
+	 *            which is the default.
+	 */
+	void setReusableFoldGeometry(final FoldGeometry reusableFoldGeometry) {
+		this.reusableFoldGeometry = reusableFoldGeometry;
+	}
+
+	/**
+	 * @return geometry of the last fold which has estimated the overlap
+	 *         relations, or null if there is no such fold.
+	 */
+	FoldGeometry getFoldGeometry() {
+		return foldGeometry;
+	}
+
+	/**
+	 * @param subFaceOrdering
+	 *            the order in which the layer ordering search visits
+	 *            subfaces. {@link AsCreatedSubFaceOrdering} by default.
+	 */
+	public void setSubFaceOrdering(final SubFaceOrdering subFaceOrdering) {
+		this.subFaceOrdering = subFaceOrdering;
+	}
+
+	/**
+	 * @return subFaceOrdering
+	 */
+	public SubFaceOrdering getSubFaceOrdering() {
+		return subFaceOrdering;
+	}
+
+	/**
+	 * Sets the number of threads for the layer ordering search. If it is
+	 * larger than 1, the search runs on a {@link ForkJoinPool} and splits the
+	 * work at the candidate stacks of the first subfaces. The solutions are
+	 * sorted into the same order as the one of the sequential search.
+	 *
+	 * @param parallelism
+	 *            the number of threads. 1 by default.
+	 */
+	public void setParallelism(final int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism should be positive.");
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * @return the number of threads for the layer ordering search.
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * @return the number of nodes visited by the last layer ordering search, which
+	 *         is run by {@link #fold(OrigamiModel, boolean)} or
+	 *         {@link #countFoldedStates(OrigamiModel)}.
+	 */
+	public long getSearchNodeCount() {
+		return searchNodeCount;
+	}
+
+	/**
+	 * @return the time spent for the last layer ordering search in
+	 *         milliseconds.
+	 */
+	public long getSearchMilliSec() {
+		return searchMilliSec;
+	}
+
+	/**
+	 * Sets the maximum number of nogoods kept by the layer ordering search.
+	 * The penetrations found by the search are learned as nogoods and the
+	 * candidate stacks causing them again are rejected without being set to
+	 * the matrix. The least recently used nogood is evicted when the number
+	 * exceeds the capacity. A parallel search has a cache of this capacity
+	 * for each task.
+	 *
+	 * @param nogoodCapacity
+	 *            the maximum number of nogoods. 0 disables the learning.
+	 *            1024 by default.
+	 */
+	public void setNogoodCapacity(final int nogoodCapacity) {
+		if (nogoodCapacity < 0) {
+			throw new IllegalArgumentException("capacity should not be negative.");
+		}
+		this.nogoodCapacity = nogoodCapacity;
+	}
+
+	/**
+	 * @return the maximum number of nogoods kept by the layer ordering
+	 *         search.
+	 */
+	public int getNogoodCapacity() {
+		return nogoodCapacity;
+	}
+
+	/**
+	 * @return statistics of the nogoods in the last layer ordering search.
+	 */
+	public NogoodStatistics getNogoodStatistics() {
+		return nogoodStatistics;
+	}
+
+	/**
+	 *
+	 * @param stackCapacity
+	 *            the number of candidate stacks kept in memory for each
+	 *            subface. The stacks after them are generated by each search
+	 *            whenever it needs them. {@link AnswerStacks#DEFAULT_CAPACITY}
+	 *            by default.
+	 */
+	public void setStackCapacity(final int stackCapacity) {
+		if (stackCapacity < 1) {
+			throw new IllegalArgumentException("stackCapacity should be positive.");
+		}
+		this.stackCapacity = stackCapacity;
+	}
+
+	/**
+	 * @return stackCapacity
+	 */
+	public int getStackCapacity() {
+		return stackCapacity;
+	}
+
+	private NogoodCache createNogoodCache(final List<OriFace> faces) {
+		return new NogoodCache(nogoodCapacity, faces.size(), nogoodStatistics);
 	}
 
 	/**
@@ -70,47 +359,196 @@ public class Folder {
 	 *         the given {@code origamiModel}.
 	 */
 	public FoldedModel fold(final OrigamiModel origamiModel, final boolean fullEstimation) {
+		if (fullEstimation) {
+			return fold(origamiModel, new FoldJob());
+		}
 
-		List<OriFace> sortedFaces = origamiModel.getSortedFaces();
+		simpleFold(origamiModel);
+		origamiModel.setFolded(true);
 
-		List<OriFace> faces = origamiModel.getFaces();
-		List<OriEdge> edges = origamiModel.getEdges();
+		return new FoldedModel(origamiModel, new OverlapRelationList());
+	}
 
-		var overlapRelationList = new OverlapRelationList();
+	/**
+	 * Computes all possible folded states as the given job. If the job stops
+	 * early, the result holds the states found before the stop. The limits
+	 * and cancellation of the job don't work for {@link BacktrackMode#CLONE}
+	 * except during the preparation of the search.
+	 *
+	 * If the subfaces are split into independent groups by
+	 * {@link SubFaceComponentsFinder}, each group is searched separately, in
+	 * parallel if {@link #getParallelism()} is larger than 1, and the states
+	 * are built as the product of the solutions of the groups. The order of
+	 * the states is the same as the one of the search over all subfaces. A
+	 * stopped job gives the product of the solutions found before the stop,
+	 * which are not necessarily the first states in that order.
+	 *
+	 * {@link LayerOrderingEngine#SAT} gives the same states in the same order.
+	 * Each model counts as a search node of the job and a stopped job gives
+	 * the models found so far.
+	 *
+	 * If {@link FoldJob#setSolutionLimit(long)} is given, the search stops
+	 * after that number of states, which are the first states in the order
+	 * above regardless of {@link #getParallelism()}. The parallel search
+	 * reports the solutions to the job after all tasks end in that case.
+	 * {@link LayerOrderingEngine#SAT} is an exception: the states are the
+	 * first models found by the solver, sorted in the order above, which are
+	 * not necessarily the first states of the search. With
+	 * {@link FoldedStateRanking#FEWEST_INVERSIONS}, the states are found by
+	 * a best-first search in the order of the ranking instead, which keeps a
+	 * matrix for each open search node.
+	 *
+	 * @param origamiModel
+	 *            half-edge based data structure. It will be affected by this
+	 *            method.
+	 * @param job
+	 *            a job which has not been run yet.
+	 * @return folded model whose {@link FoldedModel#getOrigamiModel()} returns
+	 *         the given {@code origamiModel}.
+	 */
+	public FoldedModel fold(final OrigamiModel origamiModel, final FoldJob job) {
+		job.start();
 
-		var foldedModel = new FoldedModel(origamiModel, overlapRelationList);
+		simpleFold(origamiModel);
 
-		simpleFoldWithoutZorder(faces, edges);
-		folderTool.setFacesOutline(faces);
-		sortedFaces.addAll(faces);
+		return findFoldedStates(origamiModel, job);
+	}
 
-		if (!fullEstimation) {
-			origamiModel.setFolded(true);
-			return foldedModel;
+	/**
+	 * Computes all possible folded states as
+	 * {@link #fold(OrigamiModel, FoldJob)} with the cache given by
+	 * {@link #setFoldResultCache(FoldResultCache)}. If the cache has the
+	 * states of {@code creasePattern} and they match the model, the states are
+	 * restored without the search. Otherwise the states are computed and
+	 * stored into the cache if the job completes.
+	 *
+	 * @param creasePattern
+	 *            crease pattern from which {@code origamiModel} is built.
+	 * @param origamiModel
+	 *            half-edge based data structure. It will be affected by this
+	 *            method.
+	 * @param job
+	 *            a job which has not been run yet.
+	 * @return folded model whose {@link FoldedModel#getOrigamiModel()} returns
+	 *         the given {@code origamiModel}.
+	 */
+	public FoldedModel fold(final CreasePatternInterface creasePattern, final OrigamiModel origamiModel,
+			final FoldJob job) {
+		if (foldResultCache == null) {
+			return fold(origamiModel, job);
 		}
 
-		// After folding construct the subfaces
-		double paperSize = origamiModel.getPaperSize();
-		subFaces = subFacesFactory.createSubFaces(faces, paperSize);
-		logger.debug("subFaces.size() = " + subFaces.size());
+		// the ranking changes the order of the states.
+		var key = new CreasePatternHasher().hash(creasePattern, foldedStateRanking.name());
+		var cachedResult = foldResultCache.get(key);
 
-		int[][] overlapRelation = createOverlapRelation(faces, paperSize);
+		job.start();
 
-		// Set overlap relations based on valley/mountain folds information
-		determineOverlapRelationByLineType(faces, overlapRelation);
+		simpleFold(origamiModel);
 
-		holdCondition3s(faces, paperSize, overlapRelation);
+		var restored = cachedResult.flatMap(result -> result.restore(origamiModel, CreasePatternHasher.DEFAULT_EPS));
+		if (restored.isPresent()) {
+			logger.debug("fold result is restored from cache.");
+			return createRestoredFoldedModel(origamiModel, restored.get(), job);
+		}
+		if (cachedResult.isPresent()) {
+			logger.debug("cached fold result doesn't match the model.");
+			foldResultCache.remove(key);
+		}
 
-		condition4s = new ArrayList<>();
-		holdCondition4s(edges, overlapRelation);
+		var foldedModel = findFoldedStates(origamiModel, job);
+		if (job.getStatus() == FoldJobStatus.COMPLETED) {
+			foldResultCache.put(key, FoldResult.create(origamiModel,
+					foldedModel.getOverlapRelationList().getFoldableOverlapRelations()));
+		}
+		return foldedModel;
+	}
+
+	private FoldedModel createRestoredFoldedModel(final OrigamiModel origamiModel,
+			final List<OverlapRelation> overlapRelations, final FoldJob job) {
+		var overlapRelationList = new OverlapRelationList();
+		var states = overlapRelations.iterator();
+		while (!job.shouldStop() && states.hasNext()) {
+			var state = states.next();
+			if (!job.solutionFound()) {
+				break;
+			}
+			overlapRelationList.getFoldableOverlapRelations().add(state);
+		}
+		job.finish();
+
+		if (!overlapRelationList.isEmpty()) {
+			origamiModel.setFolded(true);
+		}
+		return new FoldedModel(origamiModel, overlapRelationList);
+	}
 
-		estimation(faces, overlapRelation);
+	/**
+	 * Computes the folded states as {@link #fold(OrigamiModel, FoldJob)}.
+	 *
+	 * @param origamiModel
+	 *            half-edge based data structure after
+	 *            {@link #simpleFold(OrigamiModel)}.
+	 * @param job
+	 *            running job.
+	 * @return folded model.
+	 */
+	private FoldedModel findFoldedStates(final OrigamiModel origamiModel, final FoldJob job) {
+		List<OriFace> faces = origamiModel.getFaces();
+
+		var overlapRelationList = new OverlapRelationList();
+
+		var foldedModel = new FoldedModel(origamiModel, overlapRelationList);
 
-		for (SubFace sub : subFaces) {
-			sub.sortFaceOverlapOrder(faces, overlapRelation);
+		OverlapRelation overlapRelation = estimateOverlapRelation(origamiModel, job);
+
+		searchNodeCount = 0;
+		var watch = new StopWatch(true);
+		if (job.shouldStop()) {
+			logger.debug("the job is stopped before the search.");
+		} else if (estimationConflicted) {
+			logger.debug("the estimation has found no folded state.");
+		} else if (foldedStateRanking == FoldedStateRanking.FEWEST_INVERSIONS) {
+			findAnswerBestFirst(faces, overlapRelationList, overlapRelation, job);
+		} else if (layerOrderingEngine == LayerOrderingEngine.SAT) {
+			var solver = new SatLayerOrderingSolver(faces, subFaces, penetrationCrossings);
+			overlapRelationList.getFoldableOverlapRelations().addAll(solver.solve(overlapRelation, job));
+			searchNodeCount = solver.getDecisionCount();
+			logger.debug("SAT variables = " + solver.getVariableCount());
+		} else if (subFaceComponents.size() > 1) {
+			var states = createFoldedStateProduct(faces, overlapRelation, job);
+			// the states built from the solutions found before a stop are
+			// the result of the stopped job.
+			var stoppedInSearch = job.shouldStop();
+			while ((stoppedInSearch || !job.shouldStop()) && states.hasNext()) {
+				var state = states.next();
+				if (!job.solutionFound()) {
+					break;
+				}
+				overlapRelationList.getFoldableOverlapRelations().add(state);
+			}
+		} else if (parallelism > 1) {
+			findAnswerInParallel(faces, overlapRelationList, overlapRelation, job);
+		} else if (backtrackMode == BacktrackMode.TRAIL) {
+			var states = new FoldedStateIterator(faces, overlapRelation, job);
+			states.forEachRemaining(overlapRelationList.getFoldableOverlapRelations()::add);
+			searchNodeCount = states.getNodeCount();
+		} else {
+			findAnswer(faces, overlapRelationList, 0, overlapRelation, true, createNogoodCache(faces));
 		}
+		searchMilliSec = watch.getMilliSec();
+		logger.debug("search nodes = " + searchNodeCount + ", search time = " + searchMilliSec + "ms");
+
+		// the search of BacktrackMode.CLONE doesn't stop at the limit.
+		var foldableOverlapRelations = overlapRelationList.getFoldableOverlapRelations();
+		if (foldableOverlapRelations.size() > job.getSolutionLimit()) {
+			foldableOverlapRelations.subList((int) job.getSolutionLimit(), foldableOverlapRelations.size()).clear();
+			job.stop(FoldJobStatus.SOLUTION_LIMIT_REACHED);
+		}
+		logger.debug(nogoodStatistics.toString());
 
-		findAnswer(faces, overlapRelationList, 0, overlapRelation, true, paperSize);
+		job.finish();
+		logger.debug("fold job status = " + job.getStatus());
 
 		overlapRelationList.setCurrentORmatIndex(0);
 		if (overlapRelationList.isEmpty()) {
@@ -124,67 +562,1089 @@ public class Folder {
 	}
 
 	/**
-	 * Determines overlap relations which are left uncertain after using
-	 * necessary conditions.
+	 * Counts folded states without storing them. The search only increments
+	 * a counter at each solution so that the memory usage is bounded by the
+	 * working matrix. The subfaces are split into independent groups by
+	 * {@link SubFaceComponentsFinder} and the counts of the groups are
+	 * multiplied.
 	 *
-	 * @param faces
-	 *            all faces of the origami model.
-	 * @param overlapRelationList
-	 *            an object to store the result
+	 * @param origamiModel
+	 *            half-edge based data structure. It will be affected by this
+	 *            method.
+	 * @return the number of foldable states, which equals to the size of the
+	 *         result of {@link #fold(OrigamiModel, boolean)}.
+	 * @throws ArithmeticException
+	 *             if the count of an independent group exceeds the range of
+	 *             long.
+	 */
+	public BigInteger countFoldedStates(final OrigamiModel origamiModel) {
+		List<OriFace> faces = origamiModel.getFaces();
+
+		simpleFold(origamiModel);
+
+		OverlapRelation overlapRelation = estimateOverlapRelation(origamiModel, startUnlimitedJob());
+
+		searchNodeCount = 1;
+		var watch = new StopWatch(true);
+
+		var count = BigInteger.ZERO;
+		if (!estimationConflicted && !detectPenetration(faces, overlapRelation, penetrationCrossings)) {
+			var components = subFaceComponents;
+
+			var trail = new OverlapRelationTrail(overlapRelation.clone());
+			var nogoods = createNogoodCache(faces);
+			count = BigInteger.ONE;
+			for (var component : components) {
+				var componentCount = countAnswers(faces, component, 0, trail, nogoods);
+				count = count.multiply(BigInteger.valueOf(componentCount));
+				if (componentCount == 0) {
+					break;
+				}
+			}
+		}
+		searchMilliSec = watch.getMilliSec();
+		logger.debug("search nodes = " + searchNodeCount + ", search time = " + searchMilliSec + "ms");
+		logger.debug(nogoodStatistics.toString());
+
+		return count;
+	}
+
+	/**
+	 * Counts the solutions of the layer ordering search on the given subfaces.
+	 * The subfaces should be independent of the others, which is the case for
+	 * a group given by {@link SubFaceComponentsFinder}.
+	 *
+	 * @param subFaceGroup
+	 *            subfaces to be searched.
 	 * @param subFaceIndex
-	 *            the index of subface to be updated
-	 * @param orMat
-	 *            overlap relation matrix
-	 * @param orMatModified
-	 *            whether {@code orMat} has been changed by the previous call.
-	 *            {@code true} for the first call.
-	 * @param paperSize
-	 *            paper size
+	 *            the index in {@code subFaceGroup} of the subface to be
+	 *            updated.
+	 * @param trail
+	 *            trail of the working matrix, which is restored before
+	 *            return.
+	 * @param nogoods
+	 *            nogoods learned by the search.
+	 * @return the number of solutions.
+	 * @throws ArithmeticException
+	 *             if the count exceeds the range of long.
 	 */
-	private void findAnswer(
-			final List<OriFace> faces,
-			final OverlapRelationList overlapRelationList, final int subFaceIndex, final int[][] orMat,
-			final boolean orMatModified, final double paperSize) {
-		List<int[][]> foldableOverlapRelations = overlapRelationList.getFoldableOverlapRelations();
+	private long countAnswers(final List<OriFace> faces, final List<SubFace> subFaceGroup,
+			final int subFaceIndex, final OverlapRelationTrail trail, final NogoodCache nogoods) {
+		if (subFaceIndex == subFaceGroup.size()) {
+			return 1;
+		}
 
-		if (orMatModified) {
-			if (detectPenetration(faces, orMat, paperSize)) {
-				return;
+		var orMat = trail.getOverlapRelation();
+		var sub = subFaceGroup.get(subFaceIndex);
+
+		long count = 0;
+		for (var answerStack : sub.answerStacks) {
+			if (!isCorrectStackOrder(answerStack, orMat) || nogoods.isRejected(answerStack, orMat)) {
+				continue;
+			}
+			int mark = trail.mark();
+			int size = answerStack.size();
+			for (int i = 0; i < size; i++) {
+				int index_i = answerStack.get(i).getFaceID();
+				for (int j = i + 1; j < size; j++) {
+					trail.setUpper(index_i, answerStack.get(j).getFaceID());
+				}
+			}
+
+			searchNodeCount++;
+			if (!detectPenetration(faces, orMat, penetrationCrossings, nogoods)) {
+				count = Math.addExact(count,
+						countAnswers(faces, subFaceGroup, subFaceIndex + 1, trail, nogoods));
 			}
+
+			trail.undo(mark);
 		}
+		return count;
+	}
 
-		if (subFaceIndex == subFaces.size()) {
-			var ansMat = Matrices.clone(orMat);
-			foldableOverlapRelations.add(ansMat);
-			return;
+	/**
+	 * Searches each independent group of subfaces separately.
+	 *
+	 * @param overlapRelation
+	 *            overlap relation matrix after estimation. It will not be
+	 *            affected by this method.
+	 * @param job
+	 *            running job.
+	 * @return the states as the product of the solutions of the groups. If
+	 *         the job stops during the search, the product of the solutions
+	 *         found before the stop, which has no state if a group has no
+	 *         solution found.
+	 */
+	private FoldedStateProduct createFoldedStateProduct(final List<OriFace> faces,
+			final OverlapRelation overlapRelation, final FoldJob job) {
+		var nodeCounter = new LongAdder();
+		nodeCounter.increment();
+
+		List<List<int[]>> groupSolutions;
+		if (detectPenetration(faces, overlapRelation, penetrationCrossings)) {
+			groupSolutions = List.of(List.of());
+		} else if (parallelism > 1) {
+			var pool = new ForkJoinPool(parallelism);
+			try {
+				groupSolutions = pool.submit(() -> subFaceComponents.parallelStream()
+						.map(component -> findComponentAnswers(faces, component, overlapRelation, nodeCounter,
+								job))
+						.collect(Collectors.toList()))
+						.join();
+			} finally {
+				pool.shutdown();
+			}
+		} else {
+			groupSolutions = subFaceComponents.stream()
+					.map(component -> findComponentAnswers(faces, component, overlapRelation, nodeCounter,
+							job))
+					.collect(Collectors.toList());
 		}
 
-		SubFace sub = subFaces.get(subFaceIndex);
+		searchNodeCount = nodeCounter.sum();
 
-		if (sub.allFaceOrderDecided) {
-			var passMat = Matrices.clone(orMat);
-			findAnswer(faces, overlapRelationList, subFaceIndex + 1, passMat, false, paperSize);
-			return;
+		logger.debug("independent subface groups = " + groupSolutions.size()
+				+ ", solutions of groups = " + groupSolutions.stream()
+						.map(solutions -> Integer.toString(solutions.size()))
+						.collect(Collectors.joining(" x ")));
+
+		return new FoldedStateProduct(overlapRelation, groupSolutions);
+	}
+
+	/**
+	 * Collects the solutions of the layer ordering search on the given
+	 * subfaces, which should be independent of the others.
+	 *
+	 * @param subFaceGroup
+	 *            subfaces to be searched.
+	 * @param overlapRelation
+	 *            overlap relation matrix after estimation. It will not be
+	 *            affected by this method.
+	 * @return solutions as (i, j, value) triples of the cells set by the
+	 *         search.
+	 */
+	private List<int[]> findComponentAnswers(final List<OriFace> faces, final List<SubFace> subFaceGroup,
+			final OverlapRelation overlapRelation, final LongAdder nodeCounter, final FoldJob job) {
+		var solutions = new ArrayList<int[]>();
+		collectAnswers(faces, subFaceGroup, 0, new OverlapRelationTrail(overlapRelation.clone()),
+				solutions, createNogoodCache(faces), nodeCounter, job);
+		return solutions;
+	}
+
+	private void collectAnswers(final List<OriFace> faces, final List<SubFace> subFaceGroup,
+			final int subFaceIndex, final OverlapRelationTrail trail, final List<int[]> solutions,
+			final NogoodCache nogoods, final LongAdder nodeCounter, final FoldJob job) {
+		if (subFaceIndex == subFaceGroup.size()) {
+			solutions.add(trail.getChangesSince(0));
+			return;
+		}
+
+		var orMat = trail.getOverlapRelation();
+		var sub = subFaceGroup.get(subFaceIndex);
+
+		for (var answerStack : sub.answerStacks) {
+			if (!isCorrectStackOrder(answerStack, orMat) || nogoods.isRejected(answerStack, orMat)) {
+				continue;
+			}
+			int mark = trail.mark();
+			int size = answerStack.size();
+			for (int i = 0; i < size; i++) {
+				int index_i = answerStack.get(i).getFaceID();
+				for (int j = i + 1; j < size; j++) {
+					trail.setUpper(index_i, answerStack.get(j).getFaceID());
+				}
+			}
+
+			nodeCounter.increment();
+			if (job.nodeVisited()) {
+				return;
+			}
+			if (!detectPenetration(faces, orMat, penetrationCrossings, nogoods)) {
+				collectAnswers(faces, subFaceGroup, subFaceIndex + 1, trail, solutions, nogoods, nodeCounter,
+						job);
+			}
+
+			trail.undo(mark);
+
+			// the first states of the product and a state beyond the limit
+			// need only the first (limit + 1) solutions of each group.
+			if (solutions.size() > job.getSolutionLimit()) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Computes folded states as a stream. The layer ordering search runs as
+	 * the stream is consumed, yields the overlap relation matrices one by one
+	 * in the same order as {@link #fold(OrigamiModel, boolean)} does, and
+	 * stops when the stream is no longer consumed. Only the working matrix of
+	 * the search is kept while consuming the stream.
+	 *
+	 * @param origamiModel
+	 *            half-edge based data structure. It will be affected by this
+	 *            method.
+	 * @return overlap relation matrices of the foldable states.
+	 */
+	public Stream<OverlapRelation> foldedStateStream(final OrigamiModel origamiModel) {
+		return StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize(createFoldedStateIterator(origamiModel),
+						Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL),
+				false);
+	}
+
+	private Iterator<OverlapRelation> createFoldedStateIterator(final OrigamiModel origamiModel) {
+		var job = startUnlimitedJob();
+
+		simpleFold(origamiModel);
+
+		var overlapRelation = estimateOverlapRelation(origamiModel, job);
+
+		if (estimationConflicted) {
+			return Collections.emptyIterator();
+		}
+
+		if (subFaceComponents.size() > 1) {
+			return createFoldedStateProduct(origamiModel.getFaces(), overlapRelation, job);
+		}
+
+		return new FoldedStateIterator(origamiModel.getFaces(), overlapRelation, job);
+	}
+
+	/**
+	 *
+	 * @return a running job without limits for the methods which don't take a
+	 *         job.
+	 */
+	private FoldJob startUnlimitedJob() {
+		var job = new FoldJob();
+		job.start();
+		return job;
+	}
+
+	/**
+	 * Computes the positions of faces after fold without layer ordering.
+	 *
+	 * @param origamiModel
+	 *            half-edge based data structure. It will be affected by this
+	 *            method.
+	 */
+	private void simpleFold(final OrigamiModel origamiModel) {
+		List<OriFace> faces = origamiModel.getFaces();
+
+		simpleFoldWithoutZorder(faces, origamiModel.getEdges());
+		folderTool.setFacesOutline(faces);
+		origamiModel.getSortedFaces().addAll(faces);
+	}
+
+	/**
+	 * Creates subfaces and determines overlap relations as much as possible
+	 * by necessary conditions. This method prepares each subface for the
+	 * layer ordering search.
+	 *
+	 * @param origamiModel
+	 *            half-edge based data structure after
+	 *            {@link #simpleFold(OrigamiModel)}.
+	 * @param job
+	 *            running job, which receives the progress for each subface.
+	 *            If the job stops, the subfaces after the stop are left
+	 *            unprepared.
+	 * @return overlap relation matrix after estimation. The subfaces are left
+	 *         unprepared if {@link #estimationConflicted} is true. null if
+	 *         the job stops before the estimation ends.
+	 */
+	private OverlapRelation estimateOverlapRelation(final OrigamiModel origamiModel, final FoldJob job) {
+		List<OriFace> faces = origamiModel.getFaces();
+		List<OriEdge> edges = origamiModel.getEdges();
+
+		nogoodStatistics = new NogoodStatistics();
+
+		if (job.shouldStop()) {
+			logger.debug("the job is stopped before the estimation.");
+			return null;
+		}
+
+		// After folding construct the subfaces and test the overlaps.
+		double paperSize = origamiModel.getPaperSize();
+		foldGeometry = foldGeometryFactory.create(faces, paperSize, reusableFoldGeometry, job);
+		if (foldGeometry == null) {
+			logger.debug("the job is stopped while testing the geometry.");
+			return null;
+		}
+		subFaces = subFacesFactory.removeDuplicates(foldGeometry.getSplitSubFaces());
+		logger.debug("subFaces.size() = " + subFaces.size());
+		job.setSubFaceCount(subFaces.size());
+
+		OverlapRelation overlapRelation = foldGeometry.createOverlapRelation();
+
+		penetrationCrossings = foldGeometry.getPenetrationCrossings();
+		var estimationCrossings = foldGeometry.getEstimationCrossings();
+
+		// Set overlap relations based on valley/mountain folds information
+		determineOverlapRelationByLineType(faces, overlapRelation);
+
+		var subFacesOfFaces = createSubFacesOfFaces(faces);
+
+		holdCondition3s(faces, overlapRelation, subFacesOfFaces);
+
+		condition4s = new ArrayList<>();
+		holdCondition4s(edges, overlapRelation, subFacesOfFaces, job);
+		if (job.shouldStop()) {
+			logger.debug("the job is stopped while creating the conditions.");
+			return null;
+		}
+
+		estimationConflicted = estimation(faces, overlapRelation, subFacesOfFaces, estimationCrossings, job);
+		if (job.shouldStop()) {
+			logger.debug("the job is stopped during the estimation.");
+			return null;
+		}
+		if (estimationConflicted) {
+			subFaceComponents = List.of();
+			return overlapRelation;
+		}
+
+		prepareAnswerStacks(faces, overlapRelation, job);
+
+		subFaces = subFaceOrdering.sort(subFaces);
+
+		subFaceComponents = new SubFaceComponentsFinder().find(
+				faces, subFaces, overlapRelation, penetrationCrossings);
+		logger.debug("independent subface groups = " + subFaceComponents.size());
+
+		// make the subfaces of each group contiguous so that the search over
+		// all subfaces gives the states in the same order as the product of
+		// the groups.
+		if (subFaceComponents.size() > 1) {
+			var groupedSubFaces = subFaces.stream()
+					.filter(sub -> sub.allFaceOrderDecided)
+					.collect(Collectors.toList());
+			subFaceComponents.forEach(groupedSubFaces::addAll);
+			subFaces = groupedSubFaces;
+		}
+
+		return overlapRelation;
+	}
+
+	/**
+	 * Prepares the candidate stacks of subfaces. If {@link #getParallelism()}
+	 * is larger than 1, the subfaces are processed in parallel and the first
+	 * {@link #getStackCapacity()} stacks of each subface are generated in
+	 * advance, which would be generated on demand otherwise. The stack
+	 * generation keeps its working state per thread.
+	 *
+	 * @param orMat
+	 *            overlap relation matrix after estimation.
+	 */
+	private void prepareAnswerStacks(final List<OriFace> faces, final OverlapRelation orMat,
+			final FoldJob job) {
+		if (parallelism <= 1) {
+			for (SubFace sub : subFaces) {
+				sub.sortFaceOverlapOrder(faces, orMat, stackCapacity);
+				if (job.subFaceProcessed()) {
+					break;
+				}
+			}
+			return;
+		}
+
+		var pool = new ForkJoinPool(parallelism);
+		try {
+			pool.submit(() -> subFaces.parallelStream().forEach(sub -> {
+				if (job.shouldStop()) {
+					return;
+				}
+				sub.sortFaceOverlapOrder(faces, orMat, stackCapacity);
+				sub.answerStacks.count(stackCapacity);
+				job.subFaceProcessed();
+			})).join();
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Determines overlap relations which are left uncertain after using
+	 * necessary conditions.
+	 *
+	 * @param faces
+	 *            all faces of the origami model.
+	 * @param overlapRelationList
+	 *            an object to store the result
+	 * @param subFaceIndex
+	 *            the index of subface to be updated
+	 * @param orMat
+	 *            overlap relation matrix
+	 * @param orMatModified
+	 *            whether {@code orMat} has been changed by the previous call.
+	 *            {@code true} for the first call.
+	 * @param nogoods
+	 *            nogoods learned by the search.
+	 */
+	private void findAnswer(
+			final List<OriFace> faces,
+			final OverlapRelationList overlapRelationList, final int subFaceIndex, final OverlapRelation orMat,
+			final boolean orMatModified, final NogoodCache nogoods) {
+		List<OverlapRelation> foldableOverlapRelations = overlapRelationList.getFoldableOverlapRelations();
+		searchNodeCount++;
+
+		if (orMatModified) {
+			if (detectPenetration(faces, orMat, penetrationCrossings, nogoods)) {
+				return;
+			}
+		}
+
+		if (subFaceIndex == subFaces.size()) {
+			var ansMat = orMat.clone();
+			foldableOverlapRelations.add(ansMat);
+			return;
+		}
+
+		SubFace sub = subFaces.get(subFaceIndex);
+
+		if (sub.allFaceOrderDecided) {
+			var passMat = orMat.clone();
+			findAnswer(faces, overlapRelationList, subFaceIndex + 1, passMat, false, nogoods);
+			return;
+		}
+
+		for (List<OriFace> answerStack : sub.answerStacks) {
+			if (!isCorrectStackOrder(answerStack, orMat) || nogoods.isRejected(answerStack, orMat)) {
+				continue;
+			}
+			var passMat = orMat.clone();
+
+			// determine overlap relations according to stack
+			setStackOrder(answerStack, passMat);
+
+			findAnswer(faces, overlapRelationList, subFaceIndex + 1, passMat, true, nogoods);
+		}
+	}
+
+	/**
+	 * Iterative version of
+	 * {@link #findAnswer(List, OverlapRelationList, int, OverlapRelation, boolean, NogoodCache)}
+	 * which yields the solutions one by one. All search nodes share a single
+	 * matrix whose writes are recorded on a trail and undone on backtrack.
+	 * The matrix is copied only when a solution is returned. The search
+	 * proceeds only when the next solution is requested.
+	 */
+	private class FoldedStateIterator implements Iterator<OverlapRelation> {
+		private final List<OriFace> faces;
+		private final List<SubFace> subFaces;
+		private final OverlapRelationTrail trail;
+		private final HalfedgeFaceCrossingTable crossings;
+		private final NogoodCache nogoods;
+
+		/**
+		 * the cursor at the next candidate stack to be tried for each
+		 * subface, or null before the subface is visited.
+		 */
+		private final AnswerStacks.Cursor[] stackCursors;
+		/**
+		 * the trail mark before the stack of each subface is set.
+		 */
+		private final int[] trailMarks;
+
+		/**
+		 * the depth of the search, which is the index of the subface to be
+		 * processed. {@code subFaces.size()} means a solution.
+		 */
+		private int subFaceIndex = 0;
+		private boolean started = false;
+		private boolean finished = false;
+
+		private OverlapRelation next = null;
+		private long nodeCount = 0;
+
+		private final FoldJob job;
+
+		/**
+		 * @param overlapRelation
+		 *            overlap relation matrix after estimation. It will not be
+		 *            affected by this iterator.
+		 * @param job
+		 *            running job. The iteration ends when the job stops.
+		 */
+		FoldedStateIterator(final List<OriFace> faces, final OverlapRelation overlapRelation,
+				final FoldJob job) {
+			this.faces = faces;
+			this.job = job;
+			this.subFaces = Folder.this.subFaces;
+			this.crossings = Folder.this.penetrationCrossings;
+			this.nogoods = createNogoodCache(faces);
+			this.trail = new OverlapRelationTrail(overlapRelation.clone());
+
+			stackCursors = new AnswerStacks.Cursor[subFaces.size()];
+			trailMarks = new int[subFaces.size()];
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next == null) {
+				next = searchNext();
+			}
+			return next != null;
+		}
+
+		@Override
+		public OverlapRelation next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			var state = next;
+			next = null;
+			return state;
+		}
+
+		/**
+		 * @return the number of search nodes visited so far.
+		 */
+		long getNodeCount() {
+			return nodeCount;
+		}
+
+		/**
+		 * Resumes the search.
+		 *
+		 * @return a copy of the working matrix at the next solution, or null if
+		 *         there is no more solution.
+		 */
+		private OverlapRelation searchNext() {
+			if (finished) {
+				return null;
+			}
+
+			var orMat = trail.getOverlapRelation();
+
+			if (!started) {
+				started = true;
+				if (visitNode()) {
+					return stop();
+				}
+				if (detectPenetration(faces, orMat, crossings)) {
+					finished = true;
+					return null;
+				}
+			} else {
+				// the previous call stopped at a solution.
+				backtrack();
+			}
+
+			while (subFaceIndex >= 0) {
+				if (subFaceIndex == subFaces.size()) {
+					if (!job.solutionFound()) {
+						return stop();
+					}
+					return orMat.clone();
+				}
+
+				SubFace sub = subFaces.get(subFaceIndex);
+
+				if (sub.allFaceOrderDecided) {
+					if (stackCursors[subFaceIndex] == null) {
+						stackCursors[subFaceIndex] = sub.answerStacks.cursor();
+						trailMarks[subFaceIndex] = trail.mark();
+						if (visitNode()) {
+							return stop();
+						}
+						descend();
+					} else {
+						backtrack();
+					}
+					continue;
+				}
+
+				if (stackCursors[subFaceIndex] == null) {
+					stackCursors[subFaceIndex] = sub.answerStacks.cursor();
+				}
+				var cursor = stackCursors[subFaceIndex];
+				List<OriFace> answerStack = null;
+				while (cursor.hasNext()) {
+					var candidate = cursor.next();
+					if (isCorrectStackOrder(candidate, orMat) && !nogoods.isRejected(candidate, orMat)) {
+						answerStack = candidate;
+						break;
+					}
+				}
+				if (answerStack == null) {
+					backtrack();
+					continue;
+				}
+
+				trailMarks[subFaceIndex] = trail.mark();
+				int size = answerStack.size();
+				for (int i = 0; i < size; i++) {
+					int index_i = answerStack.get(i).getFaceID();
+					for (int j = i + 1; j < size; j++) {
+						trail.setUpper(index_i, answerStack.get(j).getFaceID());
+					}
+				}
+
+				if (visitNode()) {
+					return stop();
+				}
+				if (detectPenetration(faces, orMat, crossings, nogoods)) {
+					trail.undo(trailMarks[subFaceIndex]);
+					continue;
+				}
+				descend();
+			}
+
+			finished = true;
+			return null;
+		}
+
+		/**
+		 * @return true if the job should stop.
+		 */
+		private boolean visitNode() {
+			nodeCount++;
+			return job.nodeVisited();
+		}
+
+		/**
+		 * Ends the iteration since the job has stopped.
+		 *
+		 * @return null as no more solution.
+		 */
+		private OverlapRelation stop() {
+			finished = true;
+			return null;
+		}
+
+		private void descend() {
+			subFaceIndex++;
+			if (subFaceIndex < subFaces.size()) {
+				stackCursors[subFaceIndex] = null;
+			}
+		}
+
+		private void backtrack() {
+			subFaceIndex--;
+			if (subFaceIndex >= 0) {
+				trail.undo(trailMarks[subFaceIndex]);
+			}
+		}
+	}
+
+	/**
+	 * Runs the layer ordering search on a {@link ForkJoinPool} of
+	 * {@link #parallelism} threads. Each task has its own working matrix and
+	 * the solutions are collected into {@link FirstSolutions}, then stored
+	 * into {@code overlapRelationList} in the order of the sequential search.
+	 * With a solution limit, the tasks don't stop at the limit but prune the
+	 * branches after the kept solutions, so that the result is the first
+	 * states of the sequential search.
+	 *
+	 * @param faces
+	 *            all faces of the origami model.
+	 * @param overlapRelationList
+	 *            an object to store the result
+	 * @param overlapRelation
+	 *            overlap relation matrix after estimation. It will not be
+	 *            affected by this method.
+	 * @param job
+	 *            running job. The tasks end when the job stops.
+	 */
+	private void findAnswerInParallel(
+			final List<OriFace> faces,
+			final OverlapRelationList overlapRelationList,
+			final OverlapRelation overlapRelation, final FoldJob job) {
+		var solutions = new FirstSolutions(job.getSolutionLimit());
+		var nodeCounter = new LongAdder();
+
+		var pool = new ForkJoinPool(parallelism);
+		try {
+			pool.invoke(new SearchTask(faces, solutions, nodeCounter, 0, new int[subFaces.size()],
+					overlapRelation.clone(), true, 1, job));
+		} finally {
+			pool.shutdown();
+		}
+
+		searchNodeCount = nodeCounter.sum();
+
+		var sortedSolutions = solutions.toSortedList();
+		for (var solution : sortedSolutions) {
+			overlapRelationList.getFoldableOverlapRelations().add(solution.overlapRelation);
+			if (solutions.isLimited()) {
+				job.solutionFound();
+			}
+		}
+		if (solutions.isTruncated()) {
+			job.stop(FoldJobStatus.SOLUTION_LIMIT_REACHED);
+		}
+	}
+
+	/**
+	 * Searches the states in ascending order of inversions. A node is a
+	 * matrix with the subfaces before its index stacked, and its score is the
+	 * number of inversions set by the stacks. Since stacking never decreases
+	 * the score, the complete states are popped in the order of their scores.
+	 * The nodes of the same score are visited in the order of creation.
+	 */
+	private void findAnswerBestFirst(final List<OriFace> faces, final OverlapRelationList overlapRelationList,
+			final OverlapRelation overlapRelation, final FoldJob job) {
+		var queue = new PriorityQueue<RankedNode>();
+		long sequence = 0;
+
+		if (!detectPenetration(faces, overlapRelation, penetrationCrossings)) {
+			queue.add(new RankedNode(overlapRelation.clone(), 0, 0, sequence++));
+		}
+
+		while (!queue.isEmpty()) {
+			var node = queue.poll();
+			searchNodeCount++;
+			if (job.nodeVisited()) {
+				return;
+			}
+
+			int subFaceIndex = node.subFaceIndex;
+			while (subFaceIndex < subFaces.size() && subFaces.get(subFaceIndex).allFaceOrderDecided) {
+				subFaceIndex++;
+			}
+
+			if (subFaceIndex == subFaces.size()) {
+				if (!job.solutionFound()) {
+					return;
+				}
+				overlapRelationList.getFoldableOverlapRelations().add(node.overlapRelation);
+				continue;
+			}
+
+			for (var answerStack : subFaces.get(subFaceIndex).answerStacks) {
+				if (!isCorrectStackOrder(answerStack, node.overlapRelation)) {
+					continue;
+				}
+				var score = node.score + countNewInversions(answerStack, node.overlapRelation);
+				var orMat = node.overlapRelation.clone();
+				setStackOrder(answerStack, orMat);
+				if (detectPenetration(faces, orMat, penetrationCrossings)) {
+					continue;
+				}
+				queue.add(new RankedNode(orMat, subFaceIndex + 1, score, sequence++));
+			}
+		}
+	}
+
+	/**
+	 * @return the number of inversions which the stack newly sets.
+	 */
+	private int countNewInversions(final List<OriFace> answerStack, final OverlapRelation orMat) {
+		int count = 0;
+		int size = answerStack.size();
+		for (int i = 0; i < size; i++) {
+			int index_i = answerStack.get(i).getFaceID();
+			for (int j = i + 1; j < size; j++) {
+				int index_j = answerStack.get(j).getFaceID();
+				if (index_i > index_j && !orMat.isUpper(index_i, index_j)) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * A node of the best-first search.
+	 */
+	private static class RankedNode implements Comparable<RankedNode> {
+		private final OverlapRelation overlapRelation;
+		private final int subFaceIndex;
+		private final int score;
+		private final long sequence;
+
+		RankedNode(final OverlapRelation overlapRelation, final int subFaceIndex, final int score,
+				final long sequence) {
+			this.overlapRelation = overlapRelation;
+			this.subFaceIndex = subFaceIndex;
+			this.score = score;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(final RankedNode o) {
+			if (score != o.score) {
+				return Integer.compare(score, o.score);
+			}
+			return Long.compare(sequence, o.sequence);
+		}
+	}
+
+	/**
+	 * A solution with the indices of the chosen candidate stacks. Sorting by
+	 * the indices reproduces the order of the sequential search.
+	 */
+	private static class IndexedSolution implements Comparable<IndexedSolution> {
+		private final int[] stackIndices;
+		private final OverlapRelation overlapRelation;
+
+		IndexedSolution(final int[] stackIndices, final OverlapRelation overlapRelation) {
+			this.stackIndices = stackIndices;
+			this.overlapRelation = overlapRelation;
+		}
+
+		@Override
+		public int compareTo(final IndexedSolution o) {
+			return Arrays.compare(stackIndices, o.stackIndices);
+		}
+	}
+
+	/**
+	 * Solutions of the parallel search which are the first ones in the order
+	 * of {@link IndexedSolution}. If the number of solutions is limited, one
+	 * more solution than the limit is kept to tell whether a state is beyond
+	 * the limit, and the last kept solution bounds the search: a branch whose
+	 * stack indices are after the ones of that solution cannot give a kept
+	 * solution.
+	 */
+	private static class FirstSolutions {
+		private final long limit;
+		private final long capacity;
+
+		/**
+		 * kept solutions with the last one at the head.
+		 */
+		private final PriorityQueue<IndexedSolution> lastFirst = new PriorityQueue<>(
+				Collections.reverseOrder());
+
+		/**
+		 * the stack indices of the last kept solution if the limit is reached,
+		 * otherwise null.
+		 */
+		private volatile int[] bound = null;
+
+		FirstSolutions(final long limit) {
+			this.limit = limit;
+			capacity = isLimited() ? limit + 1 : limit;
+		}
+
+		/**
+		 * @return true if the number of solutions is limited.
+		 */
+		boolean isLimited() {
+			return limit != Long.MAX_VALUE;
+		}
+
+		synchronized void add(final IndexedSolution solution) {
+			lastFirst.add(solution);
+			if (lastFirst.size() > capacity) {
+				lastFirst.poll();
+			}
+			if (lastFirst.size() == capacity) {
+				bound = lastFirst.peek().stackIndices;
+			}
+		}
+
+		/**
+		 * @param stackIndices
+		 *            indices of the candidate stacks of a branch.
+		 * @param length
+		 *            the number of the subfaces whose stacks are chosen in the
+		 *            branch.
+		 * @return true if the branch gives no kept solution.
+		 */
+		boolean isBeyondBound(final int[] stackIndices, final int length) {
+			var last = bound;
+			return last != null && Arrays.compare(stackIndices, 0, length, last, 0, length) > 0;
+		}
+
+		/**
+		 * @return true if a solution beyond the limit has been found.
+		 */
+		synchronized boolean isTruncated() {
+			return lastFirst.size() > limit;
+		}
+
+		/**
+		 * @return the kept solutions up to the limit in ascending order.
+		 */
+		synchronized List<IndexedSolution> toSortedList() {
+			return lastFirst.stream()
+					.sorted()
+					.limit(limit)
+					.collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * A subtree of the layer ordering search. The task forks subtasks for
+	 * each candidate stack while the number of tasks is small, and otherwise
+	 * searches the subtree sequentially with a trail on its own matrix.
+	 */
+	private class SearchTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<OriFace> faces;
+		private final FirstSolutions solutions;
+		private final LongAdder nodeCounter;
+		private final int startSubFaceIndex;
+		private final int[] stackIndices;
+		private final OverlapRelationTrail trail;
+		private final boolean orMatModified;
+		private final int taskCount;
+		private final FoldJob job;
+
+		private long nodeCount = 0;
+		private NogoodCache nogoods;
+
+		/**
+		 * @param stackIndices
+		 *            indices of the candidate stacks chosen for the subfaces
+		 *            before {@code startSubFaceIndex}. This task owns the
+		 *            array.
+		 * @param orMat
+		 *            working matrix. This task owns the matrix.
+		 * @param taskCount
+		 *            estimated number of tasks at the depth of this task.
+		 */
+		SearchTask(final List<OriFace> faces,
+				final FirstSolutions solutions, final LongAdder nodeCounter,
+				final int startSubFaceIndex, final int[] stackIndices, final OverlapRelation orMat,
+				final boolean orMatModified, final int taskCount, final FoldJob job) {
+			this.faces = faces;
+			this.solutions = solutions;
+			this.nodeCounter = nodeCounter;
+			this.startSubFaceIndex = startSubFaceIndex;
+			this.stackIndices = stackIndices;
+			this.trail = new OverlapRelationTrail(orMat);
+			this.orMatModified = orMatModified;
+			this.taskCount = taskCount;
+			this.job = job;
+		}
+
+		@Override
+		protected void compute() {
+			nogoods = createNogoodCache(faces);
+			search(startSubFaceIndex, orMatModified);
+			nodeCounter.add(nodeCount);
+		}
+
+		private void search(final int subFaceIndex, final boolean orMatModified) {
+			var orMat = trail.getOverlapRelation();
+			nodeCount++;
+			if (job.nodeVisited()) {
+				return;
+			}
+
+			if (solutions.isBeyondBound(stackIndices, subFaceIndex)) {
+				return;
+			}
+
+			if (orMatModified) {
+				if (detectPenetration(faces, orMat, penetrationCrossings, nogoods)) {
+					return;
+				}
+			}
+
+			if (subFaceIndex == subFaces.size()) {
+				solutions.add(new IndexedSolution(stackIndices.clone(), orMat.clone()));
+				if (!solutions.isLimited()) {
+					job.solutionFound();
+				}
+				return;
+			}
+
+			SubFace sub = subFaces.get(subFaceIndex);
+
+			if (sub.allFaceOrderDecided) {
+				stackIndices[subFaceIndex] = 0;
+				search(subFaceIndex + 1, false);
+				return;
+			}
+
+			// the candidates are collected as long as they can be forked.
+			int forkLimit = parallelism * TASKS_PER_THREAD / taskCount;
+			var cursor = sub.answerStacks.cursor();
+			var candidateIndices = new ArrayList<Integer>();
+			var candidates = new ArrayList<List<OriFace>>();
+			while (candidates.size() <= forkLimit && cursor.hasNext()) {
+				int k = cursor.nextIndex();
+				var answerStack = cursor.next();
+				if (isCorrectStackOrder(answerStack, orMat)) {
+					candidateIndices.add(k);
+					candidates.add(answerStack);
+				}
+			}
+
+			if (candidates.size() > 1 && candidates.size() <= forkLimit) {
+				var tasks = new ArrayList<SearchTask>();
+				for (int c = 0; c < candidates.size(); c++) {
+					var passMat = orMat.clone();
+					setStackOrder(candidates.get(c), passMat);
+
+					var passIndices = stackIndices.clone();
+					passIndices[subFaceIndex] = candidateIndices.get(c);
+
+					tasks.add(new SearchTask(faces, solutions, nodeCounter, subFaceIndex + 1,
+							passIndices, passMat, true, taskCount * candidates.size(), job));
+				}
+				invokeAll(tasks);
+				return;
+			}
+
+			for (int c = 0; c < candidates.size(); c++) {
+				if (!searchWithStack(subFaceIndex, candidateIndices.get(c), candidates.get(c))) {
+					return;
+				}
+			}
+			while (cursor.hasNext()) {
+				int k = cursor.nextIndex();
+				var answerStack = cursor.next();
+				if (isCorrectStackOrder(answerStack, orMat)
+						&& !searchWithStack(subFaceIndex, k, answerStack)) {
+					return;
+				}
+			}
 		}
 
-		for (ArrayList<OriFace> answerStack : sub.answerStacks) {
-			int size = answerStack.size();
-			if (!isCorrectStackOrder(answerStack, orMat)) {
-				continue;
+		/**
+		 * Searches the subtree where the subface has the k-th stack.
+		 *
+		 * @return false if the subtree and the ones of the later stacks give
+		 *         no kept solution.
+		 */
+		private boolean searchWithStack(final int subFaceIndex, final int k, final List<OriFace> answerStack) {
+			stackIndices[subFaceIndex] = k;
+			if (solutions.isBeyondBound(stackIndices, subFaceIndex + 1)) {
+				return false;
 			}
-			var passMat = Matrices.clone(orMat);
-
-			// determine overlap relations according to stack
+			var orMat = trail.getOverlapRelation();
+			if (nogoods.isRejected(answerStack, orMat)) {
+				return true;
+			}
+			int mark = trail.mark();
+			int size = answerStack.size();
 			for (int i = 0; i < size; i++) {
 				int index_i = answerStack.get(i).getFaceID();
 				for (int j = i + 1; j < size; j++) {
-					int index_j = answerStack.get(j).getFaceID();
-					passMat[index_i][index_j] = OverlapRelationValues.UPPER;
-					passMat[index_j][index_i] = OverlapRelationValues.LOWER;
+					trail.setUpper(index_i, answerStack.get(j).getFaceID());
 				}
 			}
 
-			findAnswer(faces, overlapRelationList, subFaceIndex + 1, passMat, true, paperSize);
+			search(subFaceIndex + 1, true);
+
+			trail.undo(mark);
+			return true;
+		}
+	}
+
+	/**
+	 * Sets overlap relations according to the stack.
+	 *
+	 * @param answerStack
+	 *            stack of faces including the same subface. The top of stack
+	 *            is at index 0.
+	 * @param orMat
+	 *            overlap relation matrix.
+	 */
+	private void setStackOrder(final List<OriFace> answerStack, final OverlapRelation orMat) {
+		int size = answerStack.size();
+		for (int i = 0; i < size; i++) {
+			int index_i = answerStack.get(i).getFaceID();
+			for (int j = i + 1; j < size; j++) {
+				orMat.setUpper(index_i, answerStack.get(j).getFaceID());
+			}
 		}
 	}
 
@@ -198,66 +1658,92 @@ public class Folder {
 	 *            all faces.
 	 * @param orMat
 	 *            overlap relation matrix.
-	 * @param paperSize
-	 *            paper size.
+	 * @param crossings
+	 *            faces crossed by each half-edge.
 	 * @return true if there is a face which penetrates the sheet of paper.
 	 */
-	private boolean detectPenetration(final List<OriFace> faces, final int[][] orMat,
-			final double paperSize) {
-		var checked = new boolean[faces.size()][faces.size()];
+	private boolean detectPenetration(final List<OriFace> faces, final OverlapRelation orMat,
+			final HalfedgeFaceCrossingTable crossings) {
+		return findPenetration(faces, orMat, crossings) != null;
+	}
 
-		for (int i = 0; i < faces.size(); i++) {
-			for (var he : faces.get(i).halfedgeIterable()) {
-				var pair = he.getPair();
+	/**
+	 * Detects penetration and learns it as a nogood.
+	 *
+	 * @return true if there is a face which penetrates the sheet of paper.
+	 */
+	private boolean detectPenetration(final List<OriFace> faces, final OverlapRelation orMat,
+			final HalfedgeFaceCrossingTable crossings, final NogoodCache nogoods) {
+		var penetration = findPenetration(faces, orMat, crossings);
+		if (penetration == null) {
+			return false;
+		}
+		nogoods.learn(penetration, orMat);
+		return true;
+	}
+
+	/**
+	 * Finds a penetration in the way of
+	 * {@link #detectPenetration(List, OverlapRelation, HalfedgeFaceCrossingTable)}.
+	 *
+	 * @return IDs of face_i, face_j and face_k of the first penetration found,
+	 *         or null if there is no penetration.
+	 */
+	private int[] findPenetration(final List<OriFace> faces, final OverlapRelation orMat,
+			final HalfedgeFaceCrossingTable crossings) {
+
+		for (int index_i = 0; index_i < faces.size(); index_i++) {
+			var face_i = faces.get(index_i);
+			for (int h = 0; h < face_i.halfedgeCount(); h++) {
+				var pair = face_i.getHalfedge(h).getPair();
 				if (pair == null) {
 					continue;
 				}
 
-				var index_i = he.getFace().getFaceID();
 				var index_j = pair.getFace().getFaceID();
 
-				if (checked[index_i][index_j]) {
+				// each pair of faces is tested once with the first half-edge
+				// between them.
+				if (index_i > index_j || hasPreviousHalfedgeTo(face_i, h, index_j)) {
 					continue;
 				}
 
-				if (orMat[index_i][index_j] != OverlapRelationValues.LOWER &&
-						orMat[index_i][index_j] != OverlapRelationValues.UPPER) {
-					checked[index_i][index_j] = true;
-					checked[index_j][index_i] = true;
+				var relation_ij = orMat.get(index_i, index_j);
+				if (relation_ij != OverlapRelationValues.LOWER &&
+						relation_ij != OverlapRelationValues.UPPER) {
 					continue;
 				}
 
-				var penetrates = IntStream.range(0, faces.size()).parallel()
-						.anyMatch(k -> {
-							var face_k = faces.get(k);
-							var index_k = face_k.getFaceID();
-							if (index_i == index_k || index_j == index_k) {
-								return false;
-							}
-							if (!OriGeomUtil.isLineCrossFace4(face_k, he, paperSize)) {
-								return false;
-							}
-							if (orMat[index_i][index_j] == OverlapRelationValues.LOWER &&
-									orMat[index_i][index_k] == OverlapRelationValues.LOWER &&
-									orMat[index_j][index_k] == OverlapRelationValues.UPPER) {
-								return true;
-							} else if (orMat[index_i][index_j] == OverlapRelationValues.UPPER &&
-									orMat[index_i][index_k] == OverlapRelationValues.UPPER &&
-									orMat[index_j][index_k] == OverlapRelationValues.LOWER) {
-								return true;
-							}
-
-							return false;
-						});
-				if (penetrates) {
-					return true;
+				var crossedFaces = crossings.getCrossedFaces(index_i, h);
+				for (int index_k = crossedFaces.nextSetBit(0); index_k >= 0; index_k = crossedFaces
+						.nextSetBit(index_k + 1)) {
+					if (relation_ij == OverlapRelationValues.LOWER &&
+							orMat.get(index_i, index_k) == OverlapRelationValues.LOWER &&
+							orMat.get(index_j, index_k) == OverlapRelationValues.UPPER) {
+						return new int[] { index_i, index_j, index_k };
+					} else if (relation_ij == OverlapRelationValues.UPPER &&
+							orMat.get(index_i, index_k) == OverlapRelationValues.UPPER &&
+							orMat.get(index_j, index_k) == OverlapRelationValues.LOWER) {
+						return new int[] { index_i, index_j, index_k };
+					}
 				}
-
-				checked[index_i][index_j] = true;
-				checked[index_j][index_i] = true;
 			}
 		}
 
+		return null;
+	}
+
+	/**
+	 * Whether the face has a half-edge before the index whose pair belongs to
+	 * the face of {@code pairFaceID}.
+	 */
+	private boolean hasPreviousHalfedgeTo(final OriFace face, final int halfedgeIndex, final int pairFaceID) {
+		for (int h = 0; h < halfedgeIndex; h++) {
+			var pair = face.getHalfedge(h).getPair();
+			if (pair != null && pair.getFace().getFaceID() == pairFaceID) {
+				return true;
+			}
+		}
 		return false;
 	}
 
@@ -271,7 +1757,7 @@ public class Folder {
 	 *            overlap relation matrix.
 	 * @return true if the order is correct.
 	 */
-	private boolean isCorrectStackOrder(final List<OriFace> answerStack, final int[][] orMat) {
+	private boolean isCorrectStackOrder(final List<OriFace> answerStack, final OverlapRelation orMat) {
 		int size = answerStack.size();
 
 		for (int i = 0; i < size; i++) {
@@ -282,7 +1768,7 @@ public class Folder {
 				// the folded model).
 				// therefore a face with smaller stack_index i should be
 				// UPPER than stack_index j.
-				if (orMat[index_i][index_j] == OverlapRelationValues.LOWER) {
+				if (orMat.get(index_i, index_j) == OverlapRelationValues.LOWER) {
 					return false;
 				}
 			}
@@ -298,15 +1784,63 @@ public class Folder {
 	 *            all faces.
 	 * @param orMat
 	 *            overlap relation matrix
+	 * @param subFacesOfFaces
+	 *            the result of {@link #createSubFacesOfFaces(List)}.
+	 * @param crossings
+	 *            faces crossed by each half-edge for 3-face estimation.
+	 * @param job
+	 *            running job. The estimation stops when the job stops.
+	 * @return true if the conditions contradict each other, i.e., there is no
+	 *         folded state.
+	 */
+	private boolean estimation(final List<OriFace> faces, final OverlapRelation orMat,
+			final BitSet[] subFacesOfFaces, final HalfedgeFaceCrossingTable crossings, final FoldJob job) {
+		var propagator = new OverlapRelationPropagator(faces, subFaces, subFacesOfFaces, condition4s,
+				crossings);
+		var changeCount = propagator.propagate(orMat, job::shouldStop);
+		logger.debug("estimation determined " + changeCount + " relations.");
+		if (propagator.hasConflict()) {
+			logger.debug("estimation found a conflict.");
+		}
+		return propagator.hasConflict();
+	}
+
+	/**
+	 * Creates the index from faces to the subfaces which they contain.
+	 *
+	 * @param faces
+	 *            all faces.
+	 * @return the i-th element has the indices of subfaces in
+	 *         {@link #subFaces} whose parent faces include the face of ID i.
+	 */
+	private BitSet[] createSubFacesOfFaces(final List<OriFace> faces) {
+		var subFacesOfFaces = new BitSet[faces.size()];
+		for (int i = 0; i < subFacesOfFaces.length; i++) {
+			subFacesOfFaces[i] = new BitSet(subFaces.size());
+		}
+		for (int s = 0; s < subFaces.size(); s++) {
+			for (var face : subFaces.get(s).parentFaces) {
+				subFacesOfFaces[face.getFaceID()].set(s);
+			}
+		}
+		return subFacesOfFaces;
+	}
+
+	/**
+	 *
+	 * @param subFacesOfFaces
+	 *            the result of {@link #createSubFacesOfFaces(List)}.
+	 * @param faces
+	 *            faces to be tested.
+	 * @return indices of subfaces whose parent faces include all of the given
+	 *         faces.
 	 */
-	private void estimation(final List<OriFace> faces, final int[][] orMat) {
-		boolean changed;
-		do {
-			changed = false;
-			changed |= estimate_by3faces(faces, orMat);
-			changed |= estimate_by3faces2(orMat);
-			changed |= estimate_by4faces(orMat);
-		} while (changed);
+	private BitSet getSharedSubFaces(final BitSet[] subFacesOfFaces, final OriFace... faces) {
+		var shared = (BitSet) subFacesOfFaces[faces[0].getFaceID()].clone();
+		for (int i = 1; i < faces.length; i++) {
+			shared.and(subFacesOfFaces[faces[i].getFaceID()]);
+		}
+		return shared;
 	}
 
 	/**
@@ -314,28 +1848,35 @@ public class Folder {
 	 * touching edge is covered by face[k] then OR[i][k] = OR[j][k]
 	 *
 	 * @param faces
-	 * @param paperSize
 	 * @param overlapRelation
+	 * @param subFacesOfFaces
+	 *            the result of {@link #createSubFacesOfFaces(List)}.
 	 */
 	private void holdCondition3s(
-			final List<OriFace> faces, final double paperSize, final int[][] overlapRelation) {
+			final List<OriFace> faces, final OverlapRelation overlapRelation,
+			final BitSet[] subFacesOfFaces) {
 
 		for (OriFace f_i : faces) {
-			for (OriHalfedge he : f_i.halfedgeIterable()) {
-				var pair = he.getPair();
+			for (int h = 0; h < f_i.halfedgeCount(); h++) {
+				var pair = f_i.getHalfedge(h).getPair();
 				if (pair == null) {
 					continue;
 				}
 
 				OriFace f_j = pair.getFace();
-				if (overlapRelation[f_i.getFaceID()][f_j.getFaceID()] != OverlapRelationValues.LOWER) {
+				if (overlapRelation.get(f_i.getFaceID(), f_j.getFaceID()) != OverlapRelationValues.LOWER) {
 					continue;
 				}
-				for (OriFace f_k : faces) {
-					if (f_k == f_i || f_k == f_j) {
-						continue;
-					}
-					if (!OriGeomUtil.isLineCrossFace4(f_k, he, paperSize)) {
+
+				var subFacesOfPair = getSharedSubFaces(subFacesOfFaces, f_i, f_j);
+				if (subFacesOfPair.isEmpty()) {
+					continue;
+				}
+
+				var crossedFaces = penetrationCrossings.getCrossedFaces(f_i.getFaceID(), h);
+				for (int k = crossedFaces.nextSetBit(0); k >= 0; k = crossedFaces.nextSetBit(k + 1)) {
+					OriFace f_k = faces.get(k);
+					if (!subFacesOfPair.intersects(subFacesOfFaces[k])) {
 						continue;
 					}
 					StackConditionOf3Faces cond = new StackConditionOf3Faces();
@@ -344,13 +1885,10 @@ public class Folder {
 					cond.other = f_k.getFaceID();
 
 					// Add condition to all subfaces of the 3 faces
-					for (SubFace sub : subFaces) {
-						if (sub.parentFaces.contains(f_i) && sub.parentFaces.contains(f_j)
-								&& sub.parentFaces.contains(f_k)) {
-							sub.condition3s.add(cond);
-						}
+					var sharedSubFaces = getSharedSubFaces(subFacesOfFaces, f_i, f_j, f_k);
+					for (int s = sharedSubFaces.nextSetBit(0); s >= 0; s = sharedSubFaces.nextSetBit(s + 1)) {
+						subFaces.get(s).condition3s.add(cond);
 					}
-
 				}
 			}
 		}
@@ -362,14 +1900,22 @@ public class Folder {
 	 * @param parentFaces
 	 * @param paperSize
 	 * @param overlapRelation
+	 * @param subFacesOfFaces
+	 *            the result of {@link #createSubFacesOfFaces(List)}.
+	 * @param job
+	 *            running job, which is tested for each edge.
 	 */
 	private void holdCondition4s(
-			final List<OriEdge> edges, final int[][] overlapRelation) {
+			final List<OriEdge> edges, final OverlapRelation overlapRelation,
+			final BitSet[] subFacesOfFaces, final FoldJob job) {
 
 		int edgeNum = edges.size();
 		logger.debug("edgeNum = " + edgeNum);
 
 		for (int i = 0; i < edgeNum; i++) {
+			if (job.shouldStop()) {
+				return;
+			}
 			OriEdge e0 = edges.get(i);
 			var e0Left = e0.getLeft();
 			var e0Right = e0.getRight();
@@ -386,28 +1932,29 @@ public class Folder {
 					continue;
 				}
 
+				var e0LeftFace = e0Left.getFace();
+				var e0RightFace = e0Right.getFace();
+				var e1LeftFace = e1Left.getFace();
+				var e1RightFace = e1Right.getFace();
+
+				var sharedSubFaces = getSharedSubFaces(subFacesOfFaces,
+						e0LeftFace, e0RightFace, e1LeftFace, e1RightFace);
+
+				// the condition is used only if a subface has the 4 faces.
+				if (sharedSubFaces.isEmpty()) {
+					continue;
+				}
+
 				if (!GeomUtil.isLineSegmentsOverlap(e0Left.getPosition(),
 						e0Left.getNext().getPosition(),
 						e1Left.getPosition(), e1Left.getNext().getPosition())) {
 					continue;
 				}
 
-				var e0LeftFace = e0Left.getFace();
-				var e0RightFace = e0Right.getFace();
-				var e1LeftFace = e1Left.getFace();
-				var e1RightFace = e1Right.getFace();
-
 				StackConditionOf4Faces cond = new StackConditionOf4Faces();
 				// Add condition to all subfaces of the 4 faces
-				boolean bOverlap = false;
-				for (SubFace sub : subFaces) {
-					if (sub.parentFaces.contains(e0LeftFace)
-							&& sub.parentFaces.contains(e0RightFace)
-							&& sub.parentFaces.contains(e1LeftFace)
-							&& sub.parentFaces.contains(e1RightFace)) {
-						sub.condition4s.add(cond);
-						bOverlap = true;
-					}
+				for (int s = sharedSubFaces.nextSetBit(0); s >= 0; s = sharedSubFaces.nextSetBit(s + 1)) {
+					subFaces.get(s).condition4s.add(cond);
 				}
 
 				var e0LeftFaceID = e0LeftFace.getFaceID();
@@ -415,14 +1962,14 @@ public class Folder {
 				var e1LeftFaceID = e1LeftFace.getFaceID();
 				var e1RightFaceID = e1RightFace.getFaceID();
 
-				if (overlapRelation[e0LeftFaceID][e0RightFaceID] == OverlapRelationValues.UPPER) {
+				if (overlapRelation.get(e0LeftFaceID, e0RightFaceID) == OverlapRelationValues.UPPER) {
 					cond.upper1 = e0RightFaceID;
 					cond.lower1 = e0LeftFaceID;
 				} else {
 					cond.upper1 = e0LeftFaceID;
 					cond.lower1 = e0RightFaceID;
 				}
-				if (overlapRelation[e1LeftFaceID][e1RightFaceID] == OverlapRelationValues.UPPER) {
+				if (overlapRelation.get(e1LeftFaceID, e1RightFaceID) == OverlapRelationValues.UPPER) {
 					cond.upper2 = e1RightFaceID;
 					cond.lower2 = e1LeftFaceID;
 				} else {
@@ -430,235 +1977,9 @@ public class Folder {
 					cond.lower2 = e1RightFaceID;
 				}
 
-				if (bOverlap) {
-					condition4s.add(cond);
-				}
-			}
-		}
-	}
-
-	/**
-	 * Sets {@code value} to {@code orMat[i][j]}. If {@code setsPairAtSameTime}
-	 * is {@code true}, This method sets inversion of {@code value} to
-	 * {@code orMat[j][i]}.
-	 *
-	 * @param orMat
-	 *            overlap relation matrix
-	 * @param i
-	 *            row index
-	 * @param j
-	 *            column index
-	 * @param value
-	 *            a value of {@link OverlapRelationValues}
-	 * @param setsPairAtSameTime
-	 *            {@code true} if {@code orMat[j][i]} should be set to inversion
-	 *            of {@code value} as well.
-	 */
-	private void setOR(final int[][] orMat, final int i, final int j, final int value,
-			final boolean setsPairAtSameTime) {
-		orMat[i][j] = value;
-		if (!setsPairAtSameTime) {
-			return;
-		}
-
-		if (value == OverlapRelationValues.LOWER) {
-			orMat[j][i] = OverlapRelationValues.UPPER;
-		} else {
-			orMat[j][i] = OverlapRelationValues.LOWER;
-		}
-	}
-
-	/**
-	 *
-	 * @param orMat
-	 * @param i
-	 * @param j
-	 * @return true if LOWER and UPPER is set.
-	 */
-	private boolean setLowerValueIfUndefined(final int[][] orMat, final int i, final int j) {
-		if (orMat[i][j] != OverlapRelationValues.UNDEFINED) {
-			return false;
-		}
-		orMat[i][j] = OverlapRelationValues.LOWER;
-		orMat[j][i] = OverlapRelationValues.UPPER;
-		return true;
-	}
-
-	/**
-	 * Determines overlap relation using 4-face condition.
-	 *
-	 * @param orMat
-	 * @return
-	 */
-	private boolean estimate_by4faces(final int[][] orMat) {
-
-		boolean changed = false;
-
-		for (StackConditionOf4Faces cond : condition4s) {
-
-			// if: lower1 > upper2, then: upper1 > upper2, upper1 > lower2,
-			// lower1 > lower2
-			if (orMat[cond.lower1][cond.upper2] == OverlapRelationValues.LOWER) {
-				changed |= setLowerValueIfUndefined(orMat, cond.upper1, cond.upper2);
-				changed |= setLowerValueIfUndefined(orMat, cond.upper1, cond.lower2);
-				changed |= setLowerValueIfUndefined(orMat, cond.lower1, cond.lower2);
-			}
-
-			// if: lower2 > upper1, then: upper2 > upper1, upper2 > lower1,
-			// lower2 > lower1
-			if (orMat[cond.lower2][cond.upper1] == OverlapRelationValues.LOWER) {
-				changed |= setLowerValueIfUndefined(orMat, cond.upper2, cond.upper1);
-				changed |= setLowerValueIfUndefined(orMat, cond.upper2, cond.lower1);
-				changed |= setLowerValueIfUndefined(orMat, cond.lower2, cond.lower1);
-			}
-
-			// if: upper1 > upper2 > lower1, then: upper1 > lower2, lower2 >
-			// lower1
-			if (orMat[cond.upper1][cond.upper2] == OverlapRelationValues.LOWER
-					&& orMat[cond.upper2][cond.lower1] == OverlapRelationValues.LOWER) {
-				changed |= setLowerValueIfUndefined(orMat, cond.upper1, cond.lower2);
-				changed |= setLowerValueIfUndefined(orMat, cond.lower2, cond.lower1);
-			}
-
-			// if: upper1 > lower2 > lower1, then: upper1 > upper2, upper2 >
-			// lower1
-			if (orMat[cond.upper1][cond.lower2] == OverlapRelationValues.LOWER
-					&& orMat[cond.lower2][cond.lower1] == OverlapRelationValues.LOWER) {
-				changed |= setLowerValueIfUndefined(orMat, cond.upper1, cond.upper2);
-				changed |= setLowerValueIfUndefined(orMat, cond.upper2, cond.lower1);
-			}
-
-			// if: upper2 > upper1 > lower2, then: upper2 > lower1, lower1 >
-			// lower2
-			if (orMat[cond.upper2][cond.upper1] == OverlapRelationValues.LOWER
-					&& orMat[cond.upper1][cond.lower2] == OverlapRelationValues.LOWER) {
-				changed |= setLowerValueIfUndefined(orMat, cond.upper2, cond.lower1);
-				changed |= setLowerValueIfUndefined(orMat, cond.lower1, cond.lower2);
-			}
-
-			// if: upper2 > lower1 > lower2, then: upper2 > upper1, upper1 >
-			// lower2
-			if (orMat[cond.upper2][cond.lower1] == OverlapRelationValues.LOWER
-					&& orMat[cond.lower1][cond.lower2] == OverlapRelationValues.LOWER) {
-				changed |= setLowerValueIfUndefined(orMat, cond.upper2, cond.upper1);
-				changed |= setLowerValueIfUndefined(orMat, cond.upper1, cond.lower2);
-			}
-		}
-
-		return changed;
-	}
-
-	/**
-	 * If the subface a>b and b>c then a>c
-	 *
-	 * @param orMat
-	 *            overlap-relation matrix
-	 * @return whether orMat is changed or not.
-	 */
-	private boolean estimate_by3faces2(final int[][] orMat) {
-		boolean bChanged = false;
-
-		for (SubFace sub : subFaces) {
-			while (updateOverlapRelationBy3FaceStack(sub, orMat)) {
-				bChanged = true;
-			}
-		}
-		return bChanged;
-	}
-
-	/**
-	 * Updates {@code orMat} by 3-face stack condition.
-	 *
-	 * @param sub
-	 *            subface.
-	 * @param orMat
-	 *            overlap relation matrix.
-	 * @return true if an update happens.
-	 */
-	private boolean updateOverlapRelationBy3FaceStack(final SubFace sub, final int[][] orMat) {
-
-		for (int i = 0; i < sub.parentFaces.size(); i++) {
-			for (int j = i + 1; j < sub.parentFaces.size(); j++) {
-
-				// search for undetermined relations
-				int index_i = sub.parentFaces.get(i).getFaceID();
-				int index_j = sub.parentFaces.get(j).getFaceID();
-
-				if (orMat[index_i][index_j] == OverlapRelationValues.NO_OVERLAP) {
-					continue;
-				}
-				if (orMat[index_i][index_j] != OverlapRelationValues.UNDEFINED) {
-					continue;
-				}
-				// Find the intermediary face
-				for (int k = 0; k < sub.parentFaces.size(); k++) {
-					if (k == i || k == j) {
-						continue;
-					}
-
-					int index_k = sub.parentFaces.get(k).getFaceID();
-
-					if (orMat[index_i][index_k] == OverlapRelationValues.UPPER
-							&& orMat[index_k][index_j] == OverlapRelationValues.UPPER) {
-						setOR(orMat, index_i, index_j, OverlapRelationValues.UPPER, true);
-						return true;
-					}
-					if (orMat[index_i][index_k] == OverlapRelationValues.LOWER
-							&& orMat[index_k][index_j] == OverlapRelationValues.LOWER) {
-						setOR(orMat, index_i, index_j, OverlapRelationValues.LOWER, true);
-						return true;
-					}
-				}
-			}
-		}
-		return false;
-	}
-
-	/**
-	 * If face[i] and face[j] touching edge is covered by face[k] then OR[i][k]
-	 * = OR[j][k]
-	 *
-	 * @param faces
-	 * @param orMat
-	 * @return whether orMat is changed or not.
-	 */
-	private boolean estimate_by3faces(
-			final List<OriFace> faces,
-			final int[][] orMat) {
-
-		boolean bChanged = false;
-		for (OriFace f_i : faces) {
-			int index_i = f_i.getFaceID();
-			for (OriHalfedge he : f_i.halfedgeIterable()) {
-				var pair = he.getPair();
-				if (pair == null) {
-					continue;
-				}
-				OriFace f_j = pair.getFace();
-				int index_j = f_j.getFaceID();
-
-				for (OriFace f_k : faces) {
-					int index_k = f_k.getFaceID();
-					if (f_k == f_i || f_k == f_j) {
-						continue;
-					}
-					if (!OriGeomUtil.isLineCrossFace(f_k, he, 0.0001)) {
-						continue;
-					}
-					if (orMat[index_i][index_k] != OverlapRelationValues.UNDEFINED
-							&& orMat[index_j][index_k] == OverlapRelationValues.UNDEFINED) {
-						setOR(orMat, index_j, index_k, orMat[index_i][index_k], true);
-						bChanged = true;
-					} else if (orMat[index_j][index_k] != OverlapRelationValues.UNDEFINED
-							&& orMat[index_i][index_k] == OverlapRelationValues.UNDEFINED) {
-						setOR(orMat, index_i, index_k, orMat[index_j][index_k], true);
-						bChanged = true;
-					}
-				}
+				condition4s.add(cond);
 			}
 		}
-
-		return bChanged;
 	}
 
 	private void simpleFoldWithoutZorder(
@@ -672,7 +1993,7 @@ public class Folder {
 			id++;
 		}
 
-		walkFace(faces.get(0));
+		simpleFolder.fold(faces);
 
 		for (OriEdge e : edges) {
 			var sv = e.getStartVertex();
@@ -687,121 +2008,6 @@ public class Folder {
 		}
 	}
 
-	// Recursive method that flips the faces, making the folds
-	private void walkFace(final OriFace face) {
-		face.setMovedByFold(true);
-
-		face.halfedgeStream().forEach(he -> {
-			var pair = he.getPair();
-			if (pair == null) {
-				return;
-			}
-			var pairFace = pair.getFace();
-			if (pairFace.isMovedByFold()) {
-				return;
-			}
-
-			flipFace(pairFace, he);
-			pairFace.setMovedByFold(true);
-			walkFace(pairFace);
-		});
-	}
-
-	private void transformVertex(final Vector2d vertex, final Line preLine,
-			final Vector2d afterOrigin, final Vector2d afterDir) {
-		double param[] = new double[1];
-		double d0 = GeomUtil.distance(vertex, preLine, param);
-		double d1 = param[0];
-
-		Vector2d footV = new Vector2d(afterOrigin);
-		footV.x += d1 * afterDir.x;
-		footV.y += d1 * afterDir.y;
-
-		Vector2d afterDirFromFoot = new Vector2d();
-		afterDirFromFoot.x = afterDir.y;
-		afterDirFromFoot.y = -afterDir.x;
-
-		vertex.x = footV.x + d0 * afterDirFromFoot.x;
-		vertex.y = footV.y + d0 * afterDirFromFoot.y;
-	}
-
-	private void flipFace(final OriFace face, final OriHalfedge baseHe) {
-		var baseHePair = baseHe.getPair();
-		var baseHePairNext = baseHePair.getNext();
-
-		// (Maybe) baseHe.pair keeps the position before folding.
-		Vector2d preOrigin = new Vector2d(baseHePairNext.getPositionWhileFolding());
-		Vector2d afterOrigin = new Vector2d(baseHe.getPositionWhileFolding());
-
-		// Creates the base unit vector for before the rotation
-		Vector2d baseDir = new Vector2d();
-		baseDir.sub(baseHePair.getPositionWhileFolding(), baseHePairNext.getPositionWhileFolding());
-
-		// Creates the base unit vector for after the rotation
-		var baseHeNext = baseHe.getNext();
-		Vector2d afterDir = new Vector2d();
-		afterDir.sub(baseHeNext.getPositionWhileFolding(), baseHe.getPositionWhileFolding());
-		afterDir.normalize();
-
-		Line preLine = new Line(preOrigin, baseDir);
-
-		// move the vertices of the face to keep the face connection
-		// on baseHe
-		face.halfedgeStream().forEach(he -> {
-			transformVertex(he.getPositionWhileFolding(), preLine, afterOrigin, afterDir);
-		});
-
-		face.precreaseStream().forEach(precrease -> {
-			transformVertex(precrease.p0, preLine, afterOrigin, afterDir);
-			transformVertex(precrease.p1, preLine, afterOrigin, afterDir);
-		});
-
-		// Inversion
-		if (face.isFaceFront() == baseHe.getFace().isFaceFront()) {
-			Vector2d ep = baseHeNext.getPositionWhileFolding();
-			Vector2d sp = baseHe.getPositionWhileFolding();
-
-			face.halfedgeStream().forEach(he -> {
-				flipVertex(he.getPositionWhileFolding(), sp, ep);
-			});
-			face.precreaseStream().forEach(precrease -> {
-				flipVertex(precrease.p0, sp, ep);
-				flipVertex(precrease.p1, sp, ep);
-
-			});
-			face.invertFaceFront();
-		}
-	}
-
-	/**
-	 * creates the matrix overlapRelation and fills it with "no overlap" or
-	 * "undefined"
-	 *
-	 * @param faces
-	 * @param paperSize
-	 * @return
-	 */
-	private int[][] createOverlapRelation(final List<OriFace> faces, final double paperSize) {
-
-		int size = faces.size();
-		int[][] overlapRelation = new int[size][size];
-
-		for (int i = 0; i < size; i++) {
-			overlapRelation[i][i] = OverlapRelationValues.NO_OVERLAP;
-			for (int j = i + 1; j < size; j++) {
-				if (OriGeomUtil.isFaceOverlap(faces.get(i), faces.get(j), paperSize * 0.00001)) {
-					overlapRelation[i][j] = OverlapRelationValues.UNDEFINED;
-					overlapRelation[j][i] = OverlapRelationValues.UNDEFINED;
-				} else {
-					overlapRelation[i][j] = OverlapRelationValues.NO_OVERLAP;
-					overlapRelation[j][i] = OverlapRelationValues.NO_OVERLAP;
-				}
-			}
-		}
-
-		return overlapRelation;
-	}
-
 	/**
 	 * Determines the overlap relations by mountain/valley.
 	 *
@@ -809,7 +2015,7 @@ public class Folder {
 	 * @param overlapRelation
 	 */
 	private void determineOverlapRelationByLineType(
-			final List<OriFace> faces, final int[][] overlapRelation) {
+			final List<OriFace> faces, final OverlapRelation overlapRelation) {
 
 		for (OriFace face : faces) {
 			for (OriHalfedge he : face.halfedgeIterable()) {
@@ -822,18 +2028,16 @@ public class Folder {
 				var pairFaceID = pairFace.getFaceID();
 
 				// If the relation is already decided, skip
-				if (overlapRelation[faceID][pairFaceID] == OverlapRelationValues.UPPER
-						|| overlapRelation[faceID][pairFaceID] == OverlapRelationValues.LOWER) {
+				if (overlapRelation.get(faceID, pairFaceID) == OverlapRelationValues.UPPER
+						|| overlapRelation.get(faceID, pairFaceID) == OverlapRelationValues.LOWER) {
 					continue;
 				}
 
 				if ((face.isFaceFront() && he.getType() == OriLine.Type.MOUNTAIN.toInt())
 						|| (!face.isFaceFront() && he.getType() == OriLine.Type.VALLEY.toInt())) {
-					overlapRelation[faceID][pairFaceID] = OverlapRelationValues.UPPER;
-					overlapRelation[pairFaceID][faceID] = OverlapRelationValues.LOWER;
+					overlapRelation.setUpper(faceID, pairFaceID);
 				} else {
-					overlapRelation[faceID][pairFaceID] = OverlapRelationValues.LOWER;
-					overlapRelation[pairFaceID][faceID] = OverlapRelationValues.UPPER;
+					overlapRelation.setLower(faceID, pairFaceID);
 				}
 			}
 		}
@@ -856,7 +2060,13 @@ public class Folder {
 //			face.movedByFold = false;
 //		}
 
-		walkFace(faces, faces.get(0), 0);
+		var movedFaces = simpleFolder.fold(faces);
+
+		// the faces are drawn in the order of the walk.
+		var moved = Collections.newSetFromMap(new IdentityHashMap<OriFace, Boolean>());
+		moved.addAll(movedFaces);
+		faces.removeIf(moved::contains);
+		faces.addAll(movedFaces);
 
 //		Collections.sort(faces, new FaceOrderComparator());
 		model.getSortedFaces().clear();
@@ -869,47 +2079,4 @@ public class Folder {
 
 		folderTool.setFacesOutline(faces);
 	}
-
-	/**
-	 * Make the folds by flipping the faces
-	 *
-	 * @param faces
-	 * @param face
-	 * @param walkFaceCount
-	 */
-	private void walkFace(final List<OriFace> faces, final OriFace face, final int walkFaceCount) {
-		face.setMovedByFold(true);
-		if (walkFaceCount > 1000) {
-			logger.error("walkFace too deep");
-			return;
-		}
-		face.halfedgeStream().forEach(he -> {
-			var pair = he.getPair();
-			if (pair == null) {
-				return;
-			}
-			var pairFace = pair.getFace();
-			if (pairFace.isMovedByFold()) {
-				return;
-			}
-
-			flipFace2(faces, pairFace, he);
-			pairFace.setMovedByFold(true);
-			walkFace(faces, pairFace, walkFaceCount + 1);
-		});
-	}
-
-	private void flipFace2(final List<OriFace> faces, final OriFace face,
-			final OriHalfedge baseHe) {
-		flipFace(face, baseHe);
-		faces.remove(face);
-		faces.add(face);
-	}
-
-	private void flipVertex(final Vector2d vertex, final Vector2d sp, final Vector2d ep) {
-		var v = GeomUtil.getSymmetricPoint(vertex, sp, ep);
-
-		vertex.x = v.x;
-		vertex.y = v.y;
-	}
 }
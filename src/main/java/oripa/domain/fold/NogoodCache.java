@@ -0,0 +1,175 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import oripa.domain.fold.halfedge.OriFace;
+import oripa.domain.fold.origeom.OverlapRelation;
+import oripa.domain.fold.origeom.OverlapRelationValues;
+
+/**
+ * Nogoods learned from the penetrations found by the layer ordering search.
+ * A penetration of face_k between face_i and its neighbor face_j is caused
+ * only by the three relations of the faces, so the three relations are a
+ * minimal conflicting set. A candidate stack is rejected before it is set to
+ * the matrix if the stack completes a known nogood. The nogoods are kept in
+ * LRU order and the least recently used one is evicted when the capacity is
+ * exceeded.
+ *
+ * This class is not thread-safe.
+ */
+class NogoodCache {
+	private final int capacity;
+	private final NogoodStatistics statistics;
+
+	/**
+	 * Nogoods encoded by {@link #toKey(int, int, int, int)} in LRU order.
+	 */
+	private final LinkedHashMap<Long, Boolean> nogoods;
+
+	/**
+	 * the position of each face in the stack being tested, or -1.
+	 */
+	private final int[] stackPositions;
+
+	/**
+	 * @param capacity
+	 *            the maximum number of nogoods. 0 disables learning.
+	 * @param faceCount
+	 *            the number of faces.
+	 * @param statistics
+	 *            statistics to be updated.
+	 */
+	NogoodCache(final int capacity, final int faceCount, final NogoodStatistics statistics) {
+		this.capacity = capacity;
+		this.statistics = statistics;
+
+		nogoods = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Long, Boolean> eldest) {
+				if (size() > NogoodCache.this.capacity) {
+					statistics.evicted();
+					return true;
+				}
+				return false;
+			}
+		};
+
+		stackPositions = new int[capacity == 0 ? 0 : faceCount];
+		Arrays.fill(stackPositions, -1);
+	}
+
+	/**
+	 * Records the penetration found by the layer ordering search.
+	 *
+	 * @param penetration
+	 *            IDs of face_i, face_j and face_k.
+	 * @param orMat
+	 *            the matrix where the penetration is found.
+	 */
+	void learn(final int[] penetration, final OverlapRelation orMat) {
+		if (capacity == 0) {
+			return;
+		}
+		var key = toKey(penetration[0], penetration[1], penetration[2],
+				orMat.get(penetration[0], penetration[1]));
+		if (nogoods.put(key, Boolean.TRUE) == null) {
+			statistics.learned();
+		}
+	}
+
+	/**
+	 * Whether setting the stack to the matrix completes a known nogood. The
+	 * stack should be consistent with the matrix.
+	 *
+	 * @param answerStack
+	 *            candidate stack whose first face is the top.
+	 * @param orMat
+	 *            current matrix.
+	 * @return true if the stack causes a known penetration.
+	 */
+	boolean isRejected(final List<OriFace> answerStack, final OverlapRelation orMat) {
+		if (nogoods.isEmpty()) {
+			return false;
+		}
+
+		for (int p = 0; p < answerStack.size(); p++) {
+			stackPositions[answerStack.get(p).getFaceID()] = p;
+		}
+
+		Long hitKey = null;
+		for (var key : nogoods.keySet()) {
+			if (isCompleted(key, orMat)) {
+				hitKey = key;
+				break;
+			}
+		}
+
+		for (var face : answerStack) {
+			stackPositions[face.getFaceID()] = -1;
+		}
+
+		if (hitKey == null) {
+			return false;
+		}
+		// refresh the LRU order.
+		nogoods.get(hitKey);
+		statistics.hit();
+		return true;
+	}
+
+	private boolean isCompleted(final long key, final OverlapRelation orMat) {
+		int i = (int) (key >>> 41);
+		int j = (int) ((key >>> 21) & 0xFFFFF);
+		int k = (int) ((key >>> 1) & 0xFFFFF);
+		int relation_ij = (key & 1) == 1 ? OverlapRelationValues.UPPER : OverlapRelationValues.LOWER;
+		int relation_ji = (key & 1) == 1 ? OverlapRelationValues.LOWER : OverlapRelationValues.UPPER;
+
+		return get(i, j, orMat) == relation_ij
+				&& get(i, k, orMat) == relation_ij
+				&& get(j, k, orMat) == relation_ji;
+	}
+
+	/**
+	 * @return the relation after the stack is set.
+	 */
+	private int get(final int i, final int j, final OverlapRelation orMat) {
+		int p_i = stackPositions[i];
+		int p_j = stackPositions[j];
+		if (p_i >= 0 && p_j >= 0) {
+			return p_i < p_j ? OverlapRelationValues.UPPER : OverlapRelationValues.LOWER;
+		}
+		return orMat.get(i, j);
+	}
+
+	/**
+	 * Encodes the penetration of face_k between face_i and face_j whose
+	 * relation is {@code relation_ij}.
+	 */
+	private long toKey(final int i, final int j, final int k, final int relation_ij) {
+		return ((long) i << 41) | ((long) j << 21) | ((long) k << 1)
+				| (relation_ij == OverlapRelationValues.UPPER ? 1 : 0);
+	}
+}
@@ -0,0 +1,70 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of the nogoods learned by the layer ordering search. The
+ * counters can be updated by multiple threads.
+ */
+public class NogoodStatistics {
+	private final LongAdder learnedCount = new LongAdder();
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder evictedCount = new LongAdder();
+
+	void learned() {
+		learnedCount.increment();
+	}
+
+	void hit() {
+		hitCount.increment();
+	}
+
+	void evicted() {
+		evictedCount.increment();
+	}
+
+	/**
+	 * @return the number of nogoods recorded.
+	 */
+	public long getLearnedCount() {
+		return learnedCount.sum();
+	}
+
+	/**
+	 * @return the number of candidate stacks rejected by known nogoods.
+	 */
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	/**
+	 * @return the number of nogoods dropped to keep the capacity.
+	 */
+	public long getEvictedCount() {
+		return evictedCount.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "nogoods learned = " + getLearnedCount() + ", hits = " + getHitCount()
+				+ ", evicted = " + getEvictedCount();
+	}
+}
@@ -0,0 +1,402 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import oripa.domain.fold.halfedge.OriFace;
+import oripa.domain.fold.origeom.HalfedgeFaceCrossingTable;
+import oripa.domain.fold.origeom.OverlapRelation;
+import oripa.domain.fold.origeom.OverlapRelationValues;
+import oripa.domain.fold.origeom.TransitiveClosure;
+import oripa.domain.fold.stackcond.StackConditionOf4Faces;
+import oripa.domain.fold.subface.SubFace;
+
+/**
+ * Determines overlap relations by necessary conditions in AC-3 style. Each
+ * cell of the matrix which has got a value is put on a worklist, and only the
+ * conditions mentioning the cell are tested when it is taken out. The
+ * subfaces sharing the cell are marked and closed by
+ * {@link TransitiveClosure} when the worklist becomes empty. The
+ * conditions are:
+ * <ul>
+ * <li>3-face condition: if face_i and face_j touching edge is covered by
+ * face_k then OR[i][k] = OR[j][k].</li>
+ * <li>transitivity in subface: if a > b and b > c in a subface then a >
+ * c.</li>
+ * <li>4-face condition given by {@link StackConditionOf4Faces}.</li>
+ * </ul>
+ * A condition which derives the opposite of a defined cell is a conflict. The
+ * propagation stops at the first conflict since the matrix has no folded
+ * state then.
+ */
+public class OverlapRelationPropagator {
+	private final int faceCount;
+	private final BitSet[] subFacesOfFaces;
+
+	/**
+	 * IDs of parent faces of each subface.
+	 */
+	private final int[][] parentFaceIDs;
+
+	/**
+	 * 3-face conditions for each cell. An element {src, dest} means that
+	 * the value of cell src should be copied to cell dest. Cells are encoded
+	 * by {@link #toCell(int, int)}.
+	 */
+	private final Map<Long, List<long[]>> equalCells = new HashMap<>();
+
+	/**
+	 * 4-face conditions which refer each cell.
+	 */
+	private final Map<Long, List<StackConditionOf4Faces>> condition4sOfCells = new HashMap<>();
+
+	private final ArrayDeque<Long> worklist = new ArrayDeque<>();
+
+	/**
+	 * subfaces whose closure should be computed again.
+	 */
+	private final BitSet dirtySubFaces = new BitSet();
+
+	private final TransitiveClosure closure = new TransitiveClosure();
+
+	private boolean conflicted = false;
+
+	/**
+	 *
+	 * @param faces
+	 *            all faces after fold.
+	 * @param subFaces
+	 *            subfaces.
+	 * @param subFacesOfFaces
+	 *            the i-th element has the indices of subfaces whose parent
+	 *            faces include the face of ID i.
+	 * @param condition4s
+	 *            4-face conditions.
+	 * @param crossings
+	 *            faces crossed by each half-edge for 3-face condition.
+	 */
+	public OverlapRelationPropagator(final List<OriFace> faces, final List<SubFace> subFaces,
+			final BitSet[] subFacesOfFaces, final List<StackConditionOf4Faces> condition4s,
+			final HalfedgeFaceCrossingTable crossings) {
+		this.faceCount = faces.size();
+		this.subFacesOfFaces = subFacesOfFaces;
+
+		parentFaceIDs = new int[subFaces.size()][];
+		for (int s = 0; s < parentFaceIDs.length; s++) {
+			parentFaceIDs[s] = subFaces.get(s).parentFaces.stream()
+					.mapToInt(OriFace::getFaceID)
+					.toArray();
+		}
+
+		for (var face : faces) {
+			int index_i = face.getFaceID();
+			for (int h = 0; h < face.halfedgeCount(); h++) {
+				var pair = face.getHalfedge(h).getPair();
+				if (pair == null) {
+					continue;
+				}
+				int index_j = pair.getFace().getFaceID();
+
+				var crossedFaces = crossings.getCrossedFaces(index_i, h);
+				for (int index_k = crossedFaces.nextSetBit(0); index_k >= 0; index_k = crossedFaces
+						.nextSetBit(index_k + 1)) {
+					var cell_ik = toCell(index_i, index_k);
+					var cell_jk = toCell(index_j, index_k);
+					addEqualCells(cell_ik, cell_jk);
+					addEqualCells(cell_jk, cell_ik);
+				}
+			}
+		}
+
+		for (var cond : condition4s) {
+			addCondition4(cond.lower1, cond.upper2, cond);
+			addCondition4(cond.lower2, cond.upper1, cond);
+			addCondition4(cond.upper1, cond.upper2, cond);
+			addCondition4(cond.lower1, cond.lower2, cond);
+		}
+	}
+
+	private void addEqualCells(final long src, final long dest) {
+		equalCells.computeIfAbsent(toKey(src), key -> new ArrayList<>()).add(new long[] { src, dest });
+	}
+
+	private void addCondition4(final int i, final int j, final StackConditionOf4Faces cond) {
+		condition4sOfCells.computeIfAbsent(toKey(toCell(i, j)), key -> new ArrayList<>()).add(cond);
+	}
+
+	/**
+	 * Fills undefined cells of {@code orMat} by the conditions. The result
+	 * should be discarded if {@link #hasConflict()} returns true after this
+	 * method.
+	 *
+	 * @param orMat
+	 *            overlap relation matrix.
+	 * @return the number of cells which are changed.
+	 */
+	public int propagate(final OverlapRelation orMat) {
+		return propagate(orMat, () -> false);
+	}
+
+	/**
+	 * Fills undefined cells of {@code orMat} as
+	 * {@link #propagate(OverlapRelation)} unless {@code stopped} requests to
+	 * stop. A stopped propagation leaves the matrix partially filled.
+	 *
+	 * @param orMat
+	 *            overlap relation matrix.
+	 * @param stopped
+	 *            tested for each cell and subface taken by the propagation.
+	 * @return the number of cells which are changed.
+	 */
+	public int propagate(final OverlapRelation orMat, final BooleanSupplier stopped) {
+		conflicted = false;
+		worklist.clear();
+		enqueueInitialCells(orMat);
+
+		// a closure needs 3 faces at least.
+		dirtySubFaces.clear();
+		for (int s = 0; s < parentFaceIDs.length; s++) {
+			if (parentFaceIDs[s].length >= 3) {
+				dirtySubFaces.set(s);
+			}
+		}
+
+		int changeCount = 0;
+		while (!conflicted && (!worklist.isEmpty() || !dirtySubFaces.isEmpty())) {
+			while (!conflicted && !worklist.isEmpty()) {
+				if (stopped.getAsBoolean()) {
+					return changeCount;
+				}
+				long cell = worklist.poll();
+				int i = (int) (cell / faceCount);
+				int j = (int) (cell % faceCount);
+
+				changeCount += propagateBy3Faces(orMat, cell);
+				markSubFacesDirty(orMat, i, j);
+				changeCount += propagateBy4Faces(orMat, cell);
+			}
+
+			for (int s = dirtySubFaces.nextSetBit(0); s >= 0 && !conflicted; s = dirtySubFaces
+					.nextSetBit(s + 1)) {
+				if (stopped.getAsBoolean()) {
+					return changeCount;
+				}
+				dirtySubFaces.clear(s);
+				changeCount += propagateByTransitivity(orMat, s);
+			}
+		}
+		return changeCount;
+	}
+
+	/**
+	 * @return true if the last {@link #propagate(OverlapRelation)} has found
+	 *         a condition which contradicts the matrix, i.e., the matrix has
+	 *         no folded state.
+	 */
+	public boolean hasConflict() {
+		return conflicted;
+	}
+
+	/**
+	 * Puts the defined cells which are mentioned by the conditions.
+	 */
+	private void enqueueInitialCells(final OverlapRelation orMat) {
+		var keys = new HashSet<Long>();
+		keys.addAll(equalCells.keySet());
+		keys.addAll(condition4sOfCells.keySet());
+
+		keys.stream()
+				.sorted()
+				.filter(key -> !orMat.isUndefined((int) (key / faceCount), (int) (key % faceCount)))
+				.forEach(worklist::add);
+	}
+
+	private int propagateBy3Faces(final OverlapRelation orMat, final long cell) {
+		var links = equalCells.get(toKey(cell));
+		if (links == null) {
+			return 0;
+		}
+		int changeCount = 0;
+		for (var link : links) {
+			int value = get(orMat, link[0]);
+			if (value == OverlapRelationValues.UNDEFINED) {
+				continue;
+			}
+			int i = (int) (link[1] / faceCount);
+			int j = (int) (link[1] % faceCount);
+			changeCount += setIfUndefined(orMat, i, j, value);
+		}
+		return changeCount;
+	}
+
+	/**
+	 * Marks the subfaces which have face_i and face_j if the cell (i, j) can
+	 * change their closures.
+	 */
+	private void markSubFacesDirty(final OverlapRelation orMat, final int i, final int j) {
+		int value = orMat.get(i, j);
+		if (value != OverlapRelationValues.UPPER && value != OverlapRelationValues.LOWER) {
+			return;
+		}
+
+		var sharedSubFaces = (BitSet) subFacesOfFaces[i].clone();
+		sharedSubFaces.and(subFacesOfFaces[j]);
+		for (int s = sharedSubFaces.nextSetBit(0); s >= 0; s = sharedSubFaces.nextSetBit(s + 1)) {
+			if (parentFaceIDs[s].length >= 3) {
+				dirtySubFaces.set(s);
+			}
+		}
+	}
+
+	/**
+	 * Applies the transitivity in the subface. The new cells are put on the
+	 * worklist and mark the other subfaces sharing them. A cycle in the
+	 * subface is a conflict.
+	 */
+	private int propagateByTransitivity(final OverlapRelation orMat, final int subFaceIndex) {
+		int[] changeCount = { 0 };
+		var acyclic = closure.close(parentFaceIDs[subFaceIndex], orMat,
+				(i, j) -> changeCount[0] += setIfUndefined(orMat, i, j, OverlapRelationValues.UPPER));
+		if (!acyclic) {
+			conflicted = true;
+		}
+		return changeCount[0];
+	}
+
+	private int propagateBy4Faces(final OverlapRelation orMat, final long cell) {
+		var conds = condition4sOfCells.get(toKey(cell));
+		if (conds == null) {
+			return 0;
+		}
+		int changeCount = 0;
+		for (var cond : conds) {
+			changeCount += applyCondition4(orMat, cond);
+		}
+		return changeCount;
+	}
+
+	private int applyCondition4(final OverlapRelation orMat, final StackConditionOf4Faces cond) {
+		int changeCount = 0;
+
+		// if: lower1 > upper2, then: upper1 > upper2, upper1 > lower2,
+		// lower1 > lower2
+		if (orMat.isLower(cond.lower1, cond.upper2)) {
+			changeCount += setLowerIfUndefined(orMat, cond.upper1, cond.upper2);
+			changeCount += setLowerIfUndefined(orMat, cond.upper1, cond.lower2);
+			changeCount += setLowerIfUndefined(orMat, cond.lower1, cond.lower2);
+		}
+
+		// if: lower2 > upper1, then: upper2 > upper1, upper2 > lower1,
+		// lower2 > lower1
+		if (orMat.isLower(cond.lower2, cond.upper1)) {
+			changeCount += setLowerIfUndefined(orMat, cond.upper2, cond.upper1);
+			changeCount += setLowerIfUndefined(orMat, cond.upper2, cond.lower1);
+			changeCount += setLowerIfUndefined(orMat, cond.lower2, cond.lower1);
+		}
+
+		// if: upper1 > upper2 > lower1, then: upper1 > lower2, lower2 >
+		// lower1
+		if (orMat.isLower(cond.upper1, cond.upper2)
+				&& orMat.isLower(cond.upper2, cond.lower1)) {
+			changeCount += setLowerIfUndefined(orMat, cond.upper1, cond.lower2);
+			changeCount += setLowerIfUndefined(orMat, cond.lower2, cond.lower1);
+		}
+
+		// if: upper1 > lower2 > lower1, then: upper1 > upper2, upper2 >
+		// lower1
+		if (orMat.isLower(cond.upper1, cond.lower2)
+				&& orMat.isLower(cond.lower2, cond.lower1)) {
+			changeCount += setLowerIfUndefined(orMat, cond.upper1, cond.upper2);
+			changeCount += setLowerIfUndefined(orMat, cond.upper2, cond.lower1);
+		}
+
+		// if: upper2 > upper1 > lower2, then: upper2 > lower1, lower1 >
+		// lower2
+		if (orMat.isLower(cond.upper2, cond.upper1)
+				&& orMat.isLower(cond.upper1, cond.lower2)) {
+			changeCount += setLowerIfUndefined(orMat, cond.upper2, cond.lower1);
+			changeCount += setLowerIfUndefined(orMat, cond.lower1, cond.lower2);
+		}
+
+		// if: upper2 > lower1 > lower2, then: upper2 > upper1, upper1 >
+		// lower2
+		if (orMat.isLower(cond.upper2, cond.lower1)
+				&& orMat.isLower(cond.lower1, cond.lower2)) {
+			changeCount += setLowerIfUndefined(orMat, cond.upper2, cond.upper1);
+			changeCount += setLowerIfUndefined(orMat, cond.upper1, cond.lower2);
+		}
+
+		return changeCount;
+	}
+
+	private int setLowerIfUndefined(final OverlapRelation orMat, final int i, final int j) {
+		return setIfUndefined(orMat, i, j, OverlapRelationValues.LOWER);
+	}
+
+	/**
+	 * Sets the value and puts the cell on the worklist if the cell is
+	 * undefined. Marks a conflict if the cell has the opposite order.
+	 *
+	 * @return 1 if the cell is changed, otherwise 0.
+	 */
+	private int setIfUndefined(final OverlapRelation orMat, final int i, final int j, final int value) {
+		if (!orMat.isUndefined(i, j)) {
+			if (isOpposite(orMat.get(i, j), value)) {
+				conflicted = true;
+			}
+			return 0;
+		}
+		orMat.set(i, j, value);
+		worklist.add(toCell(i, j));
+		return 1;
+	}
+
+	private boolean isOpposite(final int value0, final int value1) {
+		return (value0 == OverlapRelationValues.UPPER && value1 == OverlapRelationValues.LOWER)
+				|| (value0 == OverlapRelationValues.LOWER && value1 == OverlapRelationValues.UPPER);
+	}
+
+	private int get(final OverlapRelation orMat, final long cell) {
+		return orMat.get((int) (cell / faceCount), (int) (cell % faceCount));
+	}
+
+	/**
+	 * Encodes the cell (i, j) with its direction.
+	 */
+	private long toCell(final int i, final int j) {
+		return (long) i * faceCount + j;
+	}
+
+	/**
+	 * Encodes the cell without its direction.
+	 */
+	private long toKey(final long cell) {
+		int i = (int) (cell / faceCount);
+		int j = (int) (cell % faceCount);
+		return i < j ? cell : toCell(j, i);
+	}
+}
@@ -0,0 +1,365 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import oripa.domain.fold.halfedge.OriFace;
+import oripa.domain.fold.origeom.HalfedgeFaceCrossingTable;
+import oripa.domain.fold.origeom.OverlapRelation;
+import oripa.domain.fold.origeom.OverlapRelationValues;
+import oripa.domain.fold.sat.CdclSolver;
+import oripa.domain.fold.subface.SubFace;
+
+/**
+ * Layer ordering search by SAT. Each overlap relation of parent faces of an
+ * undecided subface is a variable which is true if the face of the smaller ID
+ * is UPPER. The clauses are
+ * <ul>
+ * <li>transitivity of the stack of each subface,</li>
+ * <li>stack conditions of 3 faces and 4 faces of each subface, and</li>
+ * <li>the penetration test, which forbids a face between two faces connected
+ * by a crease.</li>
+ * </ul>
+ * The relations fixed by mountain/valley assignment and the estimation are
+ * constants. The models are enumerated by adding blocking clauses and are
+ * sorted in the order of the backtracking search.
+ */
+class SatLayerOrderingSolver {
+	private static final int TRUE = Integer.MAX_VALUE;
+	private static final int FALSE = -TRUE;
+
+	private final List<OriFace> faces;
+	private final List<SubFace> subFaces;
+	private final HalfedgeFaceCrossingTable crossings;
+
+	private final CdclSolver solver = new CdclSolver();
+
+	/**
+	 * variable of each undefined cell (i, j) with i < j.
+	 */
+	private final Map<Long, Integer> variables = new HashMap<>();
+	private final List<int[]> cellsOfVariables = new ArrayList<>();
+
+	private OverlapRelation orMat;
+
+	/**
+	 *
+	 * @param faces
+	 *            all faces of the origami model.
+	 * @param subFaces
+	 *            subfaces after the candidate stacks are computed, in the
+	 *            order of the search.
+	 * @param crossings
+	 *            faces crossed by each half-edge for the penetration test.
+	 */
+	public SatLayerOrderingSolver(final List<OriFace> faces, final List<SubFace> subFaces,
+			final HalfedgeFaceCrossingTable crossings) {
+		this.faces = faces;
+		this.subFaces = subFaces;
+		this.crossings = crossings;
+	}
+
+	/**
+	 * Enumerates all solutions.
+	 *
+	 * @param orMat
+	 *            overlap relation matrix after estimation. It is not
+	 *            changed.
+	 * @param job
+	 *            a running job. Each model counts as a search node.
+	 * @return solutions in the same order as the backtracking search. If the
+	 *         job stops, the solutions found so far in that order.
+	 */
+	public List<OverlapRelation> solve(final OverlapRelation orMat, final FoldJob job) {
+		this.orMat = orMat;
+
+		if (!encode()) {
+			return List.of();
+		}
+
+		var undecidedSubFaces = subFaces.stream()
+				.filter(sub -> !sub.allFaceOrderDecided)
+				.collect(Collectors.toList());
+
+		var solutions = new ArrayList<IndexedModel>();
+
+		while (solver.solve()) {
+			var model = new boolean[cellsOfVariables.size()];
+			var blockingClause = new int[model.length];
+			for (int v = 1; v <= model.length; v++) {
+				model[v - 1] = solver.getValue(v);
+				blockingClause[v - 1] = model[v - 1] ? -v : v;
+			}
+
+			var stacks = new ArrayList<Integer>();
+			for (var sub : undecidedSubFaces) {
+				stacks.addAll(createStack(sub, model));
+			}
+			if (!job.solutionFound()) {
+				break;
+			}
+			solutions.add(new IndexedModel(stacks.stream().mapToInt(Integer::intValue).toArray(), model));
+
+			if (job.nodeVisited() || !solver.addClause(blockingClause)) {
+				break;
+			}
+		}
+
+		return solutions.stream()
+				.sorted()
+				.map(this::toOverlapRelation)
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * @return the number of decisions of the solver.
+	 */
+	public long getDecisionCount() {
+		return solver.getDecisionCount();
+	}
+
+	/**
+	 * @return the number of variables.
+	 */
+	public int getVariableCount() {
+		return solver.getVariableCount();
+	}
+
+	/**
+	 * @return false if the clauses are found unsatisfiable while encoding.
+	 */
+	private boolean encode() {
+		var undecidedSubFaces = subFaces.stream()
+				.filter(sub -> !sub.allFaceOrderDecided)
+				.collect(Collectors.toList());
+
+		for (var sub : undecidedSubFaces) {
+			var parentFaces = sub.parentFaces;
+			for (int i = 0; i < parentFaces.size(); i++) {
+				for (int j = i + 1; j < parentFaces.size(); j++) {
+					createVariableIfUndefined(parentFaces.get(i).getFaceID(), parentFaces.get(j).getFaceID());
+				}
+			}
+		}
+
+		boolean satisfiable = true;
+
+		// a stack has no cycle of 3 faces.
+		var triples = new HashSet<List<Integer>>();
+		for (var sub : undecidedSubFaces) {
+			var ids = sub.parentFaces.stream()
+					.mapToInt(OriFace::getFaceID)
+					.sorted()
+					.toArray();
+			for (int i = 0; i < ids.length; i++) {
+				for (int j = i + 1; j < ids.length; j++) {
+					for (int k = j + 1; k < ids.length; k++) {
+						if (!triples.add(List.of(ids[i], ids[j], ids[k]))) {
+							continue;
+						}
+						satisfiable &= addClause(-above(ids[i], ids[j]), -above(ids[j], ids[k]),
+								-above(ids[k], ids[i]));
+						satisfiable &= addClause(-above(ids[i], ids[k]), -above(ids[k], ids[j]),
+								-above(ids[j], ids[i]));
+					}
+				}
+			}
+		}
+
+		for (var sub : undecidedSubFaces) {
+			// the other face should not be between lower and upper.
+			for (var cond : sub.condition3s) {
+				satisfiable &= addClause(-above(cond.lower, cond.other), -above(cond.other, cond.upper));
+			}
+			// aba or bab are impossible.
+			for (var cond : sub.condition4s) {
+				satisfiable &= addClause(-above(cond.lower2, cond.lower1), -above(cond.lower1, cond.upper2),
+						-above(cond.upper2, cond.upper1));
+				satisfiable &= addClause(-above(cond.lower1, cond.lower2), -above(cond.lower2, cond.upper1),
+						-above(cond.upper1, cond.upper2));
+			}
+		}
+
+		satisfiable &= encodePenetration();
+
+		return satisfiable;
+	}
+
+	/**
+	 * Forbids the patterns which {@link Folder} detects as penetration.
+	 */
+	private boolean encodePenetration() {
+		boolean satisfiable = true;
+		for (int index_i = 0; index_i < faces.size(); index_i++) {
+			var face_i = faces.get(index_i);
+			for (int h = 0; h < face_i.halfedgeCount(); h++) {
+				var pair = face_i.getHalfedge(h).getPair();
+				if (pair == null) {
+					continue;
+				}
+				var index_j = pair.getFace().getFaceID();
+				// the same as Folder, only the first half-edge between the
+				// faces is tested.
+				if (index_i > index_j || hasPreviousHalfedgeTo(face_i, h, index_j)) {
+					continue;
+				}
+				var crossedFaces = crossings.getCrossedFaces(index_i, h);
+				for (int index_k = crossedFaces.nextSetBit(0); index_k >= 0; index_k = crossedFaces
+						.nextSetBit(index_k + 1)) {
+					// face_i LOWER face_j, face_i LOWER face_k and face_j
+					// UPPER face_k
+					satisfiable &= addClause(-above(index_j, index_i), -above(index_k, index_i),
+							-above(index_j, index_k));
+					// and the opposite
+					satisfiable &= addClause(-above(index_i, index_j), -above(index_i, index_k),
+							-above(index_k, index_j));
+				}
+			}
+		}
+		return satisfiable;
+	}
+
+	private boolean hasPreviousHalfedgeTo(final OriFace face, final int halfedgeIndex, final int pairFaceID) {
+		for (int h = 0; h < halfedgeIndex; h++) {
+			var pair = face.getHalfedge(h).getPair();
+			if (pair != null && pair.getFace().getFaceID() == pairFaceID) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void createVariableIfUndefined(final int index_i, final int index_j) {
+		var value = orMat.get(index_i, index_j);
+		if (value == OverlapRelationValues.UPPER || value == OverlapRelationValues.LOWER) {
+			return;
+		}
+		var i = Math.min(index_i, index_j);
+		var j = Math.max(index_i, index_j);
+		variables.computeIfAbsent(toKey(i, j), key -> {
+			cellsOfVariables.add(new int[] { i, j });
+			return solver.newVariable();
+		});
+	}
+
+	/**
+	 * @return the literal which is true if face_i is UPPER than face_j, or
+	 *         {@link #TRUE} or {@link #FALSE} if the relation is fixed. A
+	 *         fixed relation other than UPPER and LOWER is FALSE in both
+	 *         directions as the penetration test ignores it.
+	 */
+	private int above(final int index_i, final int index_j) {
+		var variable = variables.get(toKey(Math.min(index_i, index_j), Math.max(index_i, index_j)));
+		if (variable != null) {
+			return index_i < index_j ? variable : -variable;
+		}
+		return orMat.isUpper(index_i, index_j) ? TRUE : FALSE;
+	}
+
+	/**
+	 * Adds the clause without the fixed literals.
+	 *
+	 * @return false if the clauses have become unsatisfiable.
+	 */
+	private boolean addClause(final int... literals) {
+		var clause = new ArrayList<Integer>();
+		for (var literal : literals) {
+			if (literal == TRUE) {
+				return true;
+			}
+			if (literal == FALSE) {
+				continue;
+			}
+			clause.add(literal);
+		}
+		return solver.addClause(clause.stream().mapToInt(Integer::intValue).toArray());
+	}
+
+	private long toKey(final int i, final int j) {
+		return (long) i * faces.size() + j;
+	}
+
+	/**
+	 * @return indices of parent faces from the top of the stack.
+	 */
+	private List<Integer> createStack(final SubFace sub, final boolean[] model) {
+		var parentFaces = sub.parentFaces;
+
+		// the number of faces above determines the position in the stack.
+		var stack = new Integer[parentFaces.size()];
+		for (int i = 0; i < parentFaces.size(); i++) {
+			int aboveCount = 0;
+			for (int j = 0; j < parentFaces.size(); j++) {
+				if (i != j && isAbove(parentFaces.get(j).getFaceID(), parentFaces.get(i).getFaceID(), model)) {
+					aboveCount++;
+				}
+			}
+			stack[aboveCount] = i;
+		}
+		return Arrays.asList(stack);
+	}
+
+	private boolean isAbove(final int index_i, final int index_j, final boolean[] model) {
+		var literal = above(index_i, index_j);
+		if (literal == TRUE || literal == FALSE) {
+			return literal == TRUE;
+		}
+		return model[Math.abs(literal) - 1] == (literal > 0);
+	}
+
+	private OverlapRelation toOverlapRelation(final IndexedModel solution) {
+		var overlapRelation = orMat.clone();
+		for (int v = 0; v < cellsOfVariables.size(); v++) {
+			var cell = cellsOfVariables.get(v);
+			if (solution.model[v]) {
+				overlapRelation.setUpper(cell[0], cell[1]);
+			} else {
+				overlapRelation.setLower(cell[0], cell[1]);
+			}
+		}
+		return overlapRelation;
+	}
+
+	/**
+	 * A model with the stacks of the subfaces. The candidate stacks are
+	 * generated in lexicographic order of the indices of parent faces, so
+	 * sorting by the stacks reproduces the order of the backtracking search.
+	 */
+	private static class IndexedModel implements Comparable<IndexedModel> {
+		private final int[] stacks;
+		private final boolean[] model;
+
+		IndexedModel(final int[] stacks, final boolean[] model) {
+			this.stacks = stacks;
+			this.model = model;
+		}
+
+		@Override
+		public int compareTo(final IndexedModel o) {
+			return Arrays.compare(stacks, o.stacks);
+		}
+	}
+}
@@ -0,0 +1,167 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import javax.vecmath.Vector2d;
+
+import oripa.domain.fold.halfedge.OriFace;
+
+/**
+ * Moves the faces to the positions after fold without layer ordering. Each
+ * face is given an affine transform in breadth-first order from the first
+ * face: the transform of a face is the one of its parent composed with the
+ * reflection across their shared edge. The transforms are applied to the
+ * positions of the half-edges and the precreases afterwards, in parallel
+ * across the faces.
+ *
+ * The transforms of a flat foldable pattern don't depend on the order of the
+ * walk. For other patterns, the positions are determined by the spanning tree
+ * of this walk.
+ */
+class SimpleFolder {
+	/**
+	 * the size of an affine transform {a, b, c, d, e, f}, which maps (x, y)
+	 * to (a * x + b * y + c, d * x + e * y + f).
+	 */
+	private static final int MATRIX_SIZE = 6;
+
+	/**
+	 * Folds the faces connected to the first face of {@code faces}. The first
+	 * face stays at its position. The faces which have already been moved by
+	 * fold are not moved again.
+	 *
+	 * @param faces
+	 *            all faces of the model, whose half-edges have the positions
+	 *            before fold as
+	 *            {@link oripa.domain.fold.halfedge.OriHalfedge#getPositionWhileFolding()}.
+	 * @return moved faces in the order of the walk. The first face is not
+	 *         included.
+	 */
+	List<OriFace> fold(final List<OriFace> faces) {
+		var root = faces.get(0);
+		root.setMovedByFold(true);
+
+		// the walk order. the transform of visited.get(i) is at
+		// matrices[i * MATRIX_SIZE].
+		var visited = new ArrayList<OriFace>();
+		visited.add(root);
+		var matrices = new double[faces.size() * MATRIX_SIZE];
+		setIdentity(matrices, 0);
+
+		for (int i = 0; i < visited.size(); i++) {
+			var face = visited.get(i);
+			for (var he : face.halfedgeIterable()) {
+				var pair = he.getPair();
+				if (pair == null) {
+					continue;
+				}
+				var pairFace = pair.getFace();
+				if (pairFace.isMovedByFold()) {
+					continue;
+				}
+				pairFace.setMovedByFold(true);
+
+				int child = visited.size();
+				visited.add(pairFace);
+				setReflection(matrices, child * MATRIX_SIZE,
+						pair.getPositionWhileFolding(), pair.getNext().getPositionWhileFolding());
+				multiply(matrices, i * MATRIX_SIZE, child * MATRIX_SIZE);
+			}
+		}
+
+		IntStream.range(1, visited.size()).parallel().forEach(i -> {
+			apply(visited.get(i), matrices, i * MATRIX_SIZE);
+		});
+
+		return visited.subList(1, visited.size());
+	}
+
+	private void setIdentity(final double[] m, final int offset) {
+		m[offset] = 1;
+		m[offset + 1] = 0;
+		m[offset + 2] = 0;
+		m[offset + 3] = 0;
+		m[offset + 4] = 1;
+		m[offset + 5] = 0;
+	}
+
+	/**
+	 * Sets the reflection across the line through {@code p} and {@code q}.
+	 */
+	private void setReflection(final double[] m, final int offset, final Vector2d p, final Vector2d q) {
+		double dx = q.x - p.x;
+		double dy = q.y - p.y;
+		double lengthSquared = dx * dx + dy * dy;
+
+		double a = (dx * dx - dy * dy) / lengthSquared;
+		double b = 2 * dx * dy / lengthSquared;
+
+		m[offset] = a;
+		m[offset + 1] = b;
+		m[offset + 2] = p.x - a * p.x - b * p.y;
+		m[offset + 3] = b;
+		m[offset + 4] = -a;
+		m[offset + 5] = p.y - b * p.x + a * p.y;
+	}
+
+	/**
+	 * Replaces the transform at {@code offset} with the one at
+	 * {@code parentOffset} composed with it: the transform at {@code offset}
+	 * is applied first.
+	 */
+	private void multiply(final double[] m, final int parentOffset, final int offset) {
+		double pa = m[parentOffset], pb = m[parentOffset + 1], pc = m[parentOffset + 2];
+		double pd = m[parentOffset + 3], pe = m[parentOffset + 4], pf = m[parentOffset + 5];
+		double a = m[offset], b = m[offset + 1], c = m[offset + 2];
+		double d = m[offset + 3], e = m[offset + 4], f = m[offset + 5];
+
+		m[offset] = pa * a + pb * d;
+		m[offset + 1] = pa * b + pb * e;
+		m[offset + 2] = pa * c + pb * f + pc;
+		m[offset + 3] = pd * a + pe * d;
+		m[offset + 4] = pd * b + pe * e;
+		m[offset + 5] = pd * c + pe * f + pf;
+	}
+
+	private void apply(final OriFace face, final double[] m, final int offset) {
+		for (var he : face.halfedgeIterable()) {
+			transform(he.getPositionWhileFolding(), m, offset);
+		}
+		for (var precrease : face.precreaseIterable()) {
+			transform(precrease.p0, m, offset);
+			transform(precrease.p1, m, offset);
+		}
+
+		// a transform with negative determinant turns the face over.
+		if (m[offset] * m[offset + 4] - m[offset + 1] * m[offset + 3] < 0) {
+			face.invertFaceFront();
+		}
+	}
+
+	private void transform(final Vector2d v, final double[] m, final int offset) {
+		double x = v.x;
+		double y = v.y;
+		v.x = m[offset] * x + m[offset + 1] * y + m[offset + 2];
+		v.y = m[offset + 3] * x + m[offset + 4] * y + m[offset + 5];
+	}
+}
@@ -0,0 +1,179 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import oripa.domain.fold.halfedge.OriFace;
+import oripa.domain.fold.origeom.HalfedgeFaceCrossingTable;
+import oripa.domain.fold.origeom.OverlapRelation;
+import oripa.domain.fold.subface.SubFace;
+
+/**
+ * Splits the subfaces whose stacks are undecided into independent groups for
+ * the layer ordering search. Two subfaces are in the same group if they share
+ * an undefined overlap relation or if their undefined relations appear in the
+ * same penetration test. The choices of stacks in different groups don't
+ * affect each other, so the number of foldable states is the product of the
+ * numbers of the groups.
+ */
+public class SubFaceComponentsFinder {
+
+	private int[] parents;
+
+	/**
+	 *
+	 * @param faces
+	 *            all faces of the origami model.
+	 * @param subFaces
+	 *            subfaces after {@link SubFace#sortFaceOverlapOrder(List, OverlapRelation)}.
+	 * @param orMat
+	 *            overlap relation matrix after estimation.
+	 * @param crossings
+	 *            faces crossed by each half-edge, which is used for the
+	 *            penetration test.
+	 * @return groups of the subfaces whose stacks are undecided. The groups
+	 *         are in the order of their first subfaces and each group keeps
+	 *         the order of {@code subFaces}.
+	 */
+	public List<List<SubFace>> find(final List<OriFace> faces, final List<SubFace> subFaces,
+			final OverlapRelation orMat, final HalfedgeFaceCrossingTable crossings) {
+		parents = new int[subFaces.size()];
+		for (int i = 0; i < parents.length; i++) {
+			parents[i] = i;
+		}
+
+		// the first subface which has the undefined relation of the key pair.
+		var owners = new HashMap<Long, Integer>();
+
+		for (int s = 0; s < subFaces.size(); s++) {
+			var sub = subFaces.get(s);
+			if (sub.allFaceOrderDecided) {
+				continue;
+			}
+			var parentFaces = sub.parentFaces;
+			for (int i = 0; i < parentFaces.size(); i++) {
+				var index_i = parentFaces.get(i).getFaceID();
+				for (int j = i + 1; j < parentFaces.size(); j++) {
+					var index_j = parentFaces.get(j).getFaceID();
+					if (!orMat.isUndefined(index_i, index_j)) {
+						continue;
+					}
+					var owner = owners.putIfAbsent(toKey(index_i, index_j, faces.size()), s);
+					if (owner != null) {
+						union(owner, s);
+					}
+				}
+			}
+		}
+
+		// a penetration test of face_i, face_j and face_k refers the three
+		// relations.
+		for (var face : faces) {
+			for (int h = 0; h < face.halfedgeCount(); h++) {
+				var pair = face.getHalfedge(h).getPair();
+				if (pair == null) {
+					continue;
+				}
+				var index_i = face.getFaceID();
+				var index_j = pair.getFace().getFaceID();
+				if (index_i > index_j) {
+					continue;
+				}
+				var crossedFaces = crossings.getCrossedFaces(index_i, h);
+				for (int index_k = crossedFaces.nextSetBit(0); index_k >= 0; index_k = crossedFaces
+						.nextSetBit(index_k + 1)) {
+					var owner_ij = owners.get(toKey(index_i, index_j, faces.size()));
+					var owner_ik = owners.get(toKey(index_i, index_k, faces.size()));
+					var owner_jk = owners.get(toKey(index_j, index_k, faces.size()));
+					if (countNonNull(owner_ij, owner_ik, owner_jk) < 2) {
+						continue;
+					}
+					unionIfNonNull(owner_ij, owner_ik);
+					unionIfNonNull(owner_ij, owner_jk);
+					unionIfNonNull(owner_ik, owner_jk);
+				}
+			}
+		}
+
+		var components = new LinkedHashMap<Integer, List<SubFace>>();
+		for (int s = 0; s < subFaces.size(); s++) {
+			var sub = subFaces.get(s);
+			if (sub.allFaceOrderDecided) {
+				continue;
+			}
+			components.computeIfAbsent(find(s), root -> new ArrayList<>()).add(sub);
+		}
+
+		return new ArrayList<>(components.values());
+	}
+
+	private Long toKey(final int index_i, final int index_j, final int faceCount) {
+		return index_i < index_j ? (long) index_i * faceCount + index_j
+				: (long) index_j * faceCount + index_i;
+	}
+
+	private int countNonNull(final Integer... owners) {
+		int count = 0;
+		for (var owner : owners) {
+			if (owner != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private void unionIfNonNull(final Integer s, final Integer t) {
+		if (s != null && t != null) {
+			union(s, t);
+		}
+	}
+
+	private int find(final int s) {
+		int root = s;
+		while (parents[root] != root) {
+			root = parents[root];
+		}
+		// path compression
+		int t = s;
+		while (parents[t] != root) {
+			int next = parents[t];
+			parents[t] = root;
+			t = next;
+		}
+		return root;
+	}
+
+	private void union(final int s, final int t) {
+		int root_s = find(s);
+		int root_t = find(t);
+		if (root_s == root_t) {
+			return;
+		}
+		// keep the smaller index as the root.
+		if (root_s < root_t) {
+			parents[root_t] = root_s;
+		} else {
+			parents[root_s] = root_t;
+		}
+	}
+}
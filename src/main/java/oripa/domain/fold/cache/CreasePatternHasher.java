@@ -0,0 +1,119 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import oripa.domain.creasepattern.CreasePatternInterface;
+
+/**
+ * Computes a content hash of a crease pattern, which is the key of
+ * {@link FoldResultCache}. Auxiliary lines are ignored and the hash doesn't
+ * depend on the order of the lines nor on the direction of each line. The
+ * coordinates are rounded to the multiples of {@code eps} so that tiny
+ * numerical differences give the same hash.
+ */
+public class CreasePatternHasher {
+	public static final double DEFAULT_EPS = 1.0e-6;
+
+	private static final Comparator<long[]> LINE_ORDER = Arrays::compare;
+
+	private final double eps;
+
+	public CreasePatternHasher() {
+		this(DEFAULT_EPS);
+	}
+
+	/**
+	 * @param eps
+	 *            unit of rounding of the coordinates.
+	 */
+	public CreasePatternHasher(final double eps) {
+		if (eps <= 0) {
+			throw new IllegalArgumentException("eps should be positive.");
+		}
+		this.eps = eps;
+	}
+
+	/**
+	 * @param creasePattern
+	 *            crease pattern to be hashed.
+	 * @param salt
+	 *            additional text which distinguishes the keys for the same
+	 *            crease pattern, such as the settings of the folding.
+	 * @return hexadecimal SHA-256 hash of the non-auxiliary lines.
+	 */
+	public String hash(final CreasePatternInterface creasePattern, final String salt) {
+		var lines = new ArrayList<long[]>();
+		for (var line : creasePattern) {
+			if (line.isAux()) {
+				continue;
+			}
+			long x0 = round(line.p0.x);
+			long y0 = round(line.p0.y);
+			long x1 = round(line.p1.x);
+			long y1 = round(line.p1.y);
+			if (x0 > x1 || (x0 == x1 && y0 > y1)) {
+				lines.add(new long[] { line.getType().toInt(), x1, y1, x0, y0 });
+			} else {
+				lines.add(new long[] { line.getType().toInt(), x0, y0, x1, y1 });
+			}
+		}
+		lines.sort(LINE_ORDER);
+
+		var digest = createDigest();
+		var buffer = ByteBuffer.allocate(5 * Long.BYTES);
+		buffer.putLong(round(creasePattern.getPaperSize()));
+		buffer.putLong(lines.size());
+		digest.update(buffer.array(), 0, buffer.position());
+		for (var line : lines) {
+			buffer.clear();
+			for (var value : line) {
+				buffer.putLong(value);
+			}
+			digest.update(buffer.array());
+		}
+		digest.update(salt.getBytes(StandardCharsets.UTF_8));
+
+		var hash = new StringBuilder();
+		for (var b : digest.digest()) {
+			hash.append(String.format("%02x", b));
+		}
+		return hash.toString();
+	}
+
+	private long round(final double value) {
+		return Math.round(value / eps);
+	}
+
+	private MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform supports SHA-256.
+			throw new IllegalStateException(e);
+		}
+	}
+}
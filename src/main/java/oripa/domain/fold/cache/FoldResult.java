@@ -0,0 +1,350 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+
+import oripa.domain.fold.halfedge.OrigamiModel;
+import oripa.domain.fold.origeom.OverlapRelation;
+import oripa.domain.fold.origeom.OverlapRelationValues;
+
+/**
+ * Folded states of an origami model in a form independent of the face IDs.
+ * The faces are identified by their centroids before folding and the
+ * vertices by their positions before folding, so that the states can be
+ * restored to another model built from the same crease pattern. Each overlap
+ * relation is packed into 2 bits per cell of the upper triangle.
+ */
+public class FoldResult {
+	private static final int FORMAT_VERSION = 1;
+
+	private static final int CELLS_PER_BYTE = 4;
+
+	/**
+	 * x and y of the centroid before folding of each face.
+	 */
+	private final double[] faceCentroids;
+
+	/**
+	 * x and y before folding and x and y after folding of each vertex.
+	 */
+	private final double[] vertexPositions;
+
+	private final List<byte[]> packedOverlapRelations;
+
+	private FoldResult(final double[] faceCentroids, final double[] vertexPositions,
+			final List<byte[]> packedOverlapRelations) {
+		this.faceCentroids = faceCentroids;
+		this.vertexPositions = vertexPositions;
+		this.packedOverlapRelations = packedOverlapRelations;
+	}
+
+	/**
+	 * @param origamiModel
+	 *            folded model.
+	 * @param overlapRelations
+	 *            folded states of the model.
+	 * @return result of the given model.
+	 */
+	public static FoldResult create(final OrigamiModel origamiModel,
+			final List<OverlapRelation> overlapRelations) {
+		var faces = origamiModel.getFaces();
+		var faceCentroids = new double[faces.size() * 2];
+		for (var face : faces) {
+			var centroid = face.getCentroidBeforeFolding();
+			faceCentroids[face.getFaceID() * 2] = centroid.x;
+			faceCentroids[face.getFaceID() * 2 + 1] = centroid.y;
+		}
+
+		var vertices = origamiModel.getVertices();
+		var vertexPositions = new double[vertices.size() * 4];
+		for (int v = 0; v < vertices.size(); v++) {
+			var vertex = vertices.get(v);
+			vertexPositions[v * 4] = vertex.getPositionBeforeFolding().x;
+			vertexPositions[v * 4 + 1] = vertex.getPositionBeforeFolding().y;
+			vertexPositions[v * 4 + 2] = vertex.getPosition().x;
+			vertexPositions[v * 4 + 3] = vertex.getPosition().y;
+		}
+
+		var packedOverlapRelations = new ArrayList<byte[]>();
+		for (var overlapRelation : overlapRelations) {
+			packedOverlapRelations.add(pack(overlapRelation));
+		}
+
+		return new FoldResult(faceCentroids, vertexPositions, packedOverlapRelations);
+	}
+
+	public int getFaceCount() {
+		return faceCentroids.length / 2;
+	}
+
+	public int getOverlapRelationCount() {
+		return packedOverlapRelations.size();
+	}
+
+	/**
+	 * @return approximate size of this result in bytes.
+	 */
+	public long getByteSize() {
+		long size = (long) (faceCentroids.length + vertexPositions.length) * Double.BYTES;
+		for (var packed : packedOverlapRelations) {
+			size += packed.length;
+		}
+		return size;
+	}
+
+	/**
+	 * Restores the folded states for the given model. The model should be
+	 * folded without layer ordering so that its face IDs are assigned and its
+	 * vertices are at the folded positions.
+	 *
+	 * @param origamiModel
+	 *            model built from the same crease pattern as the one of this
+	 *            result.
+	 * @param eps
+	 *            tolerance of the positions.
+	 * @return overlap relations indexed by the face IDs of the given model.
+	 *         Empty if the faces or the folded vertices of the model don't
+	 *         match the ones of this result.
+	 */
+	public Optional<List<OverlapRelation>> restore(final OrigamiModel origamiModel, final double eps) {
+		var faces = origamiModel.getFaces();
+		var vertices = origamiModel.getVertices();
+		if (faces.size() != getFaceCount() || vertices.size() * 4 != vertexPositions.length) {
+			return Optional.empty();
+		}
+
+		var storedFaceIndices = new HashMap<String, Integer>();
+		for (int f = 0; f < getFaceCount(); f++) {
+			storedFaceIndices.put(toKey(faceCentroids[f * 2], faceCentroids[f * 2 + 1], eps), f);
+		}
+		// face ID of the given model -> index in this result
+		var faceIndices = new int[faces.size()];
+		var used = new boolean[faces.size()];
+		for (var face : faces) {
+			var centroid = face.getCentroidBeforeFolding();
+			var index = storedFaceIndices.get(toKey(centroid.x, centroid.y, eps));
+			if (index == null || used[index]) {
+				return Optional.empty();
+			}
+			used[index] = true;
+			faceIndices[face.getFaceID()] = index;
+		}
+
+		var storedVertexIndices = new HashMap<String, Integer>();
+		for (int v = 0; v < vertices.size(); v++) {
+			storedVertexIndices.put(toKey(vertexPositions[v * 4], vertexPositions[v * 4 + 1], eps), v);
+		}
+		for (var vertex : vertices) {
+			var before = vertex.getPositionBeforeFolding();
+			var index = storedVertexIndices.get(toKey(before.x, before.y, eps));
+			if (index == null) {
+				return Optional.empty();
+			}
+			var position = vertex.getPosition();
+			if (Math.abs(vertexPositions[index * 4 + 2] - position.x) > eps
+					|| Math.abs(vertexPositions[index * 4 + 3] - position.y) > eps) {
+				return Optional.empty();
+			}
+		}
+
+		var overlapRelations = new ArrayList<OverlapRelation>();
+		for (var packed : packedOverlapRelations) {
+			overlapRelations.add(unpack(packed, faceIndices));
+		}
+		return Optional.of(overlapRelations);
+	}
+
+	/**
+	 * Writes this result in a binary format.
+	 *
+	 * @param out
+	 *            destination, which is not closed by this method.
+	 */
+	public void write(final OutputStream out) throws IOException {
+		var data = new DataOutputStream(out);
+		data.writeInt(FORMAT_VERSION);
+		writeDoubles(data, faceCentroids);
+		writeDoubles(data, vertexPositions);
+		data.writeInt(packedOverlapRelations.size());
+		for (var packed : packedOverlapRelations) {
+			data.writeInt(packed.length);
+			data.write(packed);
+		}
+		data.flush();
+	}
+
+	/**
+	 * Reads a result written by {@link #write(OutputStream)}.
+	 *
+	 * @param in
+	 *            source, which is not closed by this method.
+	 * @return result.
+	 * @throws IOException
+	 *             if the data is broken or of another version.
+	 */
+	public static FoldResult read(final InputStream in) throws IOException {
+		var data = new DataInputStream(in);
+		var version = data.readInt();
+		if (version != FORMAT_VERSION) {
+			throw new IOException("unsupported format version: " + version);
+		}
+		var faceCentroids = readDoubles(data);
+		var vertexPositions = readDoubles(data);
+		var faceCount = faceCentroids.length / 2;
+		var packedLength = toPackedLength(faceCount);
+
+		var relationCount = data.readInt();
+		if (relationCount < 0) {
+			throw new IOException("broken data.");
+		}
+		var packedOverlapRelations = new ArrayList<byte[]>(relationCount);
+		for (int r = 0; r < relationCount; r++) {
+			if (data.readInt() != packedLength) {
+				throw new IOException("broken data.");
+			}
+			var packed = new byte[packedLength];
+			data.readFully(packed);
+			packedOverlapRelations.add(packed);
+		}
+
+		return new FoldResult(faceCentroids, vertexPositions,
+				Collections.unmodifiableList(packedOverlapRelations));
+	}
+
+	private static void writeDoubles(final DataOutputStream data, final double[] values) throws IOException {
+		data.writeInt(values.length);
+		for (var value : values) {
+			data.writeDouble(value);
+		}
+	}
+
+	private static double[] readDoubles(final DataInputStream data) throws IOException {
+		var length = data.readInt();
+		if (length < 0) {
+			throw new IOException("broken data.");
+		}
+		var values = new double[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = data.readDouble();
+		}
+		return values;
+	}
+
+	private static String toKey(final double x, final double y, final double eps) {
+		return Math.round(x / eps) + "," + Math.round(y / eps);
+	}
+
+	private static int toPackedLength(final int faceCount) {
+		long cellCount = (long) faceCount * (faceCount - 1) / 2;
+		return (int) ((cellCount + CELLS_PER_BYTE - 1) / CELLS_PER_BYTE);
+	}
+
+	/**
+	 * @return index of the cell (i, j) in the upper triangle where i < j.
+	 */
+	private static long cellIndex(final int i, final int j, final int faceCount) {
+		return (long) i * faceCount - (long) i * (i + 1) / 2 + (j - i - 1);
+	}
+
+	private static byte[] pack(final OverlapRelation overlapRelation) {
+		var faceCount = overlapRelation.getSize();
+		var packed = new byte[toPackedLength(faceCount)];
+		for (int i = 0; i < faceCount; i++) {
+			for (int j = i + 1; j < faceCount; j++) {
+				var code = encode(overlapRelation.get(i, j));
+				if (code == 0) {
+					continue;
+				}
+				var cell = cellIndex(i, j, faceCount);
+				packed[(int) (cell / CELLS_PER_BYTE)] |= code << (cell % CELLS_PER_BYTE * 2);
+			}
+		}
+		return packed;
+	}
+
+	private OverlapRelation unpack(final byte[] packed, final int[] faceIndices) {
+		var faceCount = faceIndices.length;
+		var overlapRelation = new OverlapRelation(faceCount);
+		for (int i = 0; i < faceCount; i++) {
+			for (int j = i + 1; j < faceCount; j++) {
+				var index_i = faceIndices[i];
+				var index_j = faceIndices[j];
+				int value;
+				if (index_i < index_j) {
+					value = decode(getCode(packed, cellIndex(index_i, index_j, faceCount)));
+				} else {
+					value = invert(decode(getCode(packed, cellIndex(index_j, index_i, faceCount))));
+				}
+				overlapRelation.set(i, j, value);
+			}
+		}
+		return overlapRelation;
+	}
+
+	private static int getCode(final byte[] packed, final long cell) {
+		return (packed[(int) (cell / CELLS_PER_BYTE)] >> (cell % CELLS_PER_BYTE * 2)) & 3;
+	}
+
+	private static int encode(final int value) {
+		switch (value) {
+		case OverlapRelationValues.UPPER:
+			return 1;
+		case OverlapRelationValues.LOWER:
+			return 2;
+		case OverlapRelationValues.UNDEFINED:
+			return 3;
+		default:
+			return 0;
+		}
+	}
+
+	private static int decode(final int code) {
+		switch (code) {
+		case 1:
+			return OverlapRelationValues.UPPER;
+		case 2:
+			return OverlapRelationValues.LOWER;
+		case 3:
+			return OverlapRelationValues.UNDEFINED;
+		default:
+			return OverlapRelationValues.NO_OVERLAP;
+		}
+	}
+
+	private static int invert(final int value) {
+		switch (value) {
+		case OverlapRelationValues.UPPER:
+			return OverlapRelationValues.LOWER;
+		case OverlapRelationValues.LOWER:
+			return OverlapRelationValues.UPPER;
+		default:
+			return value;
+		}
+	}
+}
@@ -0,0 +1,248 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Two-tier cache of {@link FoldResult} keyed by
+ * {@link CreasePatternHasher#hash(oripa.domain.creasepattern.CreasePatternInterface, String)}.
+ * The memory tier keeps the recently used results. The disk tier, if a
+ * directory is given, keeps a file for each result and deletes the least
+ * recently used files when the total size exceeds the capacity. A broken or
+ * unreadable file is treated as a miss.
+ */
+public class FoldResultCache {
+	private static final Logger logger = LoggerFactory.getLogger(FoldResultCache.class);
+
+	public static final int DEFAULT_MEMORY_CAPACITY = 8;
+	public static final long DEFAULT_DISK_CAPACITY = 256L * 1024 * 1024;
+
+	private static final String FILE_SUFFIX = ".fold";
+
+	private final Map<String, FoldResult> memory;
+	private final Path directory;
+	private final long diskCapacity;
+
+	/**
+	 * Constructs a cache without the disk tier.
+	 *
+	 * @param memoryCapacity
+	 *            the maximum number of results in memory.
+	 */
+	public FoldResultCache(final int memoryCapacity) {
+		this(memoryCapacity, null, 0);
+	}
+
+	/**
+	 * @param memoryCapacity
+	 *            the maximum number of results in memory.
+	 * @param directory
+	 *            directory of the disk tier, which is created on the first
+	 *            write. null for no disk tier.
+	 * @param diskCapacity
+	 *            the maximum total size in bytes of the files in
+	 *            {@code directory}.
+	 */
+	public FoldResultCache(final int memoryCapacity, final Path directory, final long diskCapacity) {
+		if (memoryCapacity < 0 || diskCapacity < 0) {
+			throw new IllegalArgumentException("capacity should not be negative.");
+		}
+		memory = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, FoldResult> eldest) {
+				return size() > memoryCapacity;
+			}
+		};
+		this.directory = directory;
+		this.diskCapacity = diskCapacity;
+	}
+
+	/**
+	 * @param key
+	 *            hash of the crease pattern.
+	 * @return the cached result. A result found on disk is moved into the
+	 *         memory tier.
+	 */
+	public synchronized Optional<FoldResult> get(final String key) {
+		var result = memory.get(key);
+		if (result != null) {
+			return Optional.of(result);
+		}
+		if (directory == null) {
+			return Optional.empty();
+		}
+
+		var file = toFile(key);
+		if (!Files.isRegularFile(file)) {
+			return Optional.empty();
+		}
+		try (var in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			result = FoldResult.read(in);
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			logger.warn("failed to read cached fold result " + file, e);
+			deleteQuietly(file);
+			return Optional.empty();
+		}
+		memory.put(key, result);
+		return Optional.of(result);
+	}
+
+	/**
+	 * Stores the result into both tiers. A failure of writing to disk is
+	 * logged and ignored.
+	 *
+	 * @param key
+	 *            hash of the crease pattern.
+	 * @param result
+	 *            result of folding the crease pattern.
+	 */
+	public synchronized void put(final String key, final FoldResult result) {
+		memory.put(key, result);
+		if (directory == null) {
+			return;
+		}
+
+		var file = toFile(key);
+		try {
+			Files.createDirectories(directory);
+			var temporaryFile = Files.createTempFile(directory, key, ".tmp");
+			try (var out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+				result.write(out);
+			} catch (IOException e) {
+				deleteQuietly(temporaryFile);
+				throw e;
+			}
+			Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			logger.warn("failed to write fold result " + file, e);
+			return;
+		}
+		evict();
+	}
+
+	/**
+	 * Removes the result from both tiers.
+	 *
+	 * @param key
+	 *            hash of the crease pattern.
+	 */
+	public synchronized void remove(final String key) {
+		memory.remove(key);
+		if (directory != null) {
+			deleteQuietly(toFile(key));
+		}
+	}
+
+	/**
+	 * @return the total size in bytes of the files of the disk tier.
+	 */
+	public synchronized long getDiskUsage() {
+		long usage = 0;
+		for (var file : listFiles()) {
+			usage += sizeOf(file);
+		}
+		return usage;
+	}
+
+	/**
+	 * Deletes the least recently used files until the total size fits the
+	 * capacity.
+	 */
+	private void evict() {
+		var files = new ArrayList<>(listFiles());
+		long usage = 0;
+		for (var file : files) {
+			usage += sizeOf(file);
+		}
+		if (usage <= diskCapacity) {
+			return;
+		}
+
+		files.sort(Comparator.comparing(this::lastModifiedOf));
+		for (var file : files) {
+			if (usage <= diskCapacity) {
+				break;
+			}
+			usage -= sizeOf(file);
+			deleteQuietly(file);
+		}
+	}
+
+	private List<Path> listFiles() {
+		if (directory == null || !Files.isDirectory(directory)) {
+			return List.of();
+		}
+		try (var paths = Files.list(directory)) {
+			return paths
+					.filter(path -> path.getFileName().toString().endsWith(FILE_SUFFIX))
+					.collect(Collectors.toList());
+		} catch (IOException e) {
+			logger.warn("failed to list fold results in " + directory, e);
+			return List.of();
+		}
+	}
+
+	private Path toFile(final String key) {
+		return directory.resolve(key + FILE_SUFFIX);
+	}
+
+	private long sizeOf(final Path file) {
+		try {
+			return Files.size(file);
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	private FileTime lastModifiedOf(final Path file) {
+		try {
+			return Files.getLastModifiedTime(file);
+		} catch (IOException e) {
+			return FileTime.fromMillis(0);
+		}
+	}
+
+	private void deleteQuietly(final Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			logger.warn("failed to delete " + file, e);
+		}
+	}
+}
@@ -30,8 +30,6 @@ import java.util.stream.Stream;
 import javax.vecmath.Vector2d;
 import javax.vecmath.Vector3d;
 
-import oripa.domain.fold.stackcond.StackConditionOf3Faces;
-import oripa.domain.fold.stackcond.StackConditionOf4Faces;
 import oripa.geom.GeomUtil;
 import oripa.geom.RectangleDomain;
 import oripa.util.collection.CollectionUtil;
@@ -70,23 +68,13 @@ public class OriFace {
 	 */
 	private boolean movedByFold = false;
 
-	/**
-	 * index of stack order for subface. It seems to be used only while making
-	 * correct stack order.
-	 */
-	private int indexForStack = 0;
-
 	/**
 	 * ID of this face.
 	 */
 	private int faceID = 0;
 
-	private boolean alreadyStacked = false;
 	private final List<TriangleFace> triangles = new ArrayList<>();
 
-	private final List<StackConditionOf4Faces> stackConditionsOf4Faces = new ArrayList<>();
-	private final List<StackConditionOf3Faces> stackConditionsOf3Faces = new ArrayList<>();
-	private final List<Integer> stackConditionsOf2Faces = new ArrayList<>();
 
 	public OriFace() {
 		int r = (int) (Math.random() * 255);
@@ -194,28 +182,6 @@ public class OriFace {
 		this.movedByFold = movedByFold;
 	}
 
-	/**
-	 * @return indexForStack
-	 */
-	public int getIndexForStack() {
-		return indexForStack;
-	}
-
-	/**
-	 * @param indexForStack
-	 *            Sets indexForStack
-	 */
-	public void setIndexForStack(final int indexForStack) {
-		this.indexForStack = indexForStack;
-	}
-
-	/**
-	 * Sets -1 to indexForStack.
-	 */
-	public void clearIndexForStack() {
-		this.indexForStack = -1;
-	}
-
 	/**
 	 * @return ID of this face.
 	 */
@@ -231,21 +197,6 @@ public class OriFace {
 		this.faceID = faceID;
 	}
 
-	/**
-	 * @return whether this face is already put in a subface's stack.
-	 */
-	public boolean isAlreadyStacked() {
-		return alreadyStacked;
-	}
-
-	/**
-	 * @param alreadyStacked
-	 *            Sets alreadyStacked
-	 */
-	public void setAlreadyStacked(final boolean alreadyStacked) {
-		this.alreadyStacked = alreadyStacked;
-	}
-
 	/**
 	 * @return triangles
 	 */
@@ -253,78 +204,6 @@ public class OriFace {
 		return triangles.stream();
 	}
 
-	/**
-	 *
-	 * @param condition
-	 *            for a correct stack of subface.
-	 */
-	public void addStackConditionOf4Faces(final StackConditionOf4Faces condition) {
-		stackConditionsOf4Faces.add(condition);
-	}
-
-	/**
-	 * Removes all elements from {@link #stackConditionsOf4Faces}.
-	 */
-	public void clearStackConditionsOf4Faces() {
-		stackConditionsOf4Faces.clear();
-	}
-
-	/**
-	 *
-	 * @return stack conditions of 4 faces as {@link Stream}.
-	 */
-	public Stream<StackConditionOf4Faces> stackConditionOf4FacesStream() {
-		return stackConditionsOf4Faces.stream();
-	}
-
-	/**
-	 *
-	 * @param condition
-	 *            for a correct stack of subface.
-	 */
-	public void addStackConditionOf3Faces(final StackConditionOf3Faces condition) {
-		stackConditionsOf3Faces.add(condition);
-	}
-
-	/**
-	 * Removes all elements from {@link #stackConditionsOf3Faces}.
-	 */
-	public void clearStackConditionsOf3Faces() {
-		stackConditionsOf3Faces.clear();
-	}
-
-	/**
-	 *
-	 * @return stack conditions of 3 faces as {@link Stream}.
-	 */
-	public Stream<StackConditionOf3Faces> stackConditionOf3FacesStream() {
-		return stackConditionsOf3Faces.stream();
-	}
-
-	/**
-	 *
-	 * @param condition
-	 *            for a correct stack of subface.
-	 */
-	public void addStackConditionOf2Faces(final Integer upperFaceORMatIndex) {
-		stackConditionsOf2Faces.add(upperFaceORMatIndex);
-	}
-
-	/**
-	 * Removes all elements from {@link #stackConditionsOf2Faces}.
-	 */
-	public void clearStackConditionsOf2Faces() {
-		stackConditionsOf2Faces.clear();
-	}
-
-	/**
-	 *
-	 * @return stack conditions of 2 faces as {@link Stream}.
-	 */
-	public Stream<Integer> stackConditionsOf2FacesStream() {
-		return stackConditionsOf2Faces.stream();
-	}
-
 	public void trianglateAndSetColor(final boolean bUseColor, final boolean bFlip,
 			final double paperSize) {
 		triangles.clear();
@@ -0,0 +1,233 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.origeom;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import javax.vecmath.Vector2d;
+
+import oripa.domain.fold.halfedge.OriFace;
+
+/**
+ * A uniform grid of the bounding boxes of faces after fold. This is a broad
+ * phase for geometric tests between faces: two faces can overlap only if
+ * their boxes intersect, and a box intersects only the boxes which share a
+ * cell with it.
+ */
+public class FaceBoundingBoxGrid {
+	private static final int MAX_DIVISION = 1024;
+
+	private final List<OriFace> faces;
+
+	private final double[] minX, minY, maxX, maxY;
+
+	private final double gridLeft, gridTop;
+	private final double cellWidth, cellHeight;
+	private final int cols, rows;
+
+	/**
+	 * face indices of each cell in compressed form: the faces in cell c are
+	 * {@code cellFaces[cellStarts[c]]} to
+	 * {@code cellFaces[cellStarts[c + 1] - 1]} in ascending order.
+	 */
+	private final int[] cellStarts;
+	private final int[] cellFaces;
+
+	/**
+	 * Constructs the grid with the current positions of the faces, which are
+	 * the ones after fold if the faces have been folded.
+	 *
+	 * @param faces
+	 *            faces to be indexed. The index of a face in this list is
+	 *            used as its identifier in this grid.
+	 * @param margin
+	 *            the boxes are enlarged by this value so that the faces
+	 *            within the distance can be candidates.
+	 */
+	public FaceBoundingBoxGrid(final List<OriFace> faces, final double margin) {
+		this.faces = faces;
+
+		int faceCount = faces.size();
+		minX = new double[faceCount];
+		minY = new double[faceCount];
+		maxX = new double[faceCount];
+		maxY = new double[faceCount];
+
+		double left = Double.POSITIVE_INFINITY, top = Double.POSITIVE_INFINITY;
+		double right = Double.NEGATIVE_INFINITY, bottom = Double.NEGATIVE_INFINITY;
+
+		for (int i = 0; i < faceCount; i++) {
+			minX[i] = Double.POSITIVE_INFINITY;
+			minY[i] = Double.POSITIVE_INFINITY;
+			maxX[i] = Double.NEGATIVE_INFINITY;
+			maxY[i] = Double.NEGATIVE_INFINITY;
+			for (var he : faces.get(i).halfedgeIterable()) {
+				var p = he.getPosition();
+				minX[i] = Math.min(minX[i], p.x);
+				minY[i] = Math.min(minY[i], p.y);
+				maxX[i] = Math.max(maxX[i], p.x);
+				maxY[i] = Math.max(maxY[i], p.y);
+			}
+			minX[i] -= margin;
+			minY[i] -= margin;
+			maxX[i] += margin;
+			maxY[i] += margin;
+
+			left = Math.min(left, minX[i]);
+			top = Math.min(top, minY[i]);
+			right = Math.max(right, maxX[i]);
+			bottom = Math.max(bottom, maxY[i]);
+		}
+
+		// about one face per cell for uniformly distributed faces.
+		int division = Math.max(1, Math.min(MAX_DIVISION, (int) Math.ceil(Math.sqrt(faceCount))));
+		cols = division;
+		rows = division;
+		gridLeft = faceCount == 0 ? 0 : left;
+		gridTop = faceCount == 0 ? 0 : top;
+		cellWidth = faceCount == 0 ? 1 : Math.max((right - left) / cols, Double.MIN_NORMAL);
+		cellHeight = faceCount == 0 ? 1 : Math.max((bottom - top) / rows, Double.MIN_NORMAL);
+
+		cellStarts = new int[cols * rows + 1];
+		for (int i = 0; i < faceCount; i++) {
+			for (int y = toRow(minY[i]); y <= toRow(maxY[i]); y++) {
+				for (int x = toColumn(minX[i]); x <= toColumn(maxX[i]); x++) {
+					cellStarts[y * cols + x + 1]++;
+				}
+			}
+		}
+		for (int c = 0; c < cols * rows; c++) {
+			cellStarts[c + 1] += cellStarts[c];
+		}
+
+		cellFaces = new int[cellStarts[cols * rows]];
+		var fillCounts = new int[cols * rows];
+		for (int i = 0; i < faceCount; i++) {
+			for (int y = toRow(minY[i]); y <= toRow(maxY[i]); y++) {
+				for (int x = toColumn(minX[i]); x <= toColumn(maxX[i]); x++) {
+					int c = y * cols + x;
+					cellFaces[cellStarts[c] + fillCounts[c]++] = i;
+				}
+			}
+		}
+	}
+
+	private int toColumn(final double x) {
+		return Math.max(0, Math.min(cols - 1, (int) ((x - gridLeft) / cellWidth)));
+	}
+
+	private int toRow(final double y) {
+		return Math.max(0, Math.min(rows - 1, (int) ((y - gridTop) / cellHeight)));
+	}
+
+	/**
+	 * Whether the boxes of the i-th face and the j-th face intersect.
+	 */
+	public boolean isBoxIntersecting(final int i, final int j) {
+		return minX[i] <= maxX[j] && minX[j] <= maxX[i]
+				&& minY[i] <= maxY[j] && minY[j] <= maxY[i];
+	}
+
+	/**
+	 *
+	 * @param index
+	 *            index of a face.
+	 * @return indices of the faces whose boxes intersect the box of the
+	 *         given face. The given face is included.
+	 */
+	public BitSet getIntersectingBoxes(final int index) {
+		var indices = new BitSet(faces.size());
+
+		// the cells of a large box in a dense grid hold many copies of the
+		// same faces, e.g., the faces of a pleat stacked in a strip.
+		if (countEntries(index) > faces.size()) {
+			for (int j = 0; j < faces.size(); j++) {
+				if (isBoxIntersecting(index, j)) {
+					indices.set(j);
+				}
+			}
+			return indices;
+		}
+
+		for (int y = toRow(minY[index]); y <= toRow(maxY[index]); y++) {
+			for (int x = toColumn(minX[index]); x <= toColumn(maxX[index]); x++) {
+				int c = y * cols + x;
+				for (int s = cellStarts[c]; s < cellStarts[c + 1]; s++) {
+					int j = cellFaces[s];
+					if (isBoxIntersecting(index, j)) {
+						indices.set(j);
+					}
+				}
+			}
+		}
+		return indices;
+	}
+
+	/**
+	 * Point location query. The faces which contain the given point are in
+	 * the result since the box of such face contains the point.
+	 *
+	 * @param p
+	 *            point to be located.
+	 * @return indices of the faces whose boxes contain the given point.
+	 */
+	public BitSet getBoxesContaining(final Vector2d p) {
+		var indices = new BitSet(faces.size());
+
+		int c = toRow(p.y) * cols + toColumn(p.x);
+		for (int s = cellStarts[c]; s < cellStarts[c + 1]; s++) {
+			int j = cellFaces[s];
+			if (minX[j] <= p.x && p.x <= maxX[j] && minY[j] <= p.y && p.y <= maxY[j]) {
+				indices.set(j);
+			}
+		}
+		return indices;
+	}
+
+	/**
+	 * @return the number of the entries in the cells which the box of the
+	 *         given face covers.
+	 */
+	private long countEntries(final int index) {
+		long count = 0;
+		for (int y = toRow(minY[index]); y <= toRow(maxY[index]); y++) {
+			int rowStart = y * cols;
+			count += cellStarts[rowStart + toColumn(maxX[index]) + 1] - cellStarts[rowStart + toColumn(minX[index])];
+		}
+		return count;
+	}
+
+	/**
+	 * Calls {@code action} once for each pair of faces whose boxes intersect.
+	 * The first argument of {@code action} is the face with the smaller index.
+	 *
+	 * @param action
+	 *            what to do with the pair.
+	 */
+	public void forEachCandidatePair(final BiConsumer<OriFace, OriFace> action) {
+		for (int i = 0; i < faces.size(); i++) {
+			var candidates = getIntersectingBoxes(i);
+			for (int j = candidates.nextSetBit(i + 1); j >= 0; j = candidates.nextSetBit(j + 1)) {
+				action.accept(faces.get(i), faces.get(j));
+			}
+		}
+	}
+}
@@ -0,0 +1,138 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.origeom;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import oripa.domain.fold.halfedge.OriFace;
+
+/**
+ * The faces crossed by each half-edge after fold, computed once by
+ * {@link OriGeomUtil#isLineCrossFace(OriFace, oripa.domain.fold.halfedge.OriHalfedge, double)}.
+ * Only the half-edges which have pairs are considered, and the face of the
+ * half-edge and the face of its pair are always excluded.
+ */
+public class HalfedgeFaceCrossingTable {
+	private static final BitSet EMPTY = new BitSet();
+
+	/**
+	 * crossedFaces[i][h] is the set of IDs of faces crossed by the h-th
+	 * half-edge of the face whose ID is i.
+	 */
+	private final BitSet[][] crossedFaces;
+
+	/**
+	 *
+	 * @param faces
+	 *            all faces after fold. The ID of each face should be its
+	 *            index in this list.
+	 * @param eps
+	 *            tolerance given to
+	 *            {@link OriGeomUtil#isLineCrossFace(OriFace, oripa.domain.fold.halfedge.OriHalfedge, double)}.
+	 * @param grid
+	 *            grid of {@code faces}. A half-edge is tested only with the
+	 *            faces whose boxes intersect the box of its face.
+	 */
+	public HalfedgeFaceCrossingTable(final List<OriFace> faces, final double eps,
+			final FaceBoundingBoxGrid grid) {
+		this(faces, eps, grid, null, new int[faces.size()]);
+	}
+
+	/**
+	 * Constructs the table reusing the tests of a previous table. The test of
+	 * a half-edge and a face is copied from {@code previous} if both of the
+	 * face of the half-edge and the other face are unchanged.
+	 *
+	 * @param faces
+	 *            all faces after fold. The ID of each face should be its
+	 *            index in this list.
+	 * @param eps
+	 *            tolerance given to
+	 *            {@link OriGeomUtil#isLineCrossFace(OriFace, oripa.domain.fold.halfedge.OriHalfedge, double)}.
+	 *            It should be the same as the one of {@code previous}.
+	 * @param grid
+	 *            grid of {@code faces}.
+	 * @param previous
+	 *            table of the previous faces. null for no reuse.
+	 * @param previousFaceIDs
+	 *            previousFaceIDs[i] is the ID in {@code previous} of the
+	 *            face whose ID is i if the face has the same half-edges at the
+	 *            same positions as the previous one, or -1 otherwise.
+	 */
+	public HalfedgeFaceCrossingTable(final List<OriFace> faces, final double eps,
+			final FaceBoundingBoxGrid grid, final HalfedgeFaceCrossingTable previous,
+			final int[] previousFaceIDs) {
+		crossedFaces = new BitSet[faces.size()][];
+
+		IntStream.range(0, faces.size()).parallel().forEach(i -> {
+			var face = faces.get(i);
+			var candidates = grid.getIntersectingBoxes(i);
+
+			crossedFaces[i] = new BitSet[face.halfedgeCount()];
+			for (int h = 0; h < face.halfedgeCount(); h++) {
+				var he = face.getHalfedge(h);
+				var pair = he.getPair();
+				if (pair == null) {
+					crossedFaces[i][h] = EMPTY;
+					continue;
+				}
+				int j = pair.getFace().getFaceID();
+
+				var crossed = new BitSet(faces.size());
+				for (int k = candidates.nextSetBit(0); k >= 0; k = candidates.nextSetBit(k + 1)) {
+					if (k == i || k == j) {
+						continue;
+					}
+					if (previous != null && previousFaceIDs[i] >= 0 && previousFaceIDs[k] >= 0) {
+						if (previous.isCrossing(previousFaceIDs[i], h, previousFaceIDs[k])) {
+							crossed.set(k);
+						}
+						continue;
+					}
+					if (OriGeomUtil.isLineCrossFace(faces.get(k), he, eps)) {
+						crossed.set(k);
+					}
+				}
+				crossedFaces[i][h] = crossed;
+			}
+		});
+	}
+
+	/**
+	 *
+	 * @param faceID
+	 *            ID of a face.
+	 * @param halfedgeIndex
+	 *            index of a half-edge in the face.
+	 * @return IDs of the faces crossed by the half-edge. Don't modify it.
+	 */
+	public BitSet getCrossedFaces(final int faceID, final int halfedgeIndex) {
+		return crossedFaces[faceID][halfedgeIndex];
+	}
+
+	/**
+	 *
+	 * @return true if the half-edge crosses the face of {@code otherFaceID}.
+	 */
+	public boolean isCrossing(final int faceID, final int halfedgeIndex, final int otherFaceID) {
+		return crossedFaces[faceID][halfedgeIndex].get(otherFaceID);
+	}
+}
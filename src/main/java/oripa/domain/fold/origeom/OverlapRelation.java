@@ -0,0 +1,298 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.origeom;
+
+import java.util.Arrays;
+
+/**
+ * Overlap relation matrix of faces. Each cell holds one of
+ * {@link OverlapRelationValues} and is packed into 2 bits. Only the upper
+ * triangle (row < column) is stored since the lower triangle is always the
+ * inversion of it: if face_i is UPPER than face_j, then face_j is LOWER than
+ * face_i. The diagonal is always {@link OverlapRelationValues#NO_OVERLAP}.
+ *
+ * A newly created matrix is filled with
+ * {@link OverlapRelationValues#NO_OVERLAP}.
+ */
+public class OverlapRelation {
+	private static final int BITS_PER_CELL = 2;
+	private static final int CELLS_PER_WORD = Long.SIZE / BITS_PER_CELL;
+	private static final long CELL_MASK = (1L << BITS_PER_CELL) - 1;
+
+	private static final int CODE_NO_OVERLAP = 0;
+	private static final int CODE_UPPER = 1;
+	private static final int CODE_LOWER = 2;
+	private static final int CODE_UNDEFINED = 3;
+
+	private final int size;
+	private final long[] words;
+
+	/**
+	 * Creates a matrix for {@code size} faces.
+	 *
+	 * @param size
+	 *            the number of faces.
+	 */
+	public OverlapRelation(final int size) {
+		if (size < 0) {
+			throw new IllegalArgumentException("size should be non-negative.");
+		}
+		this.size = size;
+		long cellCount = (long) size * (size - 1) / 2;
+		words = new long[(int) ((cellCount + CELLS_PER_WORD - 1) / CELLS_PER_WORD)];
+	}
+
+	private OverlapRelation(final OverlapRelation from) {
+		size = from.size;
+		words = from.words.clone();
+	}
+
+	/**
+	 * @return the number of faces, which is the number of rows (and columns)
+	 *         of this matrix.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            row index (face ID)
+	 * @param j
+	 *            column index (face ID)
+	 * @return a value of {@link OverlapRelationValues} for face_i against
+	 *         face_j.
+	 */
+	public int get(final int i, final int j) {
+		if (i == j) {
+			checkIndex(i);
+			return OverlapRelationValues.NO_OVERLAP;
+		}
+		if (i < j) {
+			return decode(getCode(i, j));
+		}
+		return decode(invertCode(getCode(j, i)));
+	}
+
+	/**
+	 * Sets {@code value} to the cell (i, j) and the inversion of {@code value}
+	 * to the cell (j, i).
+	 *
+	 * @param i
+	 *            row index (face ID)
+	 * @param j
+	 *            column index (face ID)
+	 * @param value
+	 *            a value of {@link OverlapRelationValues}
+	 * @throws IllegalArgumentException
+	 *             if {@code i == j} and {@code value} is not
+	 *             {@link OverlapRelationValues#NO_OVERLAP}.
+	 */
+	public void set(final int i, final int j, final int value) {
+		if (i == j) {
+			checkIndex(i);
+			if (value != OverlapRelationValues.NO_OVERLAP) {
+				throw new IllegalArgumentException("diagonal cell should be NO_OVERLAP.");
+			}
+			return;
+		}
+		if (i < j) {
+			setCode(i, j, encode(value));
+		} else {
+			setCode(j, i, invertCode(encode(value)));
+		}
+	}
+
+	/**
+	 * Sets UPPER to the cell (i, j) and LOWER to (j, i).
+	 */
+	public void setUpper(final int i, final int j) {
+		set(i, j, OverlapRelationValues.UPPER);
+	}
+
+	/**
+	 * Sets LOWER to the cell (i, j) and UPPER to (j, i).
+	 */
+	public void setLower(final int i, final int j) {
+		set(i, j, OverlapRelationValues.LOWER);
+	}
+
+	/**
+	 * Sets UNDEFINED to the cells (i, j) and (j, i).
+	 */
+	public void setUndefined(final int i, final int j) {
+		set(i, j, OverlapRelationValues.UNDEFINED);
+	}
+
+	/**
+	 * Sets NO_OVERLAP to the cells (i, j) and (j, i).
+	 */
+	public void setNoOverlap(final int i, final int j) {
+		set(i, j, OverlapRelationValues.NO_OVERLAP);
+	}
+
+	/**
+	 * Sets LOWER to the cell (i, j) if the cell is UNDEFINED.
+	 *
+	 * @return true if LOWER and UPPER are set.
+	 */
+	public boolean setLowerIfUndefined(final int i, final int j) {
+		if (!isUndefined(i, j)) {
+			return false;
+		}
+		setLower(i, j);
+		return true;
+	}
+
+	/**
+	 * @return whether face_i is above face_j.
+	 */
+	public boolean isUpper(final int i, final int j) {
+		return get(i, j) == OverlapRelationValues.UPPER;
+	}
+
+	/**
+	 * @return whether face_i is under face_j.
+	 */
+	public boolean isLower(final int i, final int j) {
+		return get(i, j) == OverlapRelationValues.LOWER;
+	}
+
+	/**
+	 * @return whether the relation of face_i and face_j is not determined yet.
+	 */
+	public boolean isUndefined(final int i, final int j) {
+		return get(i, j) == OverlapRelationValues.UNDEFINED;
+	}
+
+	/**
+	 * @return whether face_i does not overlap face_j.
+	 */
+	public boolean isNoOverlap(final int i, final int j) {
+		return get(i, j) == OverlapRelationValues.NO_OVERLAP;
+	}
+
+	/**
+	 * Copies all cells of {@code from} to this matrix.
+	 *
+	 * @param from
+	 *            matrix of the same size as this matrix.
+	 */
+	public void copyFrom(final OverlapRelation from) {
+		if (from.size != size) {
+			throw new IllegalArgumentException("size mismatch.");
+		}
+		System.arraycopy(from.words, 0, words, 0, words.length);
+	}
+
+	/**
+	 * @return deep copy of this matrix.
+	 */
+	@Override
+	public OverlapRelation clone() {
+		return new OverlapRelation(this);
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof OverlapRelation)) {
+			return false;
+		}
+		var other = (OverlapRelation) obj;
+		return size == other.size && Arrays.equals(words, other.words);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * size + Arrays.hashCode(words);
+	}
+
+	private void checkIndex(final int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("index " + i + " for size " + size);
+		}
+	}
+
+	/**
+	 * @return linear index of the cell (i, j) in the upper triangle. Assumes
+	 *         {@code i < j}.
+	 */
+	private long cellIndex(final int i, final int j) {
+		if (i < 0 || j >= size) {
+			throw new IndexOutOfBoundsException("(" + i + ", " + j + ") for size " + size);
+		}
+		return (long) i * (2L * size - i - 1) / 2 + (j - i - 1);
+	}
+
+	private int getCode(final int i, final int j) {
+		long cell = cellIndex(i, j);
+		int shift = (int) (cell % CELLS_PER_WORD) * BITS_PER_CELL;
+		return (int) ((words[(int) (cell / CELLS_PER_WORD)] >>> shift) & CELL_MASK);
+	}
+
+	private void setCode(final int i, final int j, final int code) {
+		long cell = cellIndex(i, j);
+		int wordIndex = (int) (cell / CELLS_PER_WORD);
+		int shift = (int) (cell % CELLS_PER_WORD) * BITS_PER_CELL;
+		words[wordIndex] = (words[wordIndex] & ~(CELL_MASK << shift)) | ((long) code << shift);
+	}
+
+	private static int invertCode(final int code) {
+		switch (code) {
+		case CODE_UPPER:
+			return CODE_LOWER;
+		case CODE_LOWER:
+			return CODE_UPPER;
+		default:
+			return code;
+		}
+	}
+
+	private static int encode(final int value) {
+		switch (value) {
+		case OverlapRelationValues.NO_OVERLAP:
+			return CODE_NO_OVERLAP;
+		case OverlapRelationValues.UPPER:
+			return CODE_UPPER;
+		case OverlapRelationValues.LOWER:
+			return CODE_LOWER;
+		case OverlapRelationValues.UNDEFINED:
+			return CODE_UNDEFINED;
+		default:
+			throw new IllegalArgumentException("unknown overlap relation value: " + value);
+		}
+	}
+
+	private static int decode(final int code) {
+		switch (code) {
+		case CODE_UPPER:
+			return OverlapRelationValues.UPPER;
+		case CODE_LOWER:
+			return OverlapRelationValues.LOWER;
+		case CODE_UNDEFINED:
+			return OverlapRelationValues.UNDEFINED;
+		default:
+			return OverlapRelationValues.NO_OVERLAP;
+		}
+	}
+}
@@ -0,0 +1,129 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.origeom;
+
+import java.util.Arrays;
+
+/**
+ * Undo log of writes to an {@link OverlapRelation}. Backtracking search can
+ * work on a single matrix by writing through this object, taking a
+ * {@link #mark()} before a trial and calling {@link #undo(int)} with the mark
+ * to restore the matrix when the trial is finished.
+ */
+public class OverlapRelationTrail {
+	private static final int ENTRY_SIZE = 3;
+
+	private final OverlapRelation overlapRelation;
+
+	/**
+	 * (i, j, old value) triples.
+	 */
+	private int[] entries = new int[ENTRY_SIZE * 64];
+	private int entryCount = 0;
+
+	/**
+	 * Constructor
+	 *
+	 * @param overlapRelation
+	 *            working matrix which this trail writes to.
+	 */
+	public OverlapRelationTrail(final OverlapRelation overlapRelation) {
+		this.overlapRelation = overlapRelation;
+	}
+
+	/**
+	 * @return the working matrix.
+	 */
+	public OverlapRelation getOverlapRelation() {
+		return overlapRelation;
+	}
+
+	/**
+	 * Sets {@code value} to the cell (i, j) of the working matrix and records
+	 * the old value. Nothing is recorded if the cell already has
+	 * {@code value}.
+	 *
+	 * @see OverlapRelation#set(int, int, int)
+	 */
+	public void set(final int i, final int j, final int value) {
+		var oldValue = overlapRelation.get(i, j);
+		if (oldValue == value) {
+			return;
+		}
+		if (entryCount + ENTRY_SIZE > entries.length) {
+			entries = Arrays.copyOf(entries, entries.length * 2);
+		}
+		entries[entryCount++] = i;
+		entries[entryCount++] = j;
+		entries[entryCount++] = oldValue;
+
+		overlapRelation.set(i, j, value);
+	}
+
+	/**
+	 * Sets UPPER to the cell (i, j) and LOWER to (j, i).
+	 */
+	public void setUpper(final int i, final int j) {
+		set(i, j, OverlapRelationValues.UPPER);
+	}
+
+	/**
+	 * @return a mark which can be given to {@link #undo(int)} to restore the
+	 *         current state of the working matrix.
+	 */
+	public int mark() {
+		return entryCount;
+	}
+
+	/**
+	 * Restores the working matrix to the state when {@code mark} was taken.
+	 *
+	 * @param mark
+	 *            a value returned by {@link #mark()}.
+	 */
+	public void undo(final int mark) {
+		while (entryCount > mark) {
+			var oldValue = entries[--entryCount];
+			var j = entries[--entryCount];
+			var i = entries[--entryCount];
+			overlapRelation.set(i, j, oldValue);
+		}
+	}
+
+	/**
+	 * @param mark
+	 *            a value returned by {@link #mark()}.
+	 * @return (i, j, current value) triples of the cells written after
+	 *         {@code mark} was taken.
+	 */
+	public int[] getChangesSince(final int mark) {
+		var changes = Arrays.copyOfRange(entries, mark, entryCount);
+		for (int e = 0; e < changes.length; e += ENTRY_SIZE) {
+			changes[e + 2] = overlapRelation.get(changes[e], changes[e + 1]);
+		}
+		return changes;
+	}
+
+	/**
+	 * @return the number of writes which can be undone.
+	 */
+	public int size() {
+		return entryCount / ENTRY_SIZE;
+	}
+}
@@ -0,0 +1,130 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.origeom;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * Transitive closure of the "above" relation among the parent faces of a
+ * subface: if a > b and b > c then a > c. The relation of each face is held
+ * as a row of {@code long} words, and the closure is computed by
+ * Warshall's algorithm where a row is merged into another by word-parallel
+ * OR. Since the overlap relation matrix is antisymmetric, the "below"
+ * relation is the transpose and is not held separately.
+ *
+ * The buffers are reused among calls, so an instance should not be shared by
+ * threads.
+ */
+public class TransitiveClosure {
+	/**
+	 * above[i] has bit j if face i is above face j, where i and j are the
+	 * indices in the given face IDs.
+	 */
+	private long[][] above = new long[0][];
+	/**
+	 * the relation given by the matrix, which is used to find the new pairs.
+	 */
+	private long[][] given = new long[0][];
+
+	/**
+	 * Computes the closure of the relation among the given faces and tells
+	 * the pairs which are not {@link OverlapRelationValues#UPPER} in
+	 * {@code orMat} but are found above by the closure. This method doesn't
+	 * modify {@code orMat}. If the relation has a cycle, no pair is told since
+	 * the faces have no order.
+	 *
+	 * @param faceIDs
+	 *            IDs of the faces sharing a subface.
+	 * @param orMat
+	 *            overlap relation matrix.
+	 * @param newUpperConsumer
+	 *            receives the IDs of face_i and face_j for each pair such
+	 *            that face_i is found above face_j.
+	 * @return false if a face is found above itself, i.e., the relation
+	 *         contradicts itself.
+	 */
+	public boolean close(final int[] faceIDs, final OverlapRelation orMat,
+			final BiConsumer<Integer, Integer> newUpperConsumer) {
+		int size = faceIDs.length;
+		int wordCount = (size + 63) >>> 6;
+		prepareBuffers(size, wordCount);
+
+		for (int i = 0; i < size; i++) {
+			for (int j = i + 1; j < size; j++) {
+				var value = orMat.get(faceIDs[i], faceIDs[j]);
+				if (value == OverlapRelationValues.UPPER) {
+					above[i][j >>> 6] |= 1L << j;
+				} else if (value == OverlapRelationValues.LOWER) {
+					above[j][i >>> 6] |= 1L << i;
+				}
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			System.arraycopy(above[i], 0, given[i], 0, wordCount);
+		}
+
+		// Warshall's algorithm
+		for (int k = 0; k < size; k++) {
+			var above_k = above[k];
+			int kWord = k >>> 6;
+			long kBit = 1L << k;
+			for (int i = 0; i < size; i++) {
+				var above_i = above[i];
+				if ((above_i[kWord] & kBit) == 0) {
+					continue;
+				}
+				for (int w = 0; w < wordCount; w++) {
+					above_i[w] |= above_k[w];
+				}
+			}
+		}
+
+		for (int i = 0; i < size; i++) {
+			if ((above[i][i >>> 6] & (1L << i)) != 0) {
+				return false;
+			}
+		}
+
+		for (int i = 0; i < size; i++) {
+			for (int w = 0; w < wordCount; w++) {
+				long newBits = above[i][w] & ~given[i][w];
+				while (newBits != 0) {
+					int j = (w << 6) + Long.numberOfTrailingZeros(newBits);
+					newBits &= newBits - 1;
+					newUpperConsumer.accept(faceIDs[i], faceIDs[j]);
+				}
+			}
+		}
+		return true;
+	}
+
+	private void prepareBuffers(final int size, final int wordCount) {
+		if (above.length < size || (size > 0 && above[0].length < wordCount)) {
+			int capacity = Math.max(size, above.length);
+			int capacityWords = (capacity + 63) >>> 6;
+			above = new long[capacity][capacityWords];
+			given = new long[capacity][capacityWords];
+			return;
+		}
+		for (int i = 0; i < size; i++) {
+			Arrays.fill(above[i], 0, wordCount, 0L);
+		}
+	}
+}
@@ -0,0 +1,543 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.sat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A small CDCL SAT solver with two watched literals, first-UIP clause
+ * learning, VSIDS decision heuristic, phase saving and Luby restarts.
+ * Variables are positive integers and literals are given in DIMACS style,
+ * that is, {@code v} for the variable and {@code -v} for its negation.
+ * Clauses can be added between calls of {@link #solve()}, which allows to
+ * enumerate models by adding blocking clauses.
+ *
+ * This class is not thread-safe.
+ */
+public class CdclSolver {
+	private static final int UNASSIGNED = -1;
+	private static final int NO_REASON = -1;
+	private static final int RESTART_UNIT = 100;
+	private static final double ACTIVITY_DECAY = 0.95;
+
+	private int variableCount = 0;
+
+	/**
+	 * clauses whose first two literals are watched. Literals are encoded as
+	 * 2 * (v - 1) for v and 2 * (v - 1) + 1 for -v.
+	 */
+	private final List<int[]> clauses = new ArrayList<>();
+
+	/**
+	 * indices of the clauses watching each literal.
+	 */
+	private int[][] watches = new int[0][];
+	private int[] watchSizes = new int[0];
+
+	/**
+	 * value of each variable: 1 for true, 0 for false, or
+	 * {@link #UNASSIGNED}.
+	 */
+	private int[] values = new int[0];
+	private int[] levels = new int[0];
+	private int[] reasons = new int[0];
+	private boolean[] savedPhases = new boolean[0];
+	private double[] activities = new double[0];
+	private double activityIncrement = 1;
+
+	private int[] trail = new int[0];
+	private int trailSize = 0;
+	private int propagatedCount = 0;
+	private final List<Integer> trailLimits = new ArrayList<>();
+
+	/**
+	 * binary max-heap of unassigned variables ordered by activity.
+	 */
+	private int[] heap = new int[0];
+	private int heapSize = 0;
+	private int[] heapIndices = new int[0];
+
+	private boolean inconsistent = false;
+
+	private long conflictCount = 0;
+	private long decisionCount = 0;
+
+	private final List<Integer> learnt = new ArrayList<>();
+	private boolean[] seen = new boolean[0];
+
+	/**
+	 * Adds a new variable.
+	 *
+	 * @return the variable, which is a positive integer.
+	 */
+	public int newVariable() {
+		int v = variableCount++;
+		values = grow(values, variableCount);
+		values[v] = UNASSIGNED;
+		levels = grow(levels, variableCount);
+		reasons = grow(reasons, variableCount);
+		reasons[v] = NO_REASON;
+		savedPhases = Arrays.copyOf(savedPhases, variableCount);
+		activities = Arrays.copyOf(activities, variableCount);
+		seen = Arrays.copyOf(seen, variableCount);
+		trail = grow(trail, variableCount);
+
+		watches = Arrays.copyOf(watches, variableCount * 2);
+		watchSizes = Arrays.copyOf(watchSizes, variableCount * 2);
+		watches[2 * v] = new int[4];
+		watches[2 * v + 1] = new int[4];
+
+		heap = grow(heap, variableCount);
+		heapIndices = grow(heapIndices, variableCount);
+		heapIndices[v] = -1;
+		insertToHeap(v);
+
+		return v + 1;
+	}
+
+	private int[] grow(final int[] array, final int minSize) {
+		return array.length >= minSize ? array : Arrays.copyOf(array, Math.max(minSize, array.length * 2));
+	}
+
+	/**
+	 * @return the number of variables.
+	 */
+	public int getVariableCount() {
+		return variableCount;
+	}
+
+	/**
+	 * Adds a clause. The solver should not be in the middle of
+	 * {@link #solve()}.
+	 *
+	 * @param literals
+	 *            DIMACS style literals.
+	 * @return false if the clauses have become unsatisfiable.
+	 */
+	public boolean addClause(final int... literals) {
+		cancelUntil(0);
+		if (inconsistent) {
+			return false;
+		}
+
+		var clause = new ArrayList<Integer>();
+		for (var literal : literals) {
+			int lit = toInternal(literal);
+			int value = valueOf(lit);
+			if (value == 1 || clause.contains(lit ^ 1)) {
+				// satisfied at level 0 or tautology
+				return true;
+			}
+			if (value == 0 || clause.contains(lit)) {
+				continue;
+			}
+			clause.add(lit);
+		}
+
+		if (clause.isEmpty()) {
+			inconsistent = true;
+			return false;
+		}
+		if (clause.size() == 1) {
+			enqueue(clause.get(0), NO_REASON);
+			if (propagate() != NO_REASON) {
+				inconsistent = true;
+				return false;
+			}
+			return true;
+		}
+
+		attach(clause.stream().mapToInt(Integer::intValue).toArray());
+		return true;
+	}
+
+	/**
+	 * Searches a model of the clauses.
+	 *
+	 * @return true if satisfiable. The model can be read by
+	 *         {@link #getValue(int)} until the next modification.
+	 */
+	public boolean solve() {
+		if (inconsistent) {
+			return false;
+		}
+
+		for (int restart = 0;; restart++) {
+			var result = search(RESTART_UNIT * luby(restart));
+			if (result != null) {
+				if (!result) {
+					inconsistent = true;
+				}
+				return result;
+			}
+		}
+	}
+
+	/**
+	 * @param variable
+	 *            a variable.
+	 * @return the value of the variable in the last model.
+	 */
+	public boolean getValue(final int variable) {
+		return values[variable - 1] == 1;
+	}
+
+	/**
+	 * @return the number of conflicts so far.
+	 */
+	public long getConflictCount() {
+		return conflictCount;
+	}
+
+	/**
+	 * @return the number of decisions so far.
+	 */
+	public long getDecisionCount() {
+		return decisionCount;
+	}
+
+	/**
+	 * CDCL loop until a model is found, the clauses are found unsatisfiable,
+	 * or the number of conflicts reaches the limit.
+	 *
+	 * @return true for a model, false for unsatisfiable, or null for restart.
+	 */
+	private Boolean search(final long conflictLimit) {
+		long conflicts = 0;
+		while (true) {
+			int conflict = propagate();
+			if (conflict != NO_REASON) {
+				conflictCount++;
+				conflicts++;
+				if (trailLimits.isEmpty()) {
+					return false;
+				}
+				int backjumpLevel = analyze(conflict);
+				cancelUntil(backjumpLevel);
+
+				var clause = learnt.stream().mapToInt(Integer::intValue).toArray();
+				if (clause.length == 1) {
+					enqueue(clause[0], NO_REASON);
+				} else {
+					int index = attach(clause);
+					enqueue(clause[0], index);
+				}
+				decayActivities();
+				continue;
+			}
+
+			if (conflicts >= conflictLimit) {
+				cancelUntil(0);
+				return null;
+			}
+
+			int v = pickBranchVariable();
+			if (v < 0) {
+				return true;
+			}
+			decisionCount++;
+			trailLimits.add(trailSize);
+			enqueue(2 * v + (savedPhases[v] ? 0 : 1), NO_REASON);
+		}
+	}
+
+	/**
+	 * @return the index of a conflicting clause, or {@link #NO_REASON}.
+	 */
+	private int propagate() {
+		while (propagatedCount < trailSize) {
+			int falseLit = trail[propagatedCount++] ^ 1;
+			var watchList = watches[falseLit];
+			int size = watchSizes[falseLit];
+			int kept = 0;
+			int i = 0;
+			for (; i < size; i++) {
+				int index = watchList[i];
+				var clause = clauses.get(index);
+				if (clause[0] == falseLit) {
+					clause[0] = clause[1];
+					clause[1] = falseLit;
+				}
+				if (valueOf(clause[0]) == 1) {
+					watchList[kept++] = index;
+					continue;
+				}
+				boolean moved = false;
+				for (int k = 2; k < clause.length; k++) {
+					if (valueOf(clause[k]) != 0) {
+						clause[1] = clause[k];
+						clause[k] = falseLit;
+						addWatch(clause[1], index);
+						moved = true;
+						break;
+					}
+				}
+				if (moved) {
+					continue;
+				}
+				watchList[kept++] = index;
+				if (valueOf(clause[0]) == 0) {
+					// conflict: keep the rest of watches.
+					for (i++; i < size; i++) {
+						watchList[kept++] = watchList[i];
+					}
+					watchSizes[falseLit] = kept;
+					propagatedCount = trailSize;
+					return index;
+				}
+				enqueue(clause[0], index);
+			}
+			watchSizes[falseLit] = kept;
+		}
+		return NO_REASON;
+	}
+
+	/**
+	 * Computes the first-UIP clause into {@link #learnt}, whose first literal
+	 * is the asserting one.
+	 *
+	 * @return the level to jump back.
+	 */
+	private int analyze(final int conflict) {
+		learnt.clear();
+		learnt.add(-1);
+
+		int currentLevel = trailLimits.size();
+		int pathCount = 0;
+		int lit = -1;
+		int index = trailSize - 1;
+		int reason = conflict;
+
+		do {
+			var clause = clauses.get(reason);
+			for (int k = (lit == -1 ? 0 : 1); k < clause.length; k++) {
+				int q = clause[k];
+				int v = q >>> 1;
+				if (seen[v] || levels[v] == 0) {
+					continue;
+				}
+				seen[v] = true;
+				bumpActivity(v);
+				if (levels[v] == currentLevel) {
+					pathCount++;
+				} else {
+					learnt.add(q);
+				}
+			}
+			while (!seen[trail[index] >>> 1]) {
+				index--;
+			}
+			lit = trail[index--];
+			seen[lit >>> 1] = false;
+			reason = reasons[lit >>> 1];
+			pathCount--;
+		} while (pathCount > 0);
+
+		learnt.set(0, lit ^ 1);
+
+		int backjumpLevel = 0;
+		int maxIndex = 1;
+		for (int k = 1; k < learnt.size(); k++) {
+			int v = learnt.get(k) >>> 1;
+			seen[v] = false;
+			if (levels[v] > backjumpLevel) {
+				backjumpLevel = levels[v];
+				maxIndex = k;
+			}
+		}
+		// the literal of the backjump level should be watched.
+		if (learnt.size() > 1) {
+			var tmp = learnt.get(1);
+			learnt.set(1, learnt.get(maxIndex));
+			learnt.set(maxIndex, tmp);
+		}
+		return backjumpLevel;
+	}
+
+	private int attach(final int[] clause) {
+		int index = clauses.size();
+		clauses.add(clause);
+		addWatch(clause[0], index);
+		addWatch(clause[1], index);
+		return index;
+	}
+
+	private void addWatch(final int lit, final int index) {
+		if (watchSizes[lit] == watches[lit].length) {
+			watches[lit] = Arrays.copyOf(watches[lit], watches[lit].length * 2);
+		}
+		watches[lit][watchSizes[lit]++] = index;
+	}
+
+	private void enqueue(final int lit, final int reason) {
+		int v = lit >>> 1;
+		values[v] = (lit & 1) == 0 ? 1 : 0;
+		levels[v] = trailLimits.size();
+		reasons[v] = reason;
+		trail[trailSize++] = lit;
+	}
+
+	private void cancelUntil(final int level) {
+		if (trailLimits.size() <= level) {
+			return;
+		}
+		int limit = trailLimits.get(level);
+		for (int k = trailSize - 1; k >= limit; k--) {
+			int v = trail[k] >>> 1;
+			savedPhases[v] = values[v] == 1;
+			values[v] = UNASSIGNED;
+			reasons[v] = NO_REASON;
+			insertToHeap(v);
+		}
+		trailSize = limit;
+		propagatedCount = limit;
+		while (trailLimits.size() > level) {
+			trailLimits.remove(trailLimits.size() - 1);
+		}
+	}
+
+	/**
+	 * @return 1 if the literal is true, 0 if false, or {@link #UNASSIGNED}.
+	 */
+	private int valueOf(final int lit) {
+		int value = values[lit >>> 1];
+		return value == UNASSIGNED ? UNASSIGNED : value ^ (lit & 1);
+	}
+
+	private int toInternal(final int literal) {
+		int v = Math.abs(literal) - 1;
+		if (literal == 0 || v >= variableCount) {
+			throw new IllegalArgumentException("unknown variable: " + literal);
+		}
+		return 2 * v + (literal < 0 ? 1 : 0);
+	}
+
+	private int pickBranchVariable() {
+		while (heapSize > 0) {
+			int v = removeMaxFromHeap();
+			if (values[v] == UNASSIGNED) {
+				return v;
+			}
+		}
+		return -1;
+	}
+
+	private void bumpActivity(final int v) {
+		activities[v] += activityIncrement;
+		if (activities[v] > 1e100) {
+			for (int u = 0; u < variableCount; u++) {
+				activities[u] *= 1e-100;
+			}
+			activityIncrement *= 1e-100;
+		}
+		if (heapIndices[v] >= 0) {
+			siftUp(heapIndices[v]);
+		}
+	}
+
+	private void decayActivities() {
+		activityIncrement /= ACTIVITY_DECAY;
+	}
+
+	private void insertToHeap(final int v) {
+		if (heapIndices[v] >= 0) {
+			return;
+		}
+		heap[heapSize] = v;
+		heapIndices[v] = heapSize;
+		siftUp(heapSize++);
+	}
+
+	private int removeMaxFromHeap() {
+		int v = heap[0];
+		heapIndices[v] = -1;
+		heapSize--;
+		if (heapSize > 0) {
+			heap[0] = heap[heapSize];
+			heapIndices[heap[0]] = 0;
+			siftDown(0);
+		}
+		return v;
+	}
+
+	/**
+	 * Whether u should be above v in the heap. Ties are broken by the
+	 * smaller variable for determinism.
+	 */
+	private boolean isPrior(final int u, final int v) {
+		return activities[u] > activities[v] || (activities[u] == activities[v] && u < v);
+	}
+
+	private void siftUp(int i) {
+		int v = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (!isPrior(v, heap[parent])) {
+				break;
+			}
+			heap[i] = heap[parent];
+			heapIndices[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = v;
+		heapIndices[v] = i;
+	}
+
+	private void siftDown(int i) {
+		int v = heap[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child + 1 < heapSize && isPrior(heap[child + 1], heap[child])) {
+				child++;
+			}
+			if (!isPrior(heap[child], v)) {
+				break;
+			}
+			heap[i] = heap[child];
+			heapIndices[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = v;
+		heapIndices[v] = i;
+	}
+
+	/**
+	 * @return the i-th element of the Luby sequence 1, 1, 2, 1, 1, 2, 4, ...
+	 */
+	private static long luby(final int i) {
+		int size = 1;
+		int sequence = 0;
+		while (size < i + 1) {
+			sequence++;
+			size = 2 * size + 1;
+		}
+		int x = i;
+		while (size - 1 != x) {
+			size = (size - 1) >>> 1;
+			sequence--;
+			x = x % size;
+		}
+		return 1L << sequence;
+	}
+}
@@ -0,0 +1,391 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.subface;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import oripa.domain.fold.halfedge.OriFace;
+import oripa.domain.fold.origeom.OverlapRelation;
+import oripa.domain.fold.stackcond.StackConditionOf3Faces;
+import oripa.domain.fold.stackcond.StackConditionOf4Faces;
+
+/**
+ * Candidate stacks of a subface, which are generated on demand. The
+ * generator is a resumable depth-first search over the parent faces, so the
+ * stacks are in lexicographic order of the indices of the parent faces. A
+ * subface with at most 64 parent faces uses {@link BitMaskStackEnumerator}
+ * and the others use {@link DepthFirstStackEnumerator}.
+ *
+ * The first stacks up to the capacity are kept as indices of the parent faces
+ * in one {@code int[]} prefix shared by all readers. The stacks after the
+ * prefix are not kept: each {@link Cursor} has its own generator for them and
+ * holds only the current stack, so that parallel searches walking the same
+ * subface don't disturb each other.
+ */
+public class AnswerStacks implements Iterable<List<OriFace>> {
+	/**
+	 * default number of stacks kept in the prefix.
+	 */
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	private static final AnswerStacks EMPTY = new AnswerStacks();
+
+	private final List<OriFace> parentFaces;
+	private final int faceCount;
+	private final int capacity;
+
+	private final StackConstraints constraints;
+
+	/**
+	 * generator of the prefix, which is used under the lock of this object.
+	 */
+	private final StackEnumerator prefixEnumerator;
+
+	/**
+	 * the prefix is published by writing {@link #prefixCount} after the
+	 * stacks, so that readers of the generated stacks don't need the lock.
+	 */
+	private volatile int[] prefix = new int[0];
+	private volatile int prefixCount = 0;
+
+	/**
+	 * the number of all stacks, or -1 if not known yet.
+	 */
+	private volatile int size = -1;
+
+	/**
+	 * cursor for {@link #get(int)} after the prefix.
+	 */
+	private Cursor randomAccessCursor;
+
+	private AnswerStacks() {
+		parentFaces = List.of();
+		faceCount = 0;
+		capacity = 0;
+		constraints = null;
+		prefixEnumerator = null;
+		size = 0;
+	}
+
+	/**
+	 *
+	 * @param parentFaces
+	 *            faces of the subface.
+	 * @param condition3s
+	 *            stack conditions of 3 faces of the subface.
+	 * @param condition4s
+	 *            stack conditions of 4 faces of the subface.
+	 * @param orMat
+	 *            overlap relation matrix after estimation.
+	 * @param capacity
+	 *            the number of stacks kept in the prefix.
+	 */
+	public AnswerStacks(final List<OriFace> parentFaces,
+			final List<StackConditionOf3Faces> condition3s, final List<StackConditionOf4Faces> condition4s,
+			final OverlapRelation orMat, final int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity should be positive.");
+		}
+
+		this.parentFaces = new ArrayList<>(parentFaces);
+		this.capacity = capacity;
+		faceCount = parentFaces.size();
+
+		constraints = new StackConstraints(parentFaces, condition3s, condition4s, orMat);
+		prefixEnumerator = createEnumerator();
+	}
+
+	private StackEnumerator createEnumerator() {
+		return faceCount <= BitMaskStackEnumerator.MAX_FACE_COUNT
+				? new BitMaskStackEnumerator(constraints)
+				: new DepthFirstStackEnumerator(constraints);
+	}
+
+	/**
+	 * @return stacks of a subface whose order is decided.
+	 */
+	public static AnswerStacks empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * Random access to the stacks. A stack after the prefix is generated from
+	 * the beginning unless it follows the last one accessed, so sequential
+	 * access should use {@link #cursor()}.
+	 *
+	 * @param index
+	 *            index of a stack.
+	 * @return true if the stack of the index exists.
+	 */
+	public boolean has(final int index) {
+		if (index < 0) {
+			return false;
+		}
+		if (index < capacity) {
+			return loadPrefix(index);
+		}
+		return seekRandomAccessCursor(index) != null;
+	}
+
+	/**
+	 * Random access to the stacks in the way of {@link #has(int)}.
+	 *
+	 * @param index
+	 *            index of a stack.
+	 * @return faces of the stack from the top.
+	 * @throws IndexOutOfBoundsException
+	 *             if the stack doesn't exist.
+	 */
+	public List<OriFace> get(final int index) {
+		if (index < 0) {
+			throw new IndexOutOfBoundsException(index);
+		}
+		if (index < capacity) {
+			if (!loadPrefix(index)) {
+				throw new IndexOutOfBoundsException(index);
+			}
+			return getFromPrefix(index);
+		}
+		var stack = seekRandomAccessCursor(index);
+		if (stack == null) {
+			throw new IndexOutOfBoundsException(index);
+		}
+		return stack;
+	}
+
+	/**
+	 *
+	 * @param limit
+	 *            upper bound of the result.
+	 * @return the number of stacks if it is smaller than {@code limit},
+	 *         otherwise {@code limit}.
+	 */
+	public int count(final int limit) {
+		if (limit <= 0) {
+			return 0;
+		}
+		if (size >= 0) {
+			return Math.min(size, limit);
+		}
+		if (limit <= capacity) {
+			return loadPrefix(limit - 1) ? limit : size;
+		}
+		var cursor = cursor();
+		int count = 0;
+		while (count < limit && cursor.hasNext()) {
+			cursor.next();
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * @return true if there is no stack.
+	 */
+	public boolean isEmpty() {
+		return !has(0);
+	}
+
+	/**
+	 * @return a new cursor at the first stack, which should be used by one
+	 *         thread.
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	@Override
+	public Iterator<List<OriFace>> iterator() {
+		return cursor();
+	}
+
+	/**
+	 * Generates the prefix until the stack of the index.
+	 *
+	 * @param index
+	 *            index smaller than the capacity.
+	 * @return true if the stack exists.
+	 */
+	private boolean loadPrefix(final int index) {
+		if (index < prefixCount) {
+			return true;
+		}
+		synchronized (this) {
+			if (size >= 0 && index >= size) {
+				return false;
+			}
+			prefixEnumerator.resume();
+			try {
+				while (index >= prefixCount) {
+					if (!prefixEnumerator.next()) {
+						size = prefixCount;
+						return false;
+					}
+					storePrefix(prefixEnumerator.getStack());
+				}
+				return true;
+			} finally {
+				prefixEnumerator.suspend();
+			}
+		}
+	}
+
+	private void storePrefix(final int[] stack) {
+		var offset = prefixCount * faceCount;
+		if (prefix.length < offset + faceCount) {
+			prefix = Arrays.copyOf(prefix,
+					Math.min(Math.max(prefix.length * 2, faceCount), capacity * faceCount));
+		}
+		System.arraycopy(stack, 0, prefix, offset, faceCount);
+		prefixCount++;
+	}
+
+	private List<OriFace> getFromPrefix(final int index) {
+		var offset = index * faceCount;
+		return new StackView(Arrays.copyOfRange(prefix, offset, offset + faceCount));
+	}
+
+	/**
+	 * @return the stack of the index, or null if it doesn't exist.
+	 */
+	private synchronized List<OriFace> seekRandomAccessCursor(final int index) {
+		if (randomAccessCursor == null || randomAccessCursor.nextIndex() > index + 1) {
+			randomAccessCursor = cursor();
+		}
+		List<OriFace> stack = randomAccessCursor.current;
+		while (randomAccessCursor.nextIndex() <= index) {
+			if (!randomAccessCursor.hasNext()) {
+				return null;
+			}
+			stack = randomAccessCursor.next();
+		}
+		return stack;
+	}
+
+	/**
+	 * Sequential reader of the stacks. The stacks in the prefix are read
+	 * from the shared prefix, and the ones after it are generated by the
+	 * cursor's own generator.
+	 */
+	public class Cursor implements Iterator<List<OriFace>> {
+		private int index = 0;
+		private List<OriFace> current;
+
+		/**
+		 * generator after the prefix, which is created when the cursor
+		 * leaves the prefix. Its current stack is the one of
+		 * {@code generatedCount - 1}.
+		 */
+		private StackEnumerator enumerator;
+		private int generatedCount = 0;
+		private boolean exhausted = false;
+
+		private Cursor() {
+		}
+
+		/**
+		 * @return the index of the stack which {@link #next()} returns.
+		 */
+		public int nextIndex() {
+			return index;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (index < capacity) {
+				return loadPrefix(index);
+			}
+			if (size >= 0 && index >= size) {
+				return false;
+			}
+			return generate();
+		}
+
+		@Override
+		public List<OriFace> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			current = index < capacity
+					? getFromPrefix(index)
+					: new StackView(enumerator.getStack().clone());
+			index++;
+			return current;
+		}
+
+		/**
+		 * Lets the generator reach the stack of {@link #index}. The first
+		 * call skips the stacks in the prefix.
+		 *
+		 * @return true if the stack exists.
+		 */
+		private boolean generate() {
+			if (generatedCount > index) {
+				return true;
+			}
+			if (exhausted) {
+				return false;
+			}
+			if (enumerator == null) {
+				enumerator = createEnumerator();
+				enumerator.restart();
+			}
+			enumerator.resume();
+			try {
+				while (generatedCount <= index) {
+					if (!enumerator.next()) {
+						exhausted = true;
+						size = generatedCount;
+						return false;
+					}
+					generatedCount++;
+				}
+				return true;
+			} finally {
+				enumerator.suspend();
+			}
+		}
+	}
+
+	/**
+	 * Faces of a stack decoded from the indices of parent faces.
+	 */
+	private class StackView extends AbstractList<OriFace> {
+		private final int[] indices;
+
+		StackView(final int[] indices) {
+			this.indices = indices;
+		}
+
+		@Override
+		public OriFace get(final int index) {
+			return parentFaces.get(indices[index]);
+		}
+
+		@Override
+		public int size() {
+			return indices.length;
+		}
+	}
+}
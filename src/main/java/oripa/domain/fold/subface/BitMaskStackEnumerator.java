@@ -0,0 +1,233 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.subface;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Stack enumerator for at most 64 parent faces. The stacked faces are a bit
+ * mask of the indices of parent faces and each condition is a few mask
+ * tests. A face out of the subface is never stacked, so the conditions which
+ * need such a face to be stacked are dropped and the ones which need it not
+ * to be stacked have an empty mask for it.
+ */
+class BitMaskStackEnumerator implements StackEnumerator {
+	/**
+	 * the maximum number of parent faces.
+	 */
+	static final int MAX_FACE_COUNT = Long.SIZE;
+
+	private final int faceCount;
+	private final long allFaces;
+
+	/**
+	 * faces which should be stacked before each face.
+	 */
+	private final long[] requiredMasks;
+
+	/**
+	 * pairs of (lower, upper) masks for each face.
+	 */
+	private final long[][] condition3Masks;
+
+	/**
+	 * triples of (a | b, c, a) masks for each face. The index of b is in
+	 * {@link #condition4Indices}.
+	 */
+	private final long[][] condition4Masks;
+	private final int[][] condition4Indices;
+
+	// resumable position of the depth-first search
+	private final int[] stack;
+	private final int[] cursors;
+	/**
+	 * faces stacked before each face.
+	 */
+	private final long[] predecessorMasks;
+	private long stackedMask = 0;
+	private int depth = 0;
+	private boolean exhausted = false;
+
+	BitMaskStackEnumerator(final StackConstraints constraints) {
+		faceCount = constraints.getFaceCount();
+		if (faceCount > MAX_FACE_COUNT) {
+			throw new IllegalArgumentException("too many faces for bit mask: " + faceCount);
+		}
+		allFaces = faceCount == MAX_FACE_COUNT ? -1L : (1L << faceCount) - 1;
+
+		var localIndices = new HashMap<Integer, Integer>();
+		for (int i = 0; i < faceCount; i++) {
+			localIndices.put(constraints.faceIDs[i], i);
+		}
+
+		requiredMasks = new long[faceCount];
+		condition3Masks = new long[faceCount][];
+		condition4Masks = new long[faceCount][];
+		condition4Indices = new int[faceCount][];
+
+		for (int i = 0; i < faceCount; i++) {
+			for (var required : constraints.requiredFaces[i]) {
+				requiredMasks[i] |= toMask(localIndices, required);
+			}
+
+			var conds3 = constraints.condition3s[i];
+			var masks3 = new long[conds3.length];
+			int count3 = 0;
+			for (int k = 0; k < conds3.length; k += 2) {
+				var lower = toMask(localIndices, conds3[k]);
+				if (lower == 0) {
+					continue;
+				}
+				masks3[count3++] = lower;
+				masks3[count3++] = toMask(localIndices, conds3[k + 1]);
+			}
+			condition3Masks[i] = Arrays.copyOf(masks3, count3);
+
+			var conds4 = constraints.condition4s[i];
+			var masks4 = new long[conds4.length];
+			var indices4 = new int[conds4.length / 3];
+			int count4 = 0;
+			for (int k = 0; k < conds4.length; k += 3) {
+				var a = toMask(localIndices, conds4[k]);
+				var b = toMask(localIndices, conds4[k + 1]);
+				if (a == 0 || b == 0) {
+					continue;
+				}
+				indices4[count4 / 3] = localIndices.get(conds4[k + 1]);
+				masks4[count4++] = a | b;
+				masks4[count4++] = toMask(localIndices, conds4[k + 2]);
+				masks4[count4++] = a;
+			}
+			condition4Masks[i] = Arrays.copyOf(masks4, count4);
+			condition4Indices[i] = Arrays.copyOf(indices4, count4 / 3);
+		}
+
+		stack = new int[faceCount];
+		cursors = new int[faceCount + 1];
+		predecessorMasks = new long[faceCount];
+	}
+
+	/**
+	 * @return the bit of the face, or 0 if the face is out of the subface.
+	 */
+	private long toMask(final HashMap<Integer, Integer> localIndices, final int faceID) {
+		var index = localIndices.get(faceID);
+		return index == null ? 0 : 1L << index;
+	}
+
+	@Override
+	public void restart() {
+		depth = 0;
+		stackedMask = 0;
+		cursors[0] = 0;
+		exhausted = false;
+	}
+
+	@Override
+	public void resume() {
+	}
+
+	@Override
+	public void suspend() {
+	}
+
+	@Override
+	public boolean next() {
+		if (exhausted) {
+			return false;
+		}
+		if (depth == faceCount && faceCount > 0) {
+			pop();
+		}
+		while (depth < faceCount) {
+			var face = findNextCandidate();
+			if (face >= 0) {
+				push(face);
+				continue;
+			}
+			if (depth == 0) {
+				exhausted = true;
+				return false;
+			}
+			pop();
+		}
+		return true;
+	}
+
+	@Override
+	public int[] getStack() {
+		return stack;
+	}
+
+	private int findNextCandidate() {
+		var cursor = cursors[depth];
+		if (cursor >= faceCount) {
+			return -1;
+		}
+		var candidates = allFaces & ~stackedMask & (-1L << cursor);
+		while (candidates != 0) {
+			var face = Long.numberOfTrailingZeros(candidates);
+			if (canStack(face)) {
+				return face;
+			}
+			candidates &= candidates - 1;
+		}
+		return -1;
+	}
+
+	private void push(final int face) {
+		stack[depth] = face;
+		predecessorMasks[face] = stackedMask;
+		stackedMask |= 1L << face;
+		depth++;
+		cursors[depth] = 0;
+	}
+
+	private void pop() {
+		depth--;
+		var face = stack[depth];
+		stackedMask &= ~(1L << face);
+		cursors[depth] = face + 1;
+	}
+
+	private boolean canStack(final int face) {
+		if ((requiredMasks[face] & ~stackedMask) != 0) {
+			return false;
+		}
+
+		var masks3 = condition3Masks[face];
+		for (int k = 0; k < masks3.length; k += 2) {
+			if ((stackedMask & masks3[k]) != 0 && (stackedMask & masks3[k + 1]) == 0) {
+				return false;
+			}
+		}
+
+		var masks4 = condition4Masks[face];
+		var indices4 = condition4Indices[face];
+		for (int k = 0; k < masks4.length; k += 3) {
+			// a and b are stacked, c is not, and a is stacked before b.
+			if ((stackedMask & masks4[k]) == masks4[k] && (stackedMask & masks4[k + 1]) == 0
+					&& (predecessorMasks[indices4[k / 3]] & masks4[k + 2]) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
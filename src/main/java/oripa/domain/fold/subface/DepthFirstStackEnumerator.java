@@ -0,0 +1,146 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.subface;
+
+/**
+ * Stack enumerator for any number of parent faces. The stacked flags and the
+ * positions are set to {@link StackSolverContext} of the current thread
+ * while generating.
+ */
+class DepthFirstStackEnumerator implements StackEnumerator {
+	private final StackConstraints constraints;
+	private final int[] faceIDs;
+	private final int faceCount;
+
+	// resumable position of the depth-first search
+	private final int[] stack;
+	private final int[] cursors;
+	private int depth = 0;
+	private boolean exhausted = false;
+
+	private StackSolverContext context;
+
+	DepthFirstStackEnumerator(final StackConstraints constraints) {
+		this.constraints = constraints;
+		faceIDs = constraints.faceIDs;
+		faceCount = constraints.getFaceCount();
+		stack = new int[faceCount];
+		cursors = new int[faceCount + 1];
+	}
+
+	@Override
+	public void restart() {
+		depth = 0;
+		cursors[0] = 0;
+		exhausted = false;
+	}
+
+	@Override
+	public void resume() {
+		context = StackSolverContext.get(constraints.maxFaceIDBound);
+		for (int d = 0; d < depth; d++) {
+			context.stack(faceIDs[stack[d]], d);
+		}
+	}
+
+	@Override
+	public void suspend() {
+		for (int d = 0; d < depth; d++) {
+			context.unstack(faceIDs[stack[d]]);
+		}
+		context = null;
+	}
+
+	@Override
+	public boolean next() {
+		if (exhausted) {
+			return false;
+		}
+		if (depth == faceCount && faceCount > 0) {
+			pop();
+		}
+		while (depth < faceCount) {
+			var face = findNextCandidate();
+			if (face >= 0) {
+				push(face);
+				continue;
+			}
+			if (depth == 0) {
+				exhausted = true;
+				return false;
+			}
+			pop();
+		}
+		return true;
+	}
+
+	@Override
+	public int[] getStack() {
+		return stack;
+	}
+
+	private int findNextCandidate() {
+		for (int i = cursors[depth]; i < faceCount; i++) {
+			if (!context.isStacked(faceIDs[i]) && canStack(i)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void push(final int face) {
+		stack[depth] = face;
+		context.stack(faceIDs[face], depth);
+		depth++;
+		cursors[depth] = 0;
+	}
+
+	private void pop() {
+		depth--;
+		var face = stack[depth];
+		context.unstack(faceIDs[face]);
+		cursors[depth] = face + 1;
+	}
+
+	private boolean canStack(final int face) {
+		for (var required : constraints.requiredFaces[face]) {
+			if (!context.isStacked(required)) {
+				return false;
+			}
+		}
+
+		var conds3 = constraints.condition3s[face];
+		for (int k = 0; k < conds3.length; k += 2) {
+			if (context.isStacked(conds3[k]) && !context.isStacked(conds3[k + 1])) {
+				return false;
+			}
+		}
+
+		var conds4 = constraints.condition4s[face];
+		for (int k = 0; k < conds4.length; k += 3) {
+			var a = conds4[k];
+			var b = conds4[k + 1];
+			if (context.isStacked(a) && context.isStacked(b) && !context.isStacked(conds4[k + 2])
+					&& context.getPosition(a) < context.getPosition(b)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
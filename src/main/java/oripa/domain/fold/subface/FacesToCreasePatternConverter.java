@@ -24,7 +24,7 @@ import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import oripa.domain.cptool.LineAdder;
+import oripa.domain.cptool.compgeom.PlanarArrangementBuilder;
 import oripa.domain.creasepattern.CreasePatternFactory;
 import oripa.domain.creasepattern.CreasePatternInterface;
 import oripa.domain.fold.halfedge.OriFace;
@@ -39,15 +39,21 @@ public class FacesToCreasePatternConverter {
 			.getLogger(FacesToCreasePatternConverter.class);
 
 	private final CreasePatternFactory cpFactory;
-	private final LineAdder lineAdder;
+	private final PlanarArrangementBuilder arrangementBuilder;
 
 	/**
 	 * Constructor
+	 *
+	 * @param cpFactory
+	 *            is used to create the crease pattern of the split lines.
+	 * @param arrangementBuilder
+	 *            is used to split the edges of the faces at their
+	 *            intersections.
 	 */
 	public FacesToCreasePatternConverter(final CreasePatternFactory cpFactory,
-			final LineAdder lineAdder) {
+			final PlanarArrangementBuilder arrangementBuilder) {
 		this.cpFactory = cpFactory;
-		this.lineAdder = lineAdder;
+		this.arrangementBuilder = arrangementBuilder;
 	}
 
 	/**
@@ -64,16 +70,15 @@ public class FacesToCreasePatternConverter {
 		var lines = new ArrayList<OriLine>();
 		for (OriFace face : faces) {
 			face.halfedgeStream().forEach(he -> {
-				OriLine line = new OriLine(he.getPosition(), he.getNext().getPosition(),
-						OriLine.Type.MOUNTAIN);
-				// make cross every time to divide the faces.
-				// addLines() cannot make cross among given lines.
-				lineAdder.addLine(line, lines);
-
+				lines.add(new OriLine(he.getPosition(), he.getNext().getPosition(),
+						OriLine.Type.MOUNTAIN));
 			});
 		}
-		CreasePatternInterface creasePattern = cpFactory.createCreasePattern(lines);
-		creasePattern.cleanDuplicatedLines();
+
+		// split all edges at once to divide the faces. the split lines are
+		// distinct.
+		CreasePatternInterface creasePattern = cpFactory.createCreasePattern(
+				arrangementBuilder.build(lines));
 
 		logger.debug("toCreasePattern(): end");
 
@@ -0,0 +1,54 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.subface;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Visits the subface with the fewest candidate stacks first. The subfaces
+ * whose orders are already decided are put at the beginning since they don't
+ * branch and would be visited on every branch otherwise. The order of
+ * subfaces with the same number of stacks is kept. The stacks are counted up
+ * to {@link #BRANCH_COUNT_LIMIT} since they are generated on demand.
+ */
+public class FewestStacksFirstOrdering implements SubFaceOrdering {
+	/**
+	 * subfaces with more stacks than this value are regarded as the same.
+	 */
+	static final int BRANCH_COUNT_LIMIT = 1024;
+
+	@Override
+	public List<SubFace> sort(final List<SubFace> subFaces) {
+		return subFaces.stream()
+				.sorted(Comparator.comparing(FewestStacksFirstOrdering::getBranchCount))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 *
+	 * @return the number of candidate stacks up to
+	 *         {@link #BRANCH_COUNT_LIMIT}, or -1 if the order of the subface
+	 *         is already decided.
+	 */
+	static int getBranchCount(final SubFace sub) {
+		return sub.allFaceOrderDecided ? -1 : sub.answerStacks.count(BRANCH_COUNT_LIMIT);
+	}
+}
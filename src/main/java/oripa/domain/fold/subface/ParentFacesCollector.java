@@ -20,8 +20,10 @@ package oripa.domain.fold.subface;
 
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import oripa.domain.fold.halfedge.OriFace;
+import oripa.domain.fold.origeom.FaceBoundingBoxGrid;
 
 /**
  * @author OUCHI Koji
@@ -36,4 +38,37 @@ public class ParentFacesCollector {
 				.filter(face -> face.isOnFaceExclusively(innerPoint, paperSize / 1000))
 				.collect(Collectors.toList());
 	}
+
+	/**
+	 * Collects the parent faces of all subfaces at once. The faces are indexed
+	 * by a grid of their bounding boxes so that each subface tests only the
+	 * faces whose boxes contain its inner point. The subfaces are processed in
+	 * parallel.
+	 *
+	 * @param faces
+	 *            faces after fold.
+	 * @param subFaces
+	 *            subfaces whose parents are collected.
+	 * @param paperSize
+	 *            size of the sheet of paper.
+	 * @return the parent faces of each subface in the order of
+	 *         {@code subFaces}. The parent faces are in the order of
+	 *         {@code faces}.
+	 */
+	public List<List<OriFace>> collect(final List<OriFace> faces, final List<SubFace> subFaces,
+			final double paperSize) {
+		var eps = paperSize / 1000;
+		var grid = new FaceBoundingBoxGrid(faces, eps);
+
+		return IntStream.range(0, subFaces.size()).parallel()
+				.mapToObj(s -> {
+					var innerPoint = subFaces.get(s).getInnerPoint();
+					var candidates = grid.getBoxesContaining(innerPoint);
+					return candidates.stream()
+							.mapToObj(faces::get)
+							.filter(face -> face.isOnFaceExclusively(innerPoint, eps))
+							.collect(Collectors.toList());
+				})
+				.collect(Collectors.toList());
+	}
 }
@@ -0,0 +1,68 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.subface;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import oripa.domain.fold.halfedge.OriFace;
+
+/**
+ * Canonical key of a set of parent faces: the sorted face IDs. Two keys are
+ * equal if and only if the sets of the face IDs are equal regardless of the
+ * order of the faces.
+ */
+final class ParentFacesKey {
+	private final int[] faceIDs;
+	private final int hash;
+
+	/**
+	 * @param parentFaces
+	 *            faces whose IDs are distinct.
+	 */
+	ParentFacesKey(final Collection<OriFace> parentFaces) {
+		faceIDs = parentFaces.stream()
+				.mapToInt(OriFace::getFaceID)
+				.sorted()
+				.toArray();
+		hash = Arrays.hashCode(faceIDs);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ParentFacesKey)) {
+			return false;
+		}
+		var other = (ParentFacesKey) obj;
+		return hash == other.hash && Arrays.equals(faceIDs, other.faceIDs);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(faceIDs);
+	}
+}
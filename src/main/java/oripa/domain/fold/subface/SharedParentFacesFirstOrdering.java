@@ -0,0 +1,96 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.subface;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Visits next the subface which shares the most parent faces with the
+ * subfaces already visited, so that the relations set by the previous
+ * choices restrict the stacks of the next subface as soon as possible. Ties
+ * are broken by the fewest candidate stacks and then by the given order. The
+ * subfaces whose orders are already decided are put at the beginning since
+ * they don't branch and would be visited on every branch otherwise.
+ */
+public class SharedParentFacesFirstOrdering implements SubFaceOrdering {
+	@Override
+	public List<SubFace> sort(final List<SubFace> subFaces) {
+		var undecided = new ArrayList<SubFace>();
+		var decided = new ArrayList<SubFace>();
+		for (var sub : subFaces) {
+			(sub.allFaceOrderDecided ? decided : undecided).add(sub);
+		}
+
+		// indices of undecided subfaces for each face ID.
+		Map<Integer, List<Integer>> subFacesOfFaces = new HashMap<>();
+		for (int s = 0; s < undecided.size(); s++) {
+			for (var face : undecided.get(s).parentFaces) {
+				subFacesOfFaces.computeIfAbsent(face.getFaceID(), id -> new ArrayList<>()).add(s);
+			}
+		}
+
+		// the number of parent faces shared with visited subfaces.
+		var sharedCounts = new int[undecided.size()];
+		var visited = new boolean[undecided.size()];
+		var visitedFaceIDs = new HashSet<Integer>();
+
+		var sorted = new ArrayList<SubFace>(subFaces.size());
+		sorted.addAll(decided);
+
+		for (int n = 0; n < undecided.size(); n++) {
+			int next = -1;
+			for (int s = 0; s < undecided.size(); s++) {
+				if (visited[s]) {
+					continue;
+				}
+				if (next < 0 || isPrior(undecided, sharedCounts, s, next)) {
+					next = s;
+				}
+			}
+
+			visited[next] = true;
+			var sub = undecided.get(next);
+			sorted.add(sub);
+
+			for (var face : sub.parentFaces) {
+				if (!visitedFaceIDs.add(face.getFaceID())) {
+					continue;
+				}
+				for (var s : subFacesOfFaces.get(face.getFaceID())) {
+					sharedCounts[s]++;
+				}
+			}
+		}
+
+		return sorted;
+	}
+
+	private boolean isPrior(final List<SubFace> subFaces, final int[] sharedCounts, final int s,
+			final int t) {
+		if (sharedCounts[s] != sharedCounts[t]) {
+			return sharedCounts[s] > sharedCounts[t];
+		}
+		return FewestStacksFirstOrdering.getBranchCount(subFaces.get(s)) < FewestStacksFirstOrdering
+				.getBranchCount(subFaces.get(t));
+	}
+}
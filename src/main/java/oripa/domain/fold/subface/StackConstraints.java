@@ -0,0 +1,161 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.subface;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import oripa.domain.fold.halfedge.OriFace;
+import oripa.domain.fold.origeom.OverlapRelation;
+import oripa.domain.fold.origeom.OverlapRelationValues;
+import oripa.domain.fold.stackcond.StackConditionOf3Faces;
+import oripa.domain.fold.stackcond.StackConditionOf4Faces;
+
+/**
+ * Conditions for a face to be stacked on the faces already stacked, which
+ * are given to {@link StackEnumerator}. The arrays are indexed by the index
+ * of parent face and hold face IDs.
+ */
+class StackConstraints {
+	/**
+	 * IDs of the parent faces.
+	 */
+	final int[] faceIDs;
+
+	/**
+	 * IDs of faces which should be stacked before each face.
+	 */
+	final int[][] requiredFaces;
+
+	/**
+	 * ID pairs of lower and upper for each face. The face cannot be stacked
+	 * if the lower is stacked and the upper is not.
+	 */
+	final int[][] condition3s;
+
+	/**
+	 * ID triples (a, b, c) for each face. The face cannot be stacked if a and
+	 * b are stacked in this order and c is not stacked.
+	 */
+	final int[][] condition4s;
+
+	/**
+	 * larger than the maximum face ID in the constraints.
+	 */
+	final int maxFaceIDBound;
+
+	/**
+	 *
+	 * @param parentFaces
+	 *            faces of the subface.
+	 * @param condition3s
+	 *            stack conditions of 3 faces of the subface.
+	 * @param condition4s
+	 *            stack conditions of 4 faces of the subface.
+	 * @param orMat
+	 *            overlap relation matrix after estimation.
+	 */
+	StackConstraints(final List<OriFace> parentFaces,
+			final List<StackConditionOf3Faces> condition3s, final List<StackConditionOf4Faces> condition4s,
+			final OverlapRelation orMat) {
+		int faceCount = parentFaces.size();
+		faceIDs = parentFaces.stream()
+				.mapToInt(OriFace::getFaceID)
+				.toArray();
+
+		var localIndices = new HashMap<Integer, Integer>();
+		for (int i = 0; i < faceCount; i++) {
+			localIndices.put(faceIDs[i], i);
+		}
+
+		requiredFaces = new int[faceCount][];
+		for (int i = 0; i < faceCount; i++) {
+			var required = new ArrayList<Integer>();
+			for (int j = 0; j < faceCount; j++) {
+				if (orMat.get(faceIDs[i], faceIDs[j]) == OverlapRelationValues.LOWER) {
+					required.add(faceIDs[j]);
+				}
+			}
+			requiredFaces[i] = toArray(required);
+		}
+
+		int maxFaceID = Arrays.stream(faceIDs).max().orElse(0);
+
+		var conditions = createLists(faceCount);
+		for (var cond : condition3s) {
+			var other = localIndices.get(cond.other);
+			if (other != null) {
+				conditions.get(other).addAll(List.of(cond.lower, cond.upper));
+				maxFaceID = Math.max(maxFaceID, Math.max(cond.lower, cond.upper));
+			}
+		}
+		this.condition3s = toArrays(conditions);
+
+		conditions = createLists(faceCount);
+		// aabb or abba or baab are good, but aba or bab are impossible.
+		for (var cond : condition4s) {
+			var upper1 = localIndices.get(cond.upper1);
+			var upper2 = localIndices.get(cond.upper2);
+			// stack lower2 < lower1, without upper1 being stacked, dont
+			// stack upper2
+			if (upper2 != null) {
+				conditions.get(upper2).addAll(List.of(cond.lower2, cond.lower1, cond.upper1));
+			}
+			// stack lower1 < lower2, without upper2 being stacked, dont
+			// stack upper1
+			if (upper1 != null) {
+				conditions.get(upper1).addAll(List.of(cond.lower1, cond.lower2, cond.upper2));
+			}
+			if (upper1 != null || upper2 != null) {
+				maxFaceID = Math.max(maxFaceID, Math.max(Math.max(cond.lower1, cond.lower2),
+						Math.max(cond.upper1, cond.upper2)));
+			}
+		}
+		this.condition4s = toArrays(conditions);
+
+		maxFaceIDBound = maxFaceID + 1;
+	}
+
+	/**
+	 * @return the number of parent faces.
+	 */
+	int getFaceCount() {
+		return faceIDs.length;
+	}
+
+	private List<List<Integer>> createLists(final int count) {
+		var lists = new ArrayList<List<Integer>>();
+		for (int i = 0; i < count; i++) {
+			lists.add(new ArrayList<>());
+		}
+		return lists;
+	}
+
+	private int[] toArray(final List<Integer> list) {
+		return list.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	private int[][] toArrays(final List<List<Integer>> lists) {
+		return lists.stream()
+				.map(this::toArray)
+				.toArray(int[][]::new);
+	}
+}
@@ -0,0 +1,55 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.subface;
+
+/**
+ * Resumable generator of the stacks of a subface for {@link AnswerStacks}.
+ * The stacks are generated in lexicographic order of the indices of parent
+ * faces.
+ */
+interface StackEnumerator {
+	/**
+	 * Goes back to the first stack.
+	 */
+	void restart();
+
+	/**
+	 * Prepares the generation on the current thread. It should be called
+	 * before {@link #next()}.
+	 */
+	void resume();
+
+	/**
+	 * Ends the generation on the current thread.
+	 */
+	void suspend();
+
+	/**
+	 * Generates the next stack.
+	 *
+	 * @return false if there is no more stack.
+	 */
+	boolean next();
+
+	/**
+	 * @return indices of parent faces of the last generated stack from the
+	 *         top. The array is reused by the enumerator.
+	 */
+	int[] getStack();
+}
@@ -0,0 +1,71 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.subface;
+
+import java.util.Arrays;
+
+/**
+ * Working state of {@link DepthFirstStackEnumerator}, which is indexed by
+ * face ID. Each thread has its own context so that stacks of different
+ * subfaces, or of different models sharing faces, can be generated
+ * concurrently. A generator sets its faces to the context while it runs and
+ * removes them before it returns.
+ */
+class StackSolverContext {
+	private static final ThreadLocal<StackSolverContext> CONTEXTS = ThreadLocal
+			.withInitial(StackSolverContext::new);
+
+	private boolean[] stacked = new boolean[0];
+	private int[] positions = new int[0];
+
+	/**
+	 *
+	 * @param faceCount
+	 *            larger than the maximum face ID to be used.
+	 * @return the context of the current thread.
+	 */
+	static StackSolverContext get(final int faceCount) {
+		var context = CONTEXTS.get();
+		if (context.stacked.length < faceCount) {
+			context.stacked = Arrays.copyOf(context.stacked, faceCount);
+			context.positions = Arrays.copyOf(context.positions, faceCount);
+		}
+		return context;
+	}
+
+	void stack(final int faceID, final int position) {
+		stacked[faceID] = true;
+		positions[faceID] = position;
+	}
+
+	void unstack(final int faceID) {
+		stacked[faceID] = false;
+	}
+
+	boolean isStacked(final int faceID) {
+		return stacked[faceID];
+	}
+
+	/**
+	 * @return the position of the stacked face from the top.
+	 */
+	int getPosition(final int faceID) {
+		return positions[faceID];
+	}
+}
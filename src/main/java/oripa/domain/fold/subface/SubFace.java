@@ -24,6 +24,7 @@ import java.util.List;
 import javax.vecmath.Vector2d;
 
 import oripa.domain.fold.halfedge.OriFace;
+import oripa.domain.fold.origeom.OverlapRelation;
 import oripa.domain.fold.origeom.OverlapRelationValues;
 import oripa.domain.fold.stackcond.StackConditionOf3Faces;
 import oripa.domain.fold.stackcond.StackConditionOf4Faces;
@@ -35,43 +36,41 @@ public class SubFace {
 	 * faces containing this subface.
 	 */
 	public ArrayList<OriFace> parentFaces;
-	/**
-	 * working stack
-	 */
-	private final ArrayList<OriFace> sortedParentFaces;
 //	public int tmpInt;
 	public ArrayList<StackConditionOf4Faces> condition4s = new ArrayList<>();
 	public ArrayList<StackConditionOf3Faces> condition3s = new ArrayList<>();
 	public boolean allFaceOrderDecided = false;
-	public ArrayList<ArrayList<OriFace>> answerStacks = new ArrayList<>();
+	/**
+	 * possible stacks of parent faces, which are generated on demand.
+	 */
+	public AnswerStacks answerStacks = AnswerStacks.empty();
 
 	public SubFace(final OriFace f) {
 		outline = f;
 		parentFaces = new ArrayList<>();
-		sortedParentFaces = new ArrayList<>();
 	}
 
 	/**
+	 * Prepares {@link #answerStacks}, which generates the possible stacks on
+	 * demand.
 	 *
 	 * @param modelFaces
 	 *            all faces of inputted model.
 	 * @param orMat
 	 *            overlap relation matrix.
-	 * @return the number of possible stacks.
+	 * @param stackCapacity
+	 *            the number of stacks kept in memory. See
+	 *            {@link AnswerStacks}.
 	 */
-	public int sortFaceOverlapOrder(final List<OriFace> modelFaces, final int[][] orMat) {
-		sortedParentFaces.clear();
-		for (int i = 0; i < parentFaces.size(); i++) {
-			sortedParentFaces.add(null);
-		}
-
+	public void sortFaceOverlapOrder(final List<OriFace> modelFaces, final OverlapRelation orMat,
+			final int stackCapacity) {
 		// Count the number of pending surfaces
 		int cnt = 0;
 		int f_num = parentFaces.size();
 		for (int i = 0; i < f_num; i++) {
 			for (int j = i + 1; j < f_num; j++) {
-				if (orMat[parentFaces.get(i).getFaceID()][parentFaces
-						.get(j).getFaceID()] == OverlapRelationValues.UNDEFINED) {
+				if (orMat.get(parentFaces.get(i).getFaceID(),
+						parentFaces.get(j).getFaceID()) == OverlapRelationValues.UNDEFINED) {
 					cnt++;
 				}
 			}
@@ -80,44 +79,24 @@ public class SubFace {
 		// Exit if the order is already settled
 		if (cnt == 0) {
 			allFaceOrderDecided = true;
-			return 0;
-		}
-
-		for (OriFace f : parentFaces) {
-			f.clearStackConditionsOf3Faces();
-			f.clearStackConditionsOf4Faces();
-			f.clearStackConditionsOf2Faces();
-
-			var faceID = f.getFaceID();
-			for (StackConditionOf3Faces cond : condition3s) {
-				if (faceID == cond.other) {
-					f.addStackConditionOf3Faces(cond);
-				}
-			}
-			for (StackConditionOf4Faces cond : condition4s) {
-				if (faceID == cond.upper1 || faceID == cond.upper2) {
-					f.addStackConditionOf4Faces(cond);
-				}
-			}
-
-			for (OriFace ff : parentFaces) {
-				var anotherFaceID = ff.getFaceID();
-				if (orMat[faceID][anotherFaceID] == OverlapRelationValues.LOWER) {
-					f.addStackConditionOf2Faces(Integer.valueOf(anotherFaceID));
-				}
-			}
-		}
-
-		for (OriFace f : parentFaces) {
-			f.setAlreadyStacked(false);
-			f.clearIndexForStack();
+			answerStacks = AnswerStacks.empty();
+			return;
 		}
 
-		// From the bottom
-		sort(modelFaces, 0);
+		answerStacks = new AnswerStacks(parentFaces, condition3s, condition4s, orMat, stackCapacity);
+	}
 
-		// Returns the number of solutions obtained
-		return answerStacks.size();
+	/**
+	 * Prepares {@link #answerStacks} with
+	 * {@link AnswerStacks#DEFAULT_CAPACITY}.
+	 *
+	 * @param modelFaces
+	 *            all faces of inputted model.
+	 * @param orMat
+	 *            overlap relation matrix.
+	 */
+	public void sortFaceOverlapOrder(final List<OriFace> modelFaces, final OverlapRelation orMat) {
+		sortFaceOverlapOrder(modelFaces, orMat, AnswerStacks.DEFAULT_CAPACITY);
 	}
 
 	/**
@@ -127,76 +106,4 @@ public class SubFace {
 	public Vector2d getInnerPoint() {
 		return outline.getCentroid();
 	}
-
-	private void sort(final List<OriFace> modelFaces, final int index) {
-
-		if (index == parentFaces.size()) {
-			ArrayList<OriFace> ans = new ArrayList<>(sortedParentFaces);
-			answerStacks.add(ans);
-			return;
-		}
-
-		for (OriFace f : parentFaces) {
-			if (f.isAlreadyStacked()) {
-				continue;
-			}
-
-			if (!checkConditionOf2Faces(modelFaces, f)) {
-				continue;
-			}
-
-			if (!checkForSortLocally3(modelFaces, f)) {
-				continue;
-			}
-
-			sortedParentFaces.set(index, f);
-			f.setAlreadyStacked(true);
-			f.setIndexForStack(index);
-
-			sort(modelFaces, index + 1);
-
-			sortedParentFaces.get(index).setAlreadyStacked(false);
-			sortedParentFaces.get(index).clearIndexForStack();
-			sortedParentFaces.set(index, null);
-		}
-	}
-
-	private boolean checkConditionOf2Faces(final List<OriFace> modelFaces, final OriFace f) {
-		return f.stackConditionsOf2FacesStream().allMatch(ii -> modelFaces.get(ii.intValue()).isAlreadyStacked());
-	}
-
-	private boolean checkForSortLocally3(final List<OriFace> modelFaces, final OriFace face) {
-		if (face.stackConditionOf3FacesStream().anyMatch(cond -> modelFaces.get(cond.lower).isAlreadyStacked()
-				&& !modelFaces.get(cond.upper).isAlreadyStacked())) {
-			return false;
-		}
-
-		// check condition4
-		// aabb or abba or baab are good, but aba or bab are impossible
-
-		// stack lower2 < lower1, without upper1 being stacked, dont stack
-		// upper2
-		// stack lower1 < lower2, without upper2 being stacked, dont stack
-		// upper1
-
-		if (face.stackConditionOf4FacesStream().anyMatch(cond -> face.getFaceID() == cond.upper2
-				&& modelFaces.get(cond.lower2).isAlreadyStacked()
-				&& modelFaces.get(cond.lower1).isAlreadyStacked()
-				&& !modelFaces.get(cond.upper1).isAlreadyStacked()
-				&& modelFaces.get(cond.lower2).getIndexForStack() < modelFaces
-						.get(cond.lower1).getIndexForStack())) {
-			return false;
-		}
-
-		if (face.stackConditionOf4FacesStream().anyMatch(cond -> face.getFaceID() == cond.upper1
-				&& modelFaces.get(cond.lower2).isAlreadyStacked()
-				&& modelFaces.get(cond.lower1).isAlreadyStacked()
-				&& !modelFaces.get(cond.upper2).isAlreadyStacked()
-				&& modelFaces.get(cond.lower1).getIndexForStack() < modelFaces
-						.get(cond.lower2).getIndexForStack())) {
-			return false;
-		}
-
-		return true;
-	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,38 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.subface;
+
+import java.util.List;
+
+/**
+ * Strategy of the order in which the layer ordering search visits subfaces.
+ * The order doesn't change the set of the solutions but changes how early
+ * a wrong choice of stack is pruned.
+ */
+public interface SubFaceOrdering {
+	/**
+	 *
+	 * @param subFaces
+	 *            subfaces after
+	 *            {@link SubFace#sortFaceOverlapOrder(List, oripa.domain.fold.origeom.OverlapRelation)}.
+	 *            This list will not be modified.
+	 * @return a new list of the same subfaces in the order to be searched.
+	 */
+	List<SubFace> sort(List<SubFace> subFaces);
+}
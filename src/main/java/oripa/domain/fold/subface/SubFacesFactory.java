@@ -19,6 +19,7 @@
 package oripa.domain.fold.subface;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -77,6 +78,24 @@ public class SubFacesFactory {
 	 */
 	public List<SubFace> createSubFaces(
 			final List<OriFace> faces, final double paperSize) {
+		return removeDuplicates(createSplitSubFaces(faces, paperSize));
+	}
+
+	/**
+	 * Creates a subface for each region split by the edges of the faces after
+	 * fold. Unlike {@link #createSubFaces(List, double)}, the subfaces of the
+	 * same parent faces are kept.
+	 *
+	 * @param faces
+	 *            extracted from the drawn crease pattern. This method assumes
+	 *            that the faces hold the coordinates after folding.
+	 *
+	 * @param paperSize
+	 *            size of the sheet of paper.
+	 * @return subfaces with their parent faces in the order of {@code faces}.
+	 */
+	public List<SubFace> createSplitSubFaces(
+			final List<OriFace> faces, final double paperSize) {
 		logger.debug("createSubFaces() start");
 
 		var creasePattern = facesToCPConverter.convertToCreasePattern(faces);
@@ -91,30 +110,31 @@ public class SubFacesFactory {
 
 		// Stores the face reference of given crease pattern into the subface
 		// that is contained in the face.
-		for (SubFace sub : subFaces) {
-			sub.parentFaces.addAll(parentCollector.collect(faces, sub, paperSize));
-		}
-
-		// extract distinct subfaces by comparing face list's items.
-		ArrayList<SubFace> distinctSubFaces = new ArrayList<>();
-		for (SubFace sub : subFaces) {
-			if (distinctSubFaces.stream()
-					.noneMatch(s -> isSame(sub, s))) {
-				distinctSubFaces.add(sub);
-			}
+		var parentFacesList = parentCollector.collect(faces, subFaces, paperSize);
+		for (int i = 0; i < subFaces.size(); i++) {
+			subFaces.get(i).parentFaces.addAll(parentFacesList.get(i));
 		}
 
 		logger.debug("createSubFaces() end");
 
-		return distinctSubFaces;
+		return subFaces;
 	}
 
-	private boolean isSame(final SubFace sub0, final SubFace sub1) {
-		if (sub0.parentFaces.size() != sub1.parentFaces.size()) {
-			return false;
+	/**
+	 * Extracts distinct subfaces by comparing parent faces. The sets of the
+	 * parent faces are compared by {@link ParentFacesKey} in a hash map, which
+	 * takes linear time in the total number of the parent faces.
+	 *
+	 * @param subFaces
+	 *            subfaces with parent faces whose IDs are distinct in each
+	 *            subface.
+	 * @return the first subface of each set of parent faces.
+	 */
+	public List<SubFace> removeDuplicates(final List<SubFace> subFaces) {
+		var distinctSubFaces = new LinkedHashMap<ParentFacesKey, SubFace>();
+		for (SubFace sub : subFaces) {
+			distinctSubFaces.putIfAbsent(new ParentFacesKey(sub.parentFaces), sub);
 		}
-
-		return sub0.parentFaces.stream()
-				.allMatch(face -> sub1.parentFaces.contains(face));
+		return new ArrayList<>(distinctSubFaces.values());
 	}
 }
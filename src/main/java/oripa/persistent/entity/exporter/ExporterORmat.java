@@ -28,6 +28,7 @@ import oripa.domain.fold.OverlapRelationList;
 import oripa.domain.fold.halfedge.OriFace;
 import oripa.domain.fold.halfedge.OriVertex;
 import oripa.domain.fold.halfedge.OrigamiModel;
+import oripa.domain.fold.origeom.OverlapRelation;
 import oripa.persistent.filetool.Exporter;
 
 // export folded model
@@ -78,10 +79,10 @@ public class ExporterORmat implements Exporter<FoldedModel> {
 			bw.write("# 9: UNDEFINED (not used)\n");
 			bw.write("# matrix size (face num) =" + faceNum + "\n");
 
-			int[][] overlapRelation = overlapRelationList.getOverlapRelation();
+			OverlapRelation overlapRelation = overlapRelationList.getOverlapRelation();
 			for (int f0 = 0; f0 < faceNum; f0++) {
 				for (int f1 = 0; f1 < faceNum; f1++) {
-					bw.write("" + overlapRelation[f0][f1] + " ");
+					bw.write("" + overlapRelation.get(f0, f1) + " ");
 				}
 				bw.write("\n");
 			}
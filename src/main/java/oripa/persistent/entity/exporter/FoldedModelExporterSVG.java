@@ -30,6 +30,7 @@ import oripa.domain.fold.FoldedModel;
 import oripa.domain.fold.OverlapRelationList;
 import oripa.domain.fold.halfedge.OriFace;
 import oripa.domain.fold.halfedge.OrigamiModel;
+import oripa.domain.fold.origeom.OverlapRelation;
 import oripa.domain.fold.origeom.OverlapRelationValues;
 import oripa.geom.RectangleDomain;
 import oripa.persistent.filetool.Exporter;
@@ -154,13 +155,13 @@ public class FoldedModelExporterSVG implements Exporter<FoldedModel> {
 
 	}
 
-	private List<OriFace> sortFaces(final List<OriFace> faces, final int[][] overlapRelation) {
+	private List<OriFace> sortFaces(final List<OriFace> faces, final OverlapRelation overlapRelation) {
 		ArrayList<OriFace> sortedFaces = new ArrayList<>();
 		boolean[] isSorted = new boolean[faces.size()];
 		for (int i = 0; i < faces.size(); i++) {
-			for (int j = 0; j < overlapRelation.length; j++) {
+			for (int j = 0; j < overlapRelation.getSize(); j++) {
 				if (!isSorted[j]) {
-					if (canAddFace(isSorted, overlapRelation[j])) {
+					if (canAddFace(isSorted, overlapRelation, j)) {
 						isSorted[j] = true;
 						sortedFaces.add(faces.get(j));
 						break;
@@ -172,10 +173,11 @@ public class FoldedModelExporterSVG implements Exporter<FoldedModel> {
 		return sortedFaces;
 	}
 
-	private boolean canAddFace(final boolean[] isSorted, final int[] overlapRelationOfJ) {
+	private boolean canAddFace(final boolean[] isSorted, final OverlapRelation overlapRelation,
+			final int j) {
 		for (int k = 0; k < isSorted.length; k++) {
 			if ((!isSorted[k])
-					&& overlapRelationOfJ[k] == OverlapRelationValues.LOWER) {
+					&& overlapRelation.get(j, k) == OverlapRelationValues.LOWER) {
 				return false;
 			}
 		}
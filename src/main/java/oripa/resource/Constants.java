@@ -27,6 +27,8 @@ public class Constants {
 	public static final String USER_HOME_DIR_PATH = System.getProperty("user.home");
 	public static final String INI_FILE_PATH = USER_HOME_DIR_PATH + File.separator
 			+ "oripa.ini";
+	public static final String FOLD_CACHE_DIR_PATH = USER_HOME_DIR_PATH + File.separator
+			+ ".oripa" + File.separator + "foldcache";
 	public static final boolean FOR_STUDY = false;
 	public static final int MRUFILE_NUM = 10;
 }
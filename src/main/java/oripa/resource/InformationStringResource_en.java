@@ -31,6 +31,8 @@ public class InformationStringResource_en extends ListResourceBundle {
 					"edge duplications with the same position are removed." },
 			{ StringID.Information.NO_ANSWER_ID,
 					"No answer was found." },
+			{ StringID.Information.FOLD_STOPPED_ID,
+					"The estimation was stopped. Only the folded states found so far are available." },
 
 			{ StringID.Information.SIMPLIFYING_CP_TITLE_ID,
 					"Simplifying CP" },
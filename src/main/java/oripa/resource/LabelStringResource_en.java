@@ -97,6 +97,13 @@ public class LabelStringResource_en extends ListResourceBundle {
 			{ StringID.ModelMenu.DRAW_LINES_ID, "Draw lines" },
 			{ StringID.ModelMenu.TITLE_ID, "Expected Folded Origami" },
 			{ StringID.ModelMenu.SHOW_CROSS_LINE_ID, "Show cross-line" },
+
+			{ StringID.FoldProgress.TITLE_ID, "Folding..." },
+			{ StringID.FoldProgress.CANCEL_ID, "Cancel" },
+			{ StringID.FoldProgress.CANCELLING_ID, "Cancelling..." },
+			{ StringID.FoldProgress.SUBFACES_ID, "subfaces %d/%d" },
+			{ StringID.FoldProgress.SEARCHING_ID, "searching" },
+			{ StringID.FoldProgress.SEARCH_STATUS_ID, "search nodes: %d, folded states: %d" },
 	};
 
 	@Override
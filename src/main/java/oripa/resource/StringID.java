@@ -59,6 +59,7 @@ public class StringID {
 	public static class Information {
 		public static final String SIMPLIFYING_CP_ID = "Info_SimplifyingCP";
 		public static final String NO_ANSWER_ID = "Info_NoAnswer";
+		public static final String FOLD_STOPPED_ID = "Info_FoldStopped";
 
 		public static final String SIMPLIFYING_CP_TITLE_ID = "Info_SimplifyingCPTitle";
 		public static final String FOLD_ALGORITHM_TITLE_ID = "Info_FoldAlgorithmTitle";
@@ -151,4 +152,13 @@ public class StringID {
 		public static final String SHOW_CROSS_LINE_ID = "ShowCrossLine";
 	}
 
+	public static class FoldProgress {
+		public static final String TITLE_ID = "FoldProgress_Title";
+		public static final String CANCEL_ID = "FoldProgress_Cancel";
+		public static final String CANCELLING_ID = "FoldProgress_Cancelling";
+		public static final String SUBFACES_ID = "FoldProgress_SubFaces";
+		public static final String SEARCHING_ID = "FoldProgress_Searching";
+		public static final String SEARCH_STATUS_ID = "FoldProgress_SearchStatus";
+	}
+
 }
@@ -0,0 +1,126 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.view.estimation;
+
+import java.awt.BorderLayout;
+import java.awt.Window;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.WindowConstants;
+
+import oripa.domain.fold.FoldJob;
+import oripa.domain.fold.FoldProgress;
+import oripa.resource.ResourceHolder;
+import oripa.resource.ResourceKey;
+import oripa.resource.StringID;
+
+/**
+ * A modal dialog which shows the progress of a {@link FoldJob} running in
+ * background. The cancel button cancels the job, and then the job returns the
+ * states found so far.
+ */
+public class FoldJobProgressDialog extends JDialog {
+
+	private static final long serialVersionUID = 1L;
+
+	private final ResourceHolder resources = ResourceHolder.getInstance();
+
+	private final JProgressBar progressBar = new JProgressBar();
+	private final JLabel messageLabel = new JLabel(" ");
+	private final JButton cancelButton = new JButton(
+			resources.getString(ResourceKey.LABEL, StringID.FoldProgress.CANCEL_ID));
+
+	public FoldJobProgressDialog(final Window owner, final FoldJob job) {
+		super(owner, ResourceHolder.getInstance().getString(ResourceKey.LABEL, StringID.FoldProgress.TITLE_ID),
+				ModalityType.APPLICATION_MODAL);
+
+		progressBar.setStringPainted(true);
+		progressBar.setIndeterminate(true);
+		progressBar.setString("");
+
+		cancelButton.addActionListener(e -> {
+			job.cancel();
+			cancelButton.setEnabled(false);
+			messageLabel.setText(resources.getString(ResourceKey.LABEL, StringID.FoldProgress.CANCELLING_ID));
+		});
+
+		var buttonPanel = new JPanel();
+		buttonPanel.add(cancelButton);
+
+		var contentPane = new JPanel(new BorderLayout(0, 5));
+		contentPane.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+		contentPane.add(progressBar, BorderLayout.NORTH);
+		contentPane.add(messageLabel, BorderLayout.CENTER);
+		contentPane.add(buttonPanel, BorderLayout.SOUTH);
+		setContentPane(contentPane);
+
+		// closing the window means cancellation.
+		setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+		addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosing(final WindowEvent e) {
+				cancelButton.doClick();
+			}
+		});
+
+		setSize(360, 140);
+		setLocationRelativeTo(owner);
+	}
+
+	/**
+	 * Shows the progress. This method should be called on the event dispatch
+	 * thread.
+	 *
+	 * @param progress
+	 *            progress of the job.
+	 */
+	public void setProgress(final FoldProgress progress) {
+		var subFaceCount = progress.getSubFaceCount();
+		var processedSubFaceCount = progress.getProcessedSubFaceCount();
+
+		if (subFaceCount == 0) {
+			progressBar.setIndeterminate(true);
+			progressBar.setString("");
+		} else if (processedSubFaceCount < subFaceCount) {
+			progressBar.setIndeterminate(false);
+			progressBar.setMaximum(subFaceCount);
+			progressBar.setValue(processedSubFaceCount);
+			progressBar.setString(String.format(
+					resources.getString(ResourceKey.LABEL, StringID.FoldProgress.SUBFACES_ID),
+					processedSubFaceCount, subFaceCount));
+		} else {
+			// the search doesn't know how many nodes remain.
+			progressBar.setIndeterminate(true);
+			progressBar.setString(resources.getString(ResourceKey.LABEL, StringID.FoldProgress.SEARCHING_ID));
+		}
+
+		if (cancelButton.isEnabled()) {
+			messageLabel.setText(String.format(
+					resources.getString(ResourceKey.LABEL, StringID.FoldProgress.SEARCH_STATUS_ID),
+					progress.getSearchNodeCount(), progress.getSolutionCount()));
+		}
+	}
+}
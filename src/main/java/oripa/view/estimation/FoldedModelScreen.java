@@ -47,6 +47,7 @@ import oripa.domain.fold.halfedge.OriFace;
 import oripa.domain.fold.halfedge.OrigamiModel;
 import oripa.domain.fold.halfedge.TriangleFace;
 import oripa.domain.fold.halfedge.TriangleVertex;
+import oripa.domain.fold.origeom.OverlapRelation;
 import oripa.domain.fold.origeom.OverlapRelationValues;
 import oripa.geom.RectangleDomain;
 import oripa.util.gui.MouseUtility;
@@ -410,9 +411,9 @@ public class FoldedModelScreen extends JPanel
 							if (f_id == -1 && f_id2 != -1) {
 								cnt++;
 							} else {
-								int[][] overlapRelation = overlapRelationList.getOverlapRelation();
+								OverlapRelation overlapRelation = overlapRelationList.getOverlapRelation();
 
-								if (f_id2 != -1 && overlapRelation[f_id][f_id2] == renderFace) {
+								if (f_id2 != -1 && overlapRelation.get(f_id, f_id2) == renderFace) {
 									cnt++;
 								}
 							}
@@ -521,9 +522,9 @@ public class FoldedModelScreen extends JPanel
 				int renderFace = isFaceOrderFlipped() ? OverlapRelationValues.UPPER
 						: OverlapRelationValues.LOWER;
 
-				int[][] overlapRelation = overlapRelationList.getOverlapRelation();
+				OverlapRelation overlapRelation = overlapRelationList.getOverlapRelation();
 
-				if (zbuf[p] == -1 || overlapRelation[zbuf[p]][id] == renderFace) {
+				if (zbuf[p] == -1 || overlapRelation.get(zbuf[p], id) == renderFace) {
 
 					int tr = r >> 16;
 					int tg = g >> 16;
@@ -23,9 +23,12 @@ import java.awt.GridBagLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.KeyEvent;
 import java.beans.PropertyChangeEvent;
+import java.nio.file.Paths;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.AbstractAction;
 import javax.swing.AbstractButton;
@@ -43,6 +46,8 @@ import javax.swing.JPanel;
 import javax.swing.JRadioButton;
 import javax.swing.JTextField;
 import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.border.LineBorder;
 import javax.swing.border.MatteBorder;
 import javax.swing.border.TitledBorder;
@@ -59,12 +64,17 @@ import oripa.bind.binder.BinderInterface;
 import oripa.bind.binder.ViewChangeBinder;
 import oripa.bind.state.PaintBoundStateFactory;
 import oripa.bind.state.action.PaintActionSetterFactory;
-import oripa.domain.cptool.LineAdder;
 import oripa.domain.cptool.TypeForChange;
+import oripa.domain.cptool.compgeom.PlanarArrangementBuilder;
 import oripa.domain.creasepattern.CreasePatternFactory;
 import oripa.domain.creasepattern.CreasePatternInterface;
 import oripa.domain.cutmodel.CutModelOutlinesHolder;
+import oripa.domain.fold.FoldJob;
+import oripa.domain.fold.FoldProgress;
+import oripa.domain.fold.FoldSession;
+import oripa.domain.fold.FoldedModel;
 import oripa.domain.fold.Folder;
+import oripa.domain.fold.cache.FoldResultCache;
 import oripa.domain.fold.foldability.FoldabilityChecker;
 import oripa.domain.fold.halfedge.OrigamiModel;
 import oripa.domain.fold.halfedge.OrigamiModelFactory;
@@ -81,6 +91,7 @@ import oripa.domain.paint.byvalue.LengthMeasuringAction;
 import oripa.domain.paint.byvalue.LengthValueInputListener;
 import oripa.domain.paint.byvalue.ValueSetting;
 import oripa.file.ImageResourceLoader;
+import oripa.resource.Constants;
 import oripa.resource.ResourceHolder;
 import oripa.resource.ResourceKey;
 import oripa.resource.StringID;
@@ -89,6 +100,7 @@ import oripa.util.gui.GridBagConstraintsBuilder;
 import oripa.util.gui.KeyStrokes;
 import oripa.value.OriLine;
 import oripa.view.estimation.EstimationResultFrameFactory;
+import oripa.view.estimation.FoldJobProgressDialog;
 import oripa.view.foldability.FoldabilityCheckFrameFactory;
 import oripa.view.model.ModelViewFrameFactory;
 import oripa.viewsetting.ChangeViewSetting;
@@ -107,6 +119,11 @@ public class UIPanel extends JPanel {
 
 	private final UIPanelSetting setting = new UIPanelSetting();
 	private final ValueSetting valueSetting = setting.getValueSetting();
+
+	private final FoldResultCache foldResultCache = new FoldResultCache(
+			FoldResultCache.DEFAULT_MEMORY_CAPACITY, Paths.get(Constants.FOLD_CACHE_DIR_PATH),
+			FoldResultCache.DEFAULT_DISK_CAPACITY);
+	private FoldSession foldSession;
 	private ChildFrameManager childFrameManager;
 
 	private final ViewScreenUpdater screenUpdater;
@@ -938,45 +955,116 @@ public class UIPanel extends JPanel {
 			final MainScreenSetting mainScreenSetting) {
 		CreasePatternInterface creasePattern = paintContext.getCreasePattern();
 
-		Folder folder = new Folder(
-				new SubFacesFactory(
-						new FacesToCreasePatternConverter(
-								new CreasePatternFactory(),
-								new LineAdder()),
-						new OrigamiModelFactory(),
-						new SplitFacesToSubFacesConverter(),
-						new ParentFacesCollector()));
+		if (foldSession == null) {
+			Folder folder = new Folder(
+					new SubFacesFactory(
+							new FacesToCreasePatternConverter(
+									new CreasePatternFactory(),
+									new PlanarArrangementBuilder()),
+							new OrigamiModelFactory(),
+							new SplitFacesToSubFacesConverter(),
+							new ParentFacesCollector()));
+			folder.setParallelism(Runtime.getRuntime().availableProcessors());
+			folder.setFoldResultCache(foldResultCache);
+			foldSession = new FoldSession(folder);
+		}
+		Folder folder = foldSession.getFolder();
 
 		OrigamiModel origamiModel = buildOrigamiModel(creasePattern);
 		var checker = new FoldabilityChecker();
 
 		if (!checker.testLocalFlatFoldability(origamiModel)) {
 			folder.foldWithoutLineType(origamiModel);
+		} else if (fullEstimation) {
+			foldInBackground(creasePattern, origamiModel, cutOutlinesHolder, mainScreenSetting);
+			return;
 		} else {
-			var foldedModel = folder.fold(
-					origamiModel, fullEstimation);
-			final int foldableModelCount = foldedModel.getFoldablePatternCount();
+			folder.fold(origamiModel, fullEstimation);
+		}
 
-			if (!fullEstimation) {
+		showModelViewFrame(origamiModel, cutOutlinesHolder, mainScreenSetting);
+	}
 
-			} else if (foldableModelCount == 0) {
-				JOptionPane.showMessageDialog(
-						this,
-						resources.getString(ResourceKey.INFO, StringID.Information.NO_ANSWER_ID),
-						resources.getString(ResourceKey.INFO,
-								StringID.Information.FOLD_ALGORITHM_TITLE_ID),
-						JOptionPane.INFORMATION_MESSAGE);
-			} else if (foldableModelCount > 0) {
-				logger.info("foldable layer layout is found.");
-
-				EstimationResultFrameFactory resultFrameFactory = new EstimationResultFrameFactory(
-						childFrameManager);
-				JFrame frame = resultFrameFactory.createFrame(this, foldedModel);
-				frame.repaint();
-				frame.setVisible(true);
+	/**
+	 * Runs full estimation on a background thread with a progress dialog,
+	 * then opens the windows of the result. The fold reuses the geometry of
+	 * the previous fold in this panel.
+	 *
+	 * @param creasePattern
+	 * @param origamiModel
+	 * @param cutOutlinesHolder
+	 * @param mainScreenSetting
+	 */
+	private void foldInBackground(final CreasePatternInterface creasePattern,
+			final OrigamiModel origamiModel,
+			final CutModelOutlinesHolder cutOutlinesHolder,
+			final MainScreenSetting mainScreenSetting) {
+		var job = new FoldJob();
+		var progressDialog = new FoldJobProgressDialog(SwingUtilities.getWindowAncestor(this), job);
+
+		var worker = new SwingWorker<FoldedModel, FoldProgress>() {
+			@Override
+			protected FoldedModel doInBackground() throws Exception {
+				job.setProgressListener(progress -> publish(progress));
+				return foldSession.fold(creasePattern, origamiModel, job);
+			}
+
+			@Override
+			protected void process(final List<FoldProgress> chunks) {
+				progressDialog.setProgress(chunks.get(chunks.size() - 1));
 			}
+
+			@Override
+			protected void done() {
+				progressDialog.dispose();
+				try {
+					showEstimationResult(get(), job);
+				} catch (InterruptedException | ExecutionException e) {
+					logger.error("failed to fold.", e);
+					return;
+				}
+				showModelViewFrame(origamiModel, cutOutlinesHolder, mainScreenSetting);
+			}
+		};
+
+		worker.execute();
+		// blocks until the worker disposes the dialog.
+		progressDialog.setVisible(true);
+	}
+
+	private void showEstimationResult(final FoldedModel foldedModel, final FoldJob job) {
+		if (job.getStatus().isStoppedEarly()) {
+			logger.info("fold job is stopped: " + job.getStatus());
+			JOptionPane.showMessageDialog(
+					this,
+					resources.getString(ResourceKey.INFO, StringID.Information.FOLD_STOPPED_ID),
+					resources.getString(ResourceKey.INFO,
+							StringID.Information.FOLD_ALGORITHM_TITLE_ID),
+					JOptionPane.INFORMATION_MESSAGE);
 		}
 
+		if (foldedModel.getOverlapRelationList().isEmpty()) {
+			JOptionPane.showMessageDialog(
+					this,
+					resources.getString(ResourceKey.INFO, StringID.Information.NO_ANSWER_ID),
+					resources.getString(ResourceKey.INFO,
+							StringID.Information.FOLD_ALGORITHM_TITLE_ID),
+					JOptionPane.INFORMATION_MESSAGE);
+			return;
+		}
+
+		logger.info("foldable layer layout is found.");
+
+		EstimationResultFrameFactory resultFrameFactory = new EstimationResultFrameFactory(
+				childFrameManager);
+		JFrame frame = resultFrameFactory.createFrame(this, foldedModel);
+		frame.repaint();
+		frame.setVisible(true);
+	}
+
+	private void showModelViewFrame(final OrigamiModel origamiModel,
+			final CutModelOutlinesHolder cutOutlinesHolder,
+			final MainScreenSetting mainScreenSetting) {
 		ModelViewFrameFactory modelViewFactory = new ModelViewFrameFactory(
 				mainScreenSetting,
 				childFrameManager);
@@ -0,0 +1,88 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.cptool.compgeom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import oripa.geom.GeomUtil;
+import oripa.value.OriLine;
+
+class PlanarArrangementBuilderTest {
+
+	private final PlanarArrangementBuilder builder = new PlanarArrangementBuilder();
+
+	@Test
+	void testCrossingLinesAreSplit() {
+		var lines = List.of(
+				new OriLine(0, 0, 100, 0, OriLine.Type.MOUNTAIN),
+				new OriLine(0, 50, 100, 50, OriLine.Type.AUX),
+				new OriLine(20, 50, 20, -10, OriLine.Type.VALLEY),
+				new OriLine(40, 50, 40, 0, OriLine.Type.VALLEY));
+
+		var splitLines = builder.build(lines);
+
+		assertEquals(9, splitLines.size());
+		assertContains(splitLines, new OriLine(20, 0, 40, 0, OriLine.Type.MOUNTAIN));
+		assertContains(splitLines, new OriLine(20, 0, 20, -10, OriLine.Type.VALLEY));
+	}
+
+	@Test
+	void testOverlappingLinesAreSplitWithoutDuplication() {
+		// edges of two squares stacked with a shift and a shared edge.
+		var lines = List.of(
+				new OriLine(0, 0, 10, 0, OriLine.Type.MOUNTAIN),
+				new OriLine(10, 0, 10, 10, OriLine.Type.MOUNTAIN),
+				new OriLine(10, 10, 0, 10, OriLine.Type.MOUNTAIN),
+				new OriLine(0, 10, 0, 0, OriLine.Type.MOUNTAIN),
+				new OriLine(5, 0, 15, 0, OriLine.Type.MOUNTAIN),
+				new OriLine(15, 0, 15, 10, OriLine.Type.MOUNTAIN),
+				new OriLine(15, 10, 5, 10, OriLine.Type.MOUNTAIN),
+				new OriLine(5, 10, 5, 0, OriLine.Type.MOUNTAIN),
+				new OriLine(0, 0, 10, 0, OriLine.Type.MOUNTAIN));
+
+		var splitLines = builder.build(lines);
+
+		// 3 segments at the top, 3 at the bottom and 4 vertical ones.
+		assertEquals(10, splitLines.size());
+		assertContains(splitLines, new OriLine(5, 0, 10, 0, OriLine.Type.MOUNTAIN));
+		assertContains(splitLines, new OriLine(10, 10, 15, 10, OriLine.Type.MOUNTAIN));
+	}
+
+	@Test
+	void testEndPointsWithinEpsAreMerged() {
+		var lines = List.of(
+				new OriLine(0, 0, 10, 0, OriLine.Type.MOUNTAIN),
+				new OriLine(10.000001, 0, 10, 10, OriLine.Type.MOUNTAIN));
+
+		var splitLines = builder.build(lines);
+
+		assertEquals(2, splitLines.size());
+		assertEquals(splitLines.get(0).p1, splitLines.get(1).p0);
+	}
+
+	private void assertContains(final List<OriLine> lines, final OriLine expected) {
+		assertTrue(lines.stream().anyMatch(line -> GeomUtil.isSameLineSegment(line, expected)
+				&& line.getType() == expected.getType()),
+				"missing " + expected);
+	}
+}
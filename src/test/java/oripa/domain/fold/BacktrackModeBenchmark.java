@@ -0,0 +1,64 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold;
+
+/**
+ * Compares the node throughput of the layer ordering search between
+ * {@link BacktrackMode#CLONE} and {@link BacktrackMode#TRAIL}. Run as a Java
+ * application with .opx file paths as arguments or with no argument to use
+ * the default corpus.
+ */
+public class BacktrackModeBenchmark {
+	private static final int WARM_UP_COUNT = 3;
+	private static final int MEASURE_COUNT = 10;
+
+	public static void main(final String[] args) throws Exception {
+		var corpus = FoldBenchmarkCorpus.load(args);
+
+		System.out.println("model, mode, solutions, nodes/fold, search ms/fold, nodes/sec");
+		for (var entry : corpus.entrySet()) {
+			for (var mode : BacktrackMode.values()) {
+				var folder = FoldBenchmarkCorpus.createFolder();
+				folder.setBacktrackMode(mode);
+
+				for (int i = 0; i < WARM_UP_COUNT; i++) {
+					folder.fold(FoldBenchmarkCorpus.createModel(entry.getValue()), true);
+				}
+
+				long nodes = 0;
+				long milliSec = 0;
+				int solutions = 0;
+				for (int i = 0; i < MEASURE_COUNT; i++) {
+					var foldedModel = folder.fold(FoldBenchmarkCorpus.createModel(entry.getValue()), true);
+					nodes += folder.getSearchNodeCount();
+					milliSec += folder.getSearchMilliSec();
+					solutions = foldedModel.getFoldablePatternCount();
+				}
+
+				System.out.println(String.join(", ",
+						entry.getKey(),
+						mode.toString(),
+						Integer.toString(solutions),
+						Long.toString(nodes / MEASURE_COUNT),
+						String.format("%.2f", (double) milliSec / MEASURE_COUNT),
+						milliSec == 0 ? "-" : Long.toString(nodes * 1000 / milliSec)));
+			}
+		}
+	}
+}
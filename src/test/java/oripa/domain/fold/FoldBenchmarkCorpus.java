@@ -0,0 +1,229 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import oripa.domain.cptool.Painter;
+import oripa.domain.cptool.compgeom.PlanarArrangementBuilder;
+import oripa.domain.creasepattern.CreasePatternFactory;
+import oripa.domain.creasepattern.CreasePatternInterface;
+import oripa.domain.fold.halfedge.OrigamiModel;
+import oripa.domain.fold.halfedge.OrigamiModelFactory;
+import oripa.domain.fold.subface.FacesToCreasePatternConverter;
+import oripa.domain.fold.subface.ParentFacesCollector;
+import oripa.domain.fold.subface.SplitFacesToSubFacesConverter;
+import oripa.domain.fold.subface.SubFacesFactory;
+import oripa.persistent.doc.loader.LoaderXML;
+import oripa.value.OriLine;
+
+/**
+ * Crease patterns for the benchmarks of {@link Folder}. The corpus consists of
+ * the .opx files given as program arguments, or of the bundled test resources
+ * and some generated patterns if no argument is given.
+ */
+class FoldBenchmarkCorpus {
+	private static final double PAPER_SIZE = 400;
+
+	private static final String[] BUNDLED_RESOURCES = {
+			"/crane_base_mitani.opx",
+			"/waterbomb_base_collapse.opx"
+	};
+
+	/**
+	 * @param args
+	 *            paths of .opx files. can be empty.
+	 * @return crease patterns with their names.
+	 */
+	static Map<String, CreasePatternInterface> load(final String[] args) throws Exception {
+		var corpus = new LinkedHashMap<String, CreasePatternInterface>();
+		var loader = new LoaderXML();
+
+		if (args.length > 0) {
+			for (var path : args) {
+				corpus.put(new File(path).getName(), loader.load(path).getCreasePattern());
+			}
+			return corpus;
+		}
+
+		for (var resource : BUNDLED_RESOURCES) {
+			corpus.put(resource.substring(1), loader.load(toPath(resource)).getCreasePattern());
+		}
+		corpus.put("pleat60", createPleat(60));
+		corpus.put("map6x3", createMap(6, 3));
+		corpus.put("flaps", createOverlappingFlaps());
+		corpus.put("independentFlaps", createIndependentFlaps());
+		corpus.put("layeredStrip", createLayeredStrip());
+
+		return corpus;
+	}
+
+	/**
+	 * Crease patterns on which the search modes and engines of {@link Folder}
+	 * should give the same result: the bundled models, patterns with several
+	 * states and a pattern without state.
+	 *
+	 * @return crease patterns with their names.
+	 */
+	static Map<String, CreasePatternInterface> loadEquivalenceCorpus() throws Exception {
+		var corpus = new LinkedHashMap<String, CreasePatternInterface>();
+		var loader = new LoaderXML();
+
+		for (var resource : BUNDLED_RESOURCES) {
+			corpus.put(resource.substring(1), loader.load(toPath(resource)).getCreasePattern());
+		}
+		corpus.put("map4x3", createMap(4, 3));
+		corpus.put("flaps", createOverlappingFlaps());
+		corpus.put("independentFlaps", createIndependentFlaps());
+		corpus.put("layeredStrip", createLayeredStrip());
+		corpus.put("unfoldableStrip", createUnfoldableStrip());
+
+		return corpus;
+	}
+
+	private static String toPath(final String resource) throws URISyntaxException {
+		return new File(FoldBenchmarkCorpus.class.getResource(resource).toURI()).getPath();
+	}
+
+	static Folder createFolder() {
+		return new Folder(
+				new SubFacesFactory(
+						new FacesToCreasePatternConverter(
+								new CreasePatternFactory(),
+								new PlanarArrangementBuilder()),
+						new OrigamiModelFactory(),
+						new SplitFacesToSubFacesConverter(),
+						new ParentFacesCollector()));
+	}
+
+	static OrigamiModel createModel(final CreasePatternInterface creasePattern) {
+		return new OrigamiModelFactory().createOrigamiModel(creasePattern, creasePattern.getPaperSize());
+	}
+
+	/**
+	 * accordion pleat of {@code divNum} strips.
+	 */
+	static CreasePatternInterface createPleat(final int divNum) {
+		var lines = new ArrayList<OriLine>();
+		for (int i = 1; i < divNum; i++) {
+			double x = -PAPER_SIZE / 2 + PAPER_SIZE * i / divNum;
+			lines.add(new OriLine(x, -PAPER_SIZE / 2, x, PAPER_SIZE / 2,
+					i % 2 == 0 ? OriLine.Type.MOUNTAIN : OriLine.Type.VALLEY));
+		}
+		return createCreasePattern(lines);
+	}
+
+	/**
+	 * map fold of {@code cols} x {@code rows} panels.
+	 */
+	static CreasePatternInterface createMap(final int cols, final int rows) {
+		var lines = new ArrayList<OriLine>();
+		double w = PAPER_SIZE / cols;
+		double h = PAPER_SIZE / rows;
+		for (int c = 1; c < cols; c++) {
+			double x = -PAPER_SIZE / 2 + w * c;
+			lines.add(new OriLine(x, -PAPER_SIZE / 2, x, PAPER_SIZE / 2,
+					c % 2 == 0 ? OriLine.Type.MOUNTAIN : OriLine.Type.VALLEY));
+		}
+		for (int r = 1; r < rows; r++) {
+			double y = -PAPER_SIZE / 2 + h * r;
+			for (int c = 0; c < cols; c++) {
+				double x = -PAPER_SIZE / 2 + w * c;
+				lines.add(new OriLine(x, y, x + w, y,
+						(r + c) % 2 == 0 ? OriLine.Type.MOUNTAIN : OriLine.Type.VALLEY));
+			}
+		}
+		return createCreasePattern(lines);
+	}
+
+	/**
+	 * two flaps folded from both sides, which overlap each other without
+	 * covering the other's crease. It has two foldable states.
+	 */
+	static CreasePatternInterface createOverlappingFlaps() {
+		var lines = List.of(
+				new OriLine(-90, -PAPER_SIZE / 2, -90, PAPER_SIZE / 2, OriLine.Type.VALLEY),
+				new OriLine(90, -PAPER_SIZE / 2, 90, PAPER_SIZE / 2, OriLine.Type.VALLEY));
+		return createCreasePattern(lines);
+	}
+
+	/**
+	 * a strip with a pair of overlapping flaps at each end. Each pair has two
+	 * layer orderings which are independent of the other pair's, so the
+	 * pattern has four foldable states.
+	 */
+	static CreasePatternInterface createIndependentFlaps() {
+		double[] xs = { -160, -100, -60, 60, 100, 160 };
+		OriLine.Type[] types = {
+				OriLine.Type.VALLEY, OriLine.Type.VALLEY, OriLine.Type.MOUNTAIN,
+				OriLine.Type.MOUNTAIN, OriLine.Type.VALLEY, OriLine.Type.VALLEY };
+		return createStrip(xs, types);
+	}
+
+	/**
+	 * a strip whose layers are ordered in 104 ways, which are not independent
+	 * of each other.
+	 */
+	static CreasePatternInterface createLayeredStrip() {
+		double[] xs = { -170, -140, -120, -100, -90, -60, 10, 50, 70, 90, 120, 140, 160, 180, 190 };
+		String types = "MMVVMMMVMVMVVVM";
+		return createStrip(xs, types.chars()
+				.mapToObj(c -> c == 'M' ? OriLine.Type.MOUNTAIN : OriLine.Type.VALLEY)
+				.toArray(OriLine.Type[]::new));
+	}
+
+	/**
+	 * a strip which is not flat foldable: any layer ordering of a subface has
+	 * a penetration or contradicts the others. It has no foldable state.
+	 */
+	static CreasePatternInterface createUnfoldableStrip() {
+		double[] xs = { -180, -140, -80, -40, 10, 70, 180 };
+		OriLine.Type[] types = {
+				OriLine.Type.MOUNTAIN, OriLine.Type.MOUNTAIN, OriLine.Type.MOUNTAIN,
+				OriLine.Type.VALLEY, OriLine.Type.VALLEY, OriLine.Type.VALLEY,
+				OriLine.Type.MOUNTAIN };
+		return createStrip(xs, types);
+	}
+
+	/**
+	 * @param xs
+	 *            x coordinates of the creases across the paper.
+	 * @param types
+	 *            types of the creases.
+	 */
+	private static CreasePatternInterface createStrip(final double[] xs, final OriLine.Type[] types) {
+		var lines = new ArrayList<OriLine>();
+		for (int i = 0; i < xs.length; i++) {
+			lines.add(new OriLine(xs[i], -PAPER_SIZE / 2, xs[i], PAPER_SIZE / 2, types[i]));
+		}
+		return createCreasePattern(lines);
+	}
+
+	private static CreasePatternInterface createCreasePattern(final List<OriLine> lines) {
+		var creasePattern = new CreasePatternFactory().createCreasePattern(PAPER_SIZE);
+		var painter = new Painter(creasePattern);
+		lines.forEach(line -> painter.addLine(line));
+		return creasePattern;
+	}
+}
@@ -0,0 +1,89 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static oripa.value.OriLine.Type.*;
+
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import oripa.domain.cptool.Painter;
+import oripa.domain.creasepattern.CreasePatternFactory;
+import oripa.domain.creasepattern.CreasePatternInterface;
+import oripa.domain.fold.origeom.OverlapRelation;
+import oripa.value.OriLine;
+
+class FoldSessionTest {
+
+	private List<OverlapRelation> fold(final FoldSession session, final CreasePatternInterface creasePattern) {
+		var job = new FoldJob();
+		var foldedModel = session.fold(creasePattern, FoldBenchmarkCorpus.createModel(creasePattern), job);
+		assertEquals(FoldJobStatus.COMPLETED, job.getStatus());
+		return foldedModel.getOverlapRelationList().getFoldableOverlapRelations();
+	}
+
+	private List<OverlapRelation> foldFromScratch(final CreasePatternInterface creasePattern) {
+		return FoldBenchmarkCorpus.createFolder().fold(FoldBenchmarkCorpus.createModel(creasePattern), true)
+				.getOverlapRelationList().getFoldableOverlapRelations();
+	}
+
+	/**
+	 * a strip with vertical creases like
+	 * {@link FoldBenchmarkCorpus#createIndependentFlaps()}.
+	 */
+	private CreasePatternInterface createStrip(final double[] xs, final OriLine.Type[] types) {
+		var creasePattern = new CreasePatternFactory().createCreasePattern(400);
+		var painter = new Painter(creasePattern);
+		for (int i = 0; i < xs.length; i++) {
+			painter.addLine(new OriLine(xs[i], -200, xs[i], 200, types[i]));
+		}
+		return creasePattern;
+	}
+
+	@Test
+	void testLineTypeChangeReusesAllGeometry() {
+		var session = new FoldSession(FoldBenchmarkCorpus.createFolder());
+		double[] xs = { -160, -100, -60, 60, 100, 160 };
+		fold(session, createStrip(xs, new OriLine.Type[] { VALLEY, VALLEY, MOUNTAIN, MOUNTAIN, VALLEY, VALLEY }));
+
+		var edited = createStrip(xs, new OriLine.Type[] { VALLEY, VALLEY, VALLEY, MOUNTAIN, VALLEY, VALLEY });
+		var states = fold(session, edited);
+
+		assertEquals(xs.length + 1, session.getReusedFaceCount());
+		assertTrue(session.getReusedSubFaceCount() > 0);
+		assertEquals(new HashSet<>(foldFromScratch(edited)), new HashSet<>(states));
+	}
+
+	@Test
+	void testMovedLineGivesSameStatesAsFoldFromScratch() {
+		var session = new FoldSession(FoldBenchmarkCorpus.createFolder());
+		OriLine.Type[] types = { VALLEY, VALLEY, MOUNTAIN, MOUNTAIN, VALLEY, VALLEY };
+		fold(session, createStrip(new double[] { -160, -100, -60, 60, 100, 160 }, types));
+
+		var edited = createStrip(new double[] { -160, -100, -60, 60, 100, 150 }, types);
+		var states = fold(session, edited);
+
+		assertTrue(session.getReusedFaceCount() > 0);
+		assertEquals(new HashSet<>(foldFromScratch(edited)), new HashSet<>(states));
+		assertEquals(4, states.size());
+	}
+}
@@ -0,0 +1,463 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import oripa.domain.creasepattern.CreasePatternFactory;
+import oripa.domain.creasepattern.CreasePatternInterface;
+import oripa.domain.fold.cache.FoldResultCache;
+import oripa.domain.fold.origeom.OverlapRelation;
+import oripa.domain.fold.subface.FewestStacksFirstOrdering;
+import oripa.domain.fold.subface.SharedParentFacesFirstOrdering;
+
+class FolderTest {
+	/**
+	 * patterns shared by the tests of the modes and engines which should give
+	 * the same result as the default folder.
+	 */
+	private static Map<String, CreasePatternInterface> corpus;
+	private static Map<String, List<OverlapRelation>> expectedStates;
+
+	@BeforeAll
+	static void foldCorpus() throws Exception {
+		corpus = FoldBenchmarkCorpus.loadEquivalenceCorpus();
+		expectedStates = new HashMap<>();
+		for (var entry : corpus.entrySet()) {
+			expectedStates.put(entry.getKey(), fold(entry.getValue(), FoldBenchmarkCorpus.createFolder()));
+		}
+	}
+
+	/**
+	 * Asserts that the folder gives the same states in the same order as the
+	 * default folder for each pattern of the corpus.
+	 */
+	private void assertSameResult(final Folder folder) {
+		for (var entry : corpus.entrySet()) {
+			assertEquals(expectedStates.get(entry.getKey()), fold(entry.getValue(), folder), entry.getKey());
+		}
+	}
+
+	private static List<OverlapRelation> fold(final CreasePatternInterface creasePattern, final Folder folder) {
+		var foldedModel = folder.fold(FoldBenchmarkCorpus.createModel(creasePattern), true);
+		return foldedModel.getOverlapRelationList().getFoldableOverlapRelations();
+	}
+
+	@Test
+	void testFoldOverlappingFlaps() {
+		var folder = FoldBenchmarkCorpus.createFolder();
+
+		var solutions = fold(FoldBenchmarkCorpus.createOverlappingFlaps(), folder);
+
+		assertEquals(2, solutions.size());
+		assertNotEquals(solutions.get(0), solutions.get(1));
+	}
+
+	@Test
+	void testUnfoldableStripHasNoState() {
+		var creasePattern = FoldBenchmarkCorpus.createUnfoldableStrip();
+
+		assertEquals(List.of(), fold(creasePattern, FoldBenchmarkCorpus.createFolder()));
+		assertEquals(BigInteger.ZERO, FoldBenchmarkCorpus.createFolder()
+				.countFoldedStates(FoldBenchmarkCorpus.createModel(creasePattern)));
+	}
+
+	/**
+	 * The counts are the ones given by the folder before the search was
+	 * reworked. They anchor the corpus which the other modes and engines are
+	 * compared with.
+	 */
+	@Test
+	void testCorpusStateCountsMatchBaseline() {
+		var baselineCounts = Map.of(
+				"crane_base_mitani.opx", 1,
+				"waterbomb_base_collapse.opx", 1,
+				"map4x3", 1,
+				"flaps", 2,
+				"independentFlaps", 4,
+				"layeredStrip", 104,
+				"unfoldableStrip", 0);
+
+		assertEquals(baselineCounts.keySet(), corpus.keySet());
+		for (var entry : corpus.entrySet()) {
+			var name = entry.getKey();
+			assertEquals(baselineCounts.get(name), expectedStates.get(name).size(), name);
+			assertEquals(BigInteger.valueOf(baselineCounts.get(name)), FoldBenchmarkCorpus.createFolder()
+					.countFoldedStates(FoldBenchmarkCorpus.createModel(entry.getValue())), name);
+		}
+	}
+
+	@Test
+	void testBacktrackModesGiveSameResult() {
+		var folder = FoldBenchmarkCorpus.createFolder();
+		folder.setBacktrackMode(BacktrackMode.CLONE);
+
+		assertSameResult(folder);
+	}
+
+	@Test
+	void testParallelSearchGivesSameResultAsSequentialOne() {
+		var folder = FoldBenchmarkCorpus.createFolder();
+		folder.setParallelism(4);
+
+		assertSameResult(folder);
+	}
+
+	@Test
+	void testSubFaceOrderingsGiveSameSolutions() {
+		for (var ordering : List.of(
+				new SharedParentFacesFirstOrdering(),
+				new FewestStacksFirstOrdering())) {
+			var folder = FoldBenchmarkCorpus.createFolder();
+			folder.setSubFaceOrdering(ordering);
+
+			for (var entry : corpus.entrySet()) {
+				assertEquals(new HashSet<>(expectedStates.get(entry.getKey())),
+						new HashSet<>(fold(entry.getValue(), folder)), entry.getKey());
+			}
+		}
+	}
+
+	@Test
+	void testNogoodLearningDoesNotChangeResult() {
+		var folder = FoldBenchmarkCorpus.createFolder();
+		folder.setNogoodCapacity(0);
+
+		assertSameResult(folder);
+		assertEquals(0, folder.getNogoodStatistics().getLearnedCount());
+	}
+
+	@Test
+	void testSatEngineGivesSameResult() {
+		var folder = FoldBenchmarkCorpus.createFolder();
+		folder.setLayerOrderingEngine(LayerOrderingEngine.SAT);
+
+		assertSameResult(folder);
+	}
+
+	@Test
+	void testSpilledStacksGiveSameResult() {
+		var folder = FoldBenchmarkCorpus.createFolder();
+		folder.setStackCapacity(1);
+
+		assertSameResult(folder);
+	}
+
+	@Test
+	void testParallelSearchWithSpilledStacksGivesSameResult() {
+		var folder = FoldBenchmarkCorpus.createFolder();
+		folder.setParallelism(4);
+		folder.setStackCapacity(1);
+
+		assertSameResult(folder);
+	}
+
+	@Test
+	void testFoldedStateStreamGivesSameResultAsFold() {
+		for (var entry : corpus.entrySet()) {
+			var streamed = FoldBenchmarkCorpus.createFolder()
+					.foldedStateStream(FoldBenchmarkCorpus.createModel(entry.getValue()))
+					.collect(Collectors.toList());
+
+			assertEquals(expectedStates.get(entry.getKey()), streamed, entry.getKey());
+		}
+	}
+
+	@Test
+	void testCountFoldedStatesGivesSizeOfFoldResult() {
+		for (var entry : corpus.entrySet()) {
+			var count = FoldBenchmarkCorpus.createFolder()
+					.countFoldedStates(FoldBenchmarkCorpus.createModel(entry.getValue()));
+
+			assertEquals(BigInteger.valueOf(expectedStates.get(entry.getKey()).size()), count, entry.getKey());
+		}
+	}
+
+	@Test
+	void testCountFoldedStatesMultipliesIndependentCounts() {
+		var folder = FoldBenchmarkCorpus.createFolder();
+
+		var count = folder.countFoldedStates(
+				FoldBenchmarkCorpus.createModel(FoldBenchmarkCorpus.createIndependentFlaps()));
+
+		assertEquals(BigInteger.valueOf(4), count);
+		// the root and two nodes for each pair of flaps.
+		assertEquals(5, folder.getSearchNodeCount());
+	}
+
+	@Test
+	void testIndependentGroupsAreSearchedSeparately() {
+		var creasePattern = FoldBenchmarkCorpus.createIndependentFlaps();
+
+		var sequentialFolder = FoldBenchmarkCorpus.createFolder();
+		var solutions = fold(creasePattern, sequentialFolder);
+
+		assertEquals(4, solutions.size());
+		// the root and two nodes for each pair of flaps.
+		assertEquals(5, sequentialFolder.getSearchNodeCount());
+
+		var parallelFolder = FoldBenchmarkCorpus.createFolder();
+		parallelFolder.setParallelism(2);
+		assertEquals(solutions, fold(creasePattern, parallelFolder));
+
+		var streamed = FoldBenchmarkCorpus.createFolder()
+				.foldedStateStream(FoldBenchmarkCorpus.createModel(creasePattern))
+				.collect(Collectors.toList());
+		assertEquals(solutions, streamed);
+	}
+
+	@Test
+	void testFoldJobCompletes() {
+		var creasePattern = FoldBenchmarkCorpus.createIndependentFlaps();
+		var expected = fold(creasePattern, FoldBenchmarkCorpus.createFolder());
+
+		var progresses = new ArrayList<FoldProgress>();
+		var job = new FoldJob();
+		job.setProgressListener(progresses::add);
+
+		var foldedModel = FoldBenchmarkCorpus.createFolder()
+				.fold(FoldBenchmarkCorpus.createModel(creasePattern), job);
+
+		assertEquals(FoldJobStatus.COMPLETED, job.getStatus());
+		assertEquals(expected, foldedModel.getOverlapRelationList().getFoldableOverlapRelations());
+
+		var last = progresses.get(progresses.size() - 1);
+		assertEquals(last.getSubFaceCount(), last.getProcessedSubFaceCount());
+		assertEquals(expected.size(), last.getSolutionCount());
+		assertTrue(last.getSearchNodeCount() > 0);
+	}
+
+	@Test
+	void testFoldJobStoppedByNodeLimitGivesPartialResult() {
+		var creasePattern = FoldBenchmarkCorpus.createIndependentFlaps();
+		var expected = fold(creasePattern, FoldBenchmarkCorpus.createFolder());
+
+		var job = new FoldJob();
+		// the search of the pairs of flaps needs 4 nodes. The 4th node is
+		// the second solution of the second pair.
+		job.setNodeLimit(3);
+
+		var foldedModel = FoldBenchmarkCorpus.createFolder()
+				.fold(FoldBenchmarkCorpus.createModel(creasePattern), job);
+		var partial = foldedModel.getOverlapRelationList().getFoldableOverlapRelations();
+
+		assertEquals(FoldJobStatus.NODE_LIMIT_EXCEEDED, job.getStatus());
+		assertFalse(partial.isEmpty());
+		assertTrue(partial.size() < expected.size());
+		assertTrue(expected.containsAll(partial));
+	}
+
+	@Test
+	void testSolutionLimitGivesFirstStates() {
+		for (var creasePattern : List.of(
+				FoldBenchmarkCorpus.createOverlappingFlaps(),
+				FoldBenchmarkCorpus.createIndependentFlaps())) {
+			var expected = fold(creasePattern, FoldBenchmarkCorpus.createFolder());
+
+			var job = new FoldJob();
+			job.setSolutionLimit(1);
+
+			var foldedModel = FoldBenchmarkCorpus.createFolder()
+					.fold(FoldBenchmarkCorpus.createModel(creasePattern), job);
+
+			assertEquals(FoldJobStatus.SOLUTION_LIMIT_REACHED, job.getStatus());
+			assertEquals(expected.subList(0, 1), foldedModel.getOverlapRelationList().getFoldableOverlapRelations());
+		}
+	}
+
+	@Test
+	void testSolutionLimitOfStateCountCompletesJob() {
+		var parallel = FoldBenchmarkCorpus.createFolder();
+		parallel.setParallelism(4);
+		var clone = FoldBenchmarkCorpus.createFolder();
+		clone.setBacktrackMode(BacktrackMode.CLONE);
+		var sat = FoldBenchmarkCorpus.createFolder();
+		sat.setLayerOrderingEngine(LayerOrderingEngine.SAT);
+		var ranked = FoldBenchmarkCorpus.createFolder();
+		ranked.setFoldedStateRanking(FoldedStateRanking.FEWEST_INVERSIONS);
+
+		for (var creasePattern : List.of(
+				FoldBenchmarkCorpus.createOverlappingFlaps(),
+				FoldBenchmarkCorpus.createIndependentFlaps(),
+				FoldBenchmarkCorpus.createLayeredStrip())) {
+			var expected = fold(creasePattern, FoldBenchmarkCorpus.createFolder());
+
+			for (var folder : List.of(FoldBenchmarkCorpus.createFolder(), parallel, clone, sat, ranked)) {
+				var job = new FoldJob();
+				job.setSolutionLimit(expected.size());
+				var states = folder.fold(FoldBenchmarkCorpus.createModel(creasePattern), job)
+						.getOverlapRelationList().getFoldableOverlapRelations();
+
+				assertEquals(FoldJobStatus.COMPLETED, job.getStatus());
+				assertEquals(new HashSet<>(expected), new HashSet<>(states));
+
+				job = new FoldJob();
+				job.setSolutionLimit(expected.size() - 1);
+				states = folder.fold(FoldBenchmarkCorpus.createModel(creasePattern), job)
+						.getOverlapRelationList().getFoldableOverlapRelations();
+
+				assertEquals(FoldJobStatus.SOLUTION_LIMIT_REACHED, job.getStatus());
+				assertEquals(expected.size() - 1, states.size());
+			}
+		}
+	}
+
+	@Test
+	void testSolutionLimitOfParallelSearchGivesFirstStates() {
+		var creasePattern = FoldBenchmarkCorpus.createLayeredStrip();
+		var expected = fold(creasePattern, FoldBenchmarkCorpus.createFolder());
+		assertEquals(104, expected.size());
+
+		var folder = FoldBenchmarkCorpus.createFolder();
+		folder.setParallelism(4);
+		// the tasks race to the limit if they stop at it.
+		for (int limit = 1; limit <= 40; limit++) {
+			var job = new FoldJob();
+			job.setSolutionLimit(limit);
+
+			var foldedModel = folder.fold(FoldBenchmarkCorpus.createModel(creasePattern), job);
+
+			assertEquals(FoldJobStatus.SOLUTION_LIMIT_REACHED, job.getStatus());
+			assertEquals(expected.subList(0, limit),
+					foldedModel.getOverlapRelationList().getFoldableOverlapRelations());
+		}
+	}
+
+	private int countInversions(final OverlapRelation overlapRelation) {
+		int count = 0;
+		for (int i = 0; i < overlapRelation.getSize(); i++) {
+			for (int j = i + 1; j < overlapRelation.getSize(); j++) {
+				if (overlapRelation.isLower(i, j)) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	@Test
+	void testFewestInversionsRankingSortsStates() {
+		var creasePattern = FoldBenchmarkCorpus.createIndependentFlaps();
+		var expected = fold(creasePattern, FoldBenchmarkCorpus.createFolder());
+
+		var folder = FoldBenchmarkCorpus.createFolder();
+		folder.setFoldedStateRanking(FoldedStateRanking.FEWEST_INVERSIONS);
+		var ranked = fold(creasePattern, folder);
+
+		assertEquals(new HashSet<>(expected), new HashSet<>(ranked));
+		for (int i = 1; i < ranked.size(); i++) {
+			assertTrue(countInversions(ranked.get(i - 1)) <= countInversions(ranked.get(i)));
+		}
+
+		var job = new FoldJob();
+		job.setSolutionLimit(1);
+		var best = folder.fold(FoldBenchmarkCorpus.createModel(creasePattern), job)
+				.getOverlapRelationList().getFoldableOverlapRelations();
+		assertEquals(ranked.subList(0, 1), best);
+	}
+
+	@Test
+	void testCancelledFoldJobStopsBeforeSearch() {
+		var job = new FoldJob();
+		job.cancel();
+
+		var foldedModel = FoldBenchmarkCorpus.createFolder()
+				.fold(FoldBenchmarkCorpus.createModel(FoldBenchmarkCorpus.createOverlappingFlaps()), job);
+
+		assertEquals(FoldJobStatus.CANCELLED, job.getStatus());
+		assertTrue(foldedModel.getOverlapRelationList().isEmpty());
+		assertFalse(foldedModel.isFolded());
+		// the subfaces are not even created.
+		assertEquals(0, job.getProgress().getSubFaceCount());
+	}
+
+	@Test
+	void testFoldJobCancelledAfterSubFacesAreCreatedStopsEstimation() {
+		var job = new FoldJob();
+		// the first notification tells the number of subfaces.
+		job.setProgressListener(progress -> job.cancel());
+
+		var foldedModel = FoldBenchmarkCorpus.createFolder()
+				.fold(FoldBenchmarkCorpus.createModel(FoldBenchmarkCorpus.createMap(4, 3)), job);
+
+		assertEquals(FoldJobStatus.CANCELLED, job.getStatus());
+		assertTrue(foldedModel.getOverlapRelationList().isEmpty());
+		assertTrue(job.getProgress().getSubFaceCount() > 0);
+		assertEquals(0, job.getProgress().getProcessedSubFaceCount());
+	}
+
+	@Test
+	void testFoldResultCacheRestoresSameResult() {
+		var creasePattern = FoldBenchmarkCorpus.createMap(4, 3);
+		var lines = new ArrayList<>(creasePattern);
+		Collections.reverse(lines);
+		var reordered = new CreasePatternFactory().createCreasePattern(lines);
+
+		var folder = FoldBenchmarkCorpus.createFolder();
+		folder.setFoldResultCache(new FoldResultCache(FoldResultCache.DEFAULT_MEMORY_CAPACITY));
+
+		var firstJob = new FoldJob();
+		var first = folder.fold(creasePattern, FoldBenchmarkCorpus.createModel(creasePattern), firstJob)
+				.getOverlapRelationList().getFoldableOverlapRelations();
+		assertEquals(fold(creasePattern, FoldBenchmarkCorpus.createFolder()), first);
+
+		var job = new FoldJob();
+		var foldedModel = folder.fold(reordered, FoldBenchmarkCorpus.createModel(reordered), job);
+
+		assertEquals(FoldJobStatus.COMPLETED, job.getStatus());
+		assertTrue(foldedModel.isFolded());
+		assertEquals(new HashSet<>(fold(reordered, FoldBenchmarkCorpus.createFolder())),
+				new HashSet<>(foldedModel.getOverlapRelationList().getFoldableOverlapRelations()));
+	}
+
+	@Test
+	void testFoldResultCacheKeepsResultOnDisk(@TempDir final Path directory) {
+		var creasePattern = FoldBenchmarkCorpus.createIndependentFlaps();
+		var expected = fold(creasePattern, FoldBenchmarkCorpus.createFolder());
+
+		var writer = FoldBenchmarkCorpus.createFolder();
+		writer.setFoldResultCache(new FoldResultCache(0, directory, FoldResultCache.DEFAULT_DISK_CAPACITY));
+		writer.fold(creasePattern, FoldBenchmarkCorpus.createModel(creasePattern), new FoldJob());
+		assertTrue(writer.getFoldResultCache().getDiskUsage() > 0);
+
+		var reader = FoldBenchmarkCorpus.createFolder();
+		reader.setFoldResultCache(new FoldResultCache(0, directory, FoldResultCache.DEFAULT_DISK_CAPACITY));
+		var job = new FoldJob();
+		job.setSolutionLimit(2);
+		var restored = reader.fold(creasePattern, FoldBenchmarkCorpus.createModel(creasePattern), job)
+				.getOverlapRelationList().getFoldableOverlapRelations();
+
+		assertEquals(FoldJobStatus.SOLUTION_LIMIT_REACHED, job.getStatus());
+		assertEquals(expected.subList(0, 2), restored);
+	}
+}
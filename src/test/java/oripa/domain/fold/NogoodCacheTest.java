@@ -0,0 +1,107 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import oripa.domain.fold.halfedge.OriFace;
+import oripa.domain.fold.origeom.OverlapRelation;
+
+class NogoodCacheTest {
+
+	private List<OriFace> createFaces(final int count) {
+		var faces = new ArrayList<OriFace>();
+		for (int i = 0; i < count; i++) {
+			var face = new OriFace();
+			face.setFaceID(i);
+			faces.add(face);
+		}
+		return faces;
+	}
+
+	/**
+	 * face_2 between face_0 and face_1.
+	 */
+	private OverlapRelation createPenetratingRelation() {
+		var overlapRelation = new OverlapRelation(3);
+		overlapRelation.setLower(0, 1);
+		overlapRelation.setLower(0, 2);
+		overlapRelation.setUpper(1, 2);
+		return overlapRelation;
+	}
+
+	@Test
+	void testStackCompletingNogoodIsRejected() {
+		var faces = createFaces(3);
+		var statistics = new NogoodStatistics();
+		var nogoods = new NogoodCache(16, 3, statistics);
+
+		nogoods.learn(new int[] { 0, 1, 2 }, createPenetratingRelation());
+		assertEquals(1, statistics.getLearnedCount());
+
+		var overlapRelation = new OverlapRelation(3);
+		overlapRelation.setLower(0, 1);
+		overlapRelation.setUndefined(0, 2);
+		overlapRelation.setUndefined(1, 2);
+
+		// the first face is the top.
+		assertTrue(nogoods.isRejected(List.of(faces.get(1), faces.get(2), faces.get(0)), overlapRelation));
+		assertFalse(nogoods.isRejected(List.of(faces.get(2), faces.get(1), faces.get(0)), overlapRelation));
+		assertFalse(nogoods.isRejected(List.of(faces.get(1), faces.get(0), faces.get(2)), overlapRelation));
+
+		assertEquals(1, statistics.getHitCount());
+	}
+
+	@Test
+	void testLeastRecentlyUsedNogoodIsEvicted() {
+		var faces = createFaces(3);
+		var statistics = new NogoodStatistics();
+		var nogoods = new NogoodCache(1, 3, statistics);
+
+		var penetrating = createPenetratingRelation();
+		nogoods.learn(new int[] { 0, 1, 2 }, penetrating);
+		nogoods.learn(new int[] { 0, 2, 1 }, penetrating);
+
+		assertEquals(2, statistics.getLearnedCount());
+		assertEquals(1, statistics.getEvictedCount());
+
+		var overlapRelation = new OverlapRelation(3);
+		overlapRelation.setLower(0, 1);
+		overlapRelation.setUndefined(0, 2);
+		overlapRelation.setUndefined(1, 2);
+
+		// the nogood of (0, 1, 2) has been evicted.
+		assertFalse(nogoods.isRejected(List.of(faces.get(1), faces.get(2), faces.get(0)), overlapRelation));
+	}
+
+	@Test
+	void testZeroCapacityDisablesLearning() {
+		var statistics = new NogoodStatistics();
+		var nogoods = new NogoodCache(0, 3, statistics);
+
+		nogoods.learn(new int[] { 0, 1, 2 }, createPenetratingRelation());
+
+		assertEquals(0, statistics.getLearnedCount());
+	}
+}
@@ -0,0 +1,170 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import oripa.domain.fold.halfedge.OriFace;
+import oripa.domain.fold.origeom.HalfedgeFaceCrossingTable;
+import oripa.domain.fold.origeom.OverlapRelation;
+import oripa.domain.fold.stackcond.StackConditionOf4Faces;
+import oripa.domain.fold.subface.SubFace;
+
+class OverlapRelationPropagatorTest {
+
+	private List<OriFace> createFaces(final int count) {
+		var faces = new ArrayList<OriFace>();
+		for (int i = 0; i < count; i++) {
+			var face = new OriFace();
+			face.setFaceID(i);
+			faces.add(face);
+		}
+		return faces;
+	}
+
+	private OverlapRelation createUndefinedRelation(final int size) {
+		var overlapRelation = new OverlapRelation(size);
+		for (int i = 0; i < size; i++) {
+			for (int j = i + 1; j < size; j++) {
+				overlapRelation.setUndefined(i, j);
+			}
+		}
+		return overlapRelation;
+	}
+
+	private BitSet[] createSubFacesOfFaces(final int faceCount, final List<SubFace> subFaces) {
+		var subFacesOfFaces = new BitSet[faceCount];
+		for (int i = 0; i < faceCount; i++) {
+			subFacesOfFaces[i] = new BitSet();
+		}
+		for (int s = 0; s < subFaces.size(); s++) {
+			for (var face : subFaces.get(s).parentFaces) {
+				subFacesOfFaces[face.getFaceID()].set(s);
+			}
+		}
+		return subFacesOfFaces;
+	}
+
+	@Test
+	void testTransitivityGivesTotalOrderInSubFace() {
+		var faces = createFaces(4);
+		var sub = new SubFace(new OriFace());
+		sub.parentFaces.addAll(faces);
+		var subFaces = List.of(sub);
+
+		var overlapRelation = createUndefinedRelation(4);
+		overlapRelation.setUpper(0, 1);
+		overlapRelation.setUpper(1, 2);
+		overlapRelation.setUpper(2, 3);
+
+		var propagator = new OverlapRelationPropagator(faces, subFaces,
+				createSubFacesOfFaces(4, subFaces), List.of(), mock(HalfedgeFaceCrossingTable.class));
+
+		assertEquals(3, propagator.propagate(overlapRelation));
+		assertTrue(overlapRelation.isUpper(0, 2));
+		assertTrue(overlapRelation.isUpper(0, 3));
+		assertTrue(overlapRelation.isUpper(1, 3));
+	}
+
+	@Test
+	void testTransitivityIsNotAppliedAcrossSubFaces() {
+		var faces = createFaces(3);
+		var sub0 = new SubFace(new OriFace());
+		sub0.parentFaces.addAll(List.of(faces.get(0), faces.get(1)));
+		var sub1 = new SubFace(new OriFace());
+		sub1.parentFaces.addAll(List.of(faces.get(1), faces.get(2)));
+		var subFaces = List.of(sub0, sub1);
+
+		var overlapRelation = createUndefinedRelation(3);
+		overlapRelation.setUpper(0, 1);
+		overlapRelation.setUpper(1, 2);
+
+		var propagator = new OverlapRelationPropagator(faces, subFaces,
+				createSubFacesOfFaces(3, subFaces), List.of(), mock(HalfedgeFaceCrossingTable.class));
+
+		assertEquals(0, propagator.propagate(overlapRelation));
+		assertTrue(overlapRelation.isUndefined(0, 2));
+	}
+
+	@Test
+	void testCondition4IsFollowedByTransitivity() {
+		var faces = createFaces(5);
+		var sub = new SubFace(new OriFace());
+		sub.parentFaces.addAll(faces);
+		var subFaces = List.of(sub);
+
+		var cond = new StackConditionOf4Faces();
+		cond.upper1 = 0;
+		cond.lower1 = 1;
+		cond.upper2 = 2;
+		cond.lower2 = 3;
+
+		var overlapRelation = createUndefinedRelation(5);
+		overlapRelation.setLower(0, 1);
+		overlapRelation.setLower(2, 3);
+		// lower1 > upper2
+		overlapRelation.setLower(1, 2);
+		overlapRelation.setLower(3, 4);
+
+		var propagator = new OverlapRelationPropagator(faces, subFaces,
+				createSubFacesOfFaces(5, subFaces), List.of(cond), mock(HalfedgeFaceCrossingTable.class));
+
+		propagator.propagate(overlapRelation);
+
+		for (int i = 0; i < 5; i++) {
+			for (int j = i + 1; j < 5; j++) {
+				assertTrue(overlapRelation.isLower(i, j));
+			}
+		}
+	}
+
+	@Test
+	void testCondition4ContradictingDefinedCellIsConflict() {
+		var faces = createFaces(4);
+		List<SubFace> subFaces = List.of();
+
+		var cond = new StackConditionOf4Faces();
+		cond.upper1 = 0;
+		cond.lower1 = 1;
+		cond.upper2 = 2;
+		cond.lower2 = 3;
+
+		var overlapRelation = createUndefinedRelation(4);
+		overlapRelation.setLower(0, 1);
+		overlapRelation.setLower(2, 3);
+		// lower1 > upper2 requires upper1 > upper2.
+		overlapRelation.setLower(1, 2);
+		overlapRelation.setUpper(0, 2);
+
+		var propagator = new OverlapRelationPropagator(faces, subFaces,
+				createSubFacesOfFaces(4, subFaces), List.of(cond), mock(HalfedgeFaceCrossingTable.class));
+
+		propagator.propagate(overlapRelation);
+
+		assertTrue(propagator.hasConflict());
+		assertTrue(overlapRelation.isUpper(0, 2));
+	}
+}
@@ -0,0 +1,64 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import oripa.domain.fold.halfedge.OriFace;
+
+class SimpleFolderTest {
+	private static final double EPS = 1e-6;
+
+	@Test
+	void testLongPleatIsStackedOnFirstFace() {
+		var model = FoldBenchmarkCorpus.createModel(FoldBenchmarkCorpus.createPleat(400));
+		var firstFace = model.getFaces().get(0);
+
+		new Folder(null).foldWithoutLineType(model);
+
+		assertEquals(400, model.getFaces().size());
+		var minX = getMinX(firstFace);
+		var maxX = getMaxX(firstFace);
+		var frontCount = 0;
+		for (var face : model.getFaces()) {
+			assertTrue(face.isMovedByFold());
+			assertEquals(minX, getMinX(face), EPS);
+			assertEquals(maxX, getMaxX(face), EPS);
+			if (face.isFaceFront()) {
+				frontCount++;
+			}
+		}
+		// the strips are turned over alternately.
+		assertEquals(200, frontCount);
+	}
+
+	private double getMinX(final OriFace face) {
+		return face.halfedgeStream()
+				.mapToDouble(he -> he.getPositionWhileFolding().x)
+				.min().getAsDouble();
+	}
+
+	private double getMaxX(final OriFace face) {
+		return face.halfedgeStream()
+				.mapToDouble(he -> he.getPositionWhileFolding().x)
+				.max().getAsDouble();
+	}
+}
@@ -0,0 +1,84 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold;
+
+import java.util.LinkedHashMap;
+import java.util.function.Supplier;
+
+import oripa.domain.fold.subface.AsCreatedSubFaceOrdering;
+import oripa.domain.fold.subface.FewestStacksFirstOrdering;
+import oripa.domain.fold.subface.SharedParentFacesFirstOrdering;
+import oripa.domain.fold.subface.SubFaceOrdering;
+
+/**
+ * Compares the search nodes and time of the layer ordering search among the
+ * implementations of {@link SubFaceOrdering}. Run as a Java application with
+ * .opx file paths as arguments or with no argument to use the default corpus.
+ *
+ * <p>
+ * Nodes per fold on the default corpus (as created / fewest stacks / shared
+ * parents): crane_base_mitani.opx 8/8/8, waterbomb_base_collapse.opx 3/3/3,
+ * pleat60 2/2/2, map6x3 2/2/2, flaps 6/5/5, independentFlaps 5/5/5 and
+ * layeredStrip 341/153/177. The bundled models don't distinguish the
+ * orderings, so {@link Folder} keeps {@link AsCreatedSubFaceOrdering} as its
+ * default.
+ * </p>
+ */
+public class SubFaceOrderingBenchmark {
+	private static final int WARM_UP_COUNT = 3;
+	private static final int MEASURE_COUNT = 10;
+
+	public static void main(final String[] args) throws Exception {
+		var corpus = FoldBenchmarkCorpus.load(args);
+
+		var orderings = new LinkedHashMap<String, Supplier<SubFaceOrdering>>();
+		orderings.put("as created", AsCreatedSubFaceOrdering::new);
+		orderings.put("fewest stacks", FewestStacksFirstOrdering::new);
+		orderings.put("shared parents", SharedParentFacesFirstOrdering::new);
+
+		System.out.println("model, ordering, solutions, nodes/fold, search ms/fold");
+		for (var entry : corpus.entrySet()) {
+			for (var ordering : orderings.entrySet()) {
+				var folder = FoldBenchmarkCorpus.createFolder();
+				folder.setSubFaceOrdering(ordering.getValue().get());
+
+				for (int i = 0; i < WARM_UP_COUNT; i++) {
+					folder.fold(FoldBenchmarkCorpus.createModel(entry.getValue()), true);
+				}
+
+				long nodes = 0;
+				long milliSec = 0;
+				int solutions = 0;
+				for (int i = 0; i < MEASURE_COUNT; i++) {
+					var foldedModel = folder.fold(FoldBenchmarkCorpus.createModel(entry.getValue()), true);
+					nodes += folder.getSearchNodeCount();
+					milliSec += folder.getSearchMilliSec();
+					solutions = foldedModel.getFoldablePatternCount();
+				}
+
+				System.out.println(String.join(", ",
+						entry.getKey(),
+						ordering.getKey(),
+						Integer.toString(solutions),
+						Long.toString(nodes / MEASURE_COUNT),
+						String.format("%.2f", (double) milliSec / MEASURE_COUNT)));
+			}
+		}
+	}
+}
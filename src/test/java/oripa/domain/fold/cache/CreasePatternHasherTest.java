@@ -0,0 +1,82 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import oripa.domain.creasepattern.CreasePatternFactory;
+import oripa.domain.creasepattern.CreasePatternInterface;
+import oripa.value.OriLine;
+
+class CreasePatternHasherTest {
+	private final CreasePatternHasher hasher = new CreasePatternHasher();
+
+	private CreasePatternInterface createCreasePattern(final List<OriLine> lines) {
+		var creasePattern = new CreasePatternFactory().createCreasePattern(400);
+		creasePattern.addAll(lines);
+		return creasePattern;
+	}
+
+	private List<OriLine> createLines() {
+		return new ArrayList<>(List.of(
+				new OriLine(-100, -200, -100, 200, OriLine.Type.VALLEY),
+				new OriLine(100, -200, 100, 200, OriLine.Type.MOUNTAIN),
+				new OriLine(-200, 0, 200, 0, OriLine.Type.VALLEY)));
+	}
+
+	@Test
+	void testHashDoesNotDependOnOrderAndDirection() {
+		var lines = createLines();
+		var expected = hasher.hash(createCreasePattern(lines), "");
+
+		Collections.reverse(lines);
+		var first = lines.get(0);
+		lines.set(0, new OriLine(first.p1, first.p0, first.getType()));
+
+		assertEquals(expected, hasher.hash(createCreasePattern(lines), ""));
+	}
+
+	@Test
+	void testHashIgnoresAuxLinesAndTinyDifferences() {
+		var lines = createLines();
+		var expected = hasher.hash(createCreasePattern(lines), "");
+
+		lines.add(new OriLine(-200, -200, 200, 200, OriLine.Type.AUX));
+		lines.set(0, new OriLine(-100 + 1e-9, -200, -100, 200, OriLine.Type.VALLEY));
+
+		assertEquals(expected, hasher.hash(createCreasePattern(lines), ""));
+	}
+
+	@Test
+	void testHashDependsOnLineTypesAndSalt() {
+		var lines = createLines();
+		var expected = hasher.hash(createCreasePattern(lines), "");
+
+		assertNotEquals(expected, hasher.hash(createCreasePattern(lines), "salt"));
+
+		lines.set(0, new OriLine(-100, -200, -100, 200, OriLine.Type.MOUNTAIN));
+		assertNotEquals(expected, hasher.hash(createCreasePattern(lines), ""));
+	}
+}
@@ -0,0 +1,88 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import oripa.domain.fold.halfedge.OrigamiModel;
+import oripa.domain.fold.origeom.OverlapRelation;
+
+class FoldResultCacheTest {
+	@TempDir
+	Path directory;
+
+	private FoldResult createResult() {
+		return FoldResult.create(new OrigamiModel(400), List.of(new OverlapRelation(0)));
+	}
+
+	@Test
+	void testMemoryTierEvictsLeastRecentlyUsedResult() {
+		var cache = new FoldResultCache(2);
+		cache.put("a", createResult());
+		cache.put("b", createResult());
+		cache.get("a");
+		cache.put("c", createResult());
+
+		assertTrue(cache.get("a").isPresent());
+		assertFalse(cache.get("b").isPresent());
+		assertTrue(cache.get("c").isPresent());
+	}
+
+	@Test
+	void testDiskTierEvictsLeastRecentlyUsedFiles() throws IOException {
+		var writer = new FoldResultCache(0, directory, Long.MAX_VALUE);
+		writer.put("aaa", createResult());
+		var fileSize = writer.getDiskUsage();
+		writer.put("bbb", createResult());
+		Files.setLastModifiedTime(directory.resolve("aaa.fold"), FileTime.fromMillis(1000));
+		Files.setLastModifiedTime(directory.resolve("bbb.fold"), FileTime.fromMillis(2000));
+
+		var cache = new FoldResultCache(0, directory, fileSize * 2);
+		var restored = cache.get("aaa");
+		assertTrue(restored.isPresent());
+		assertEquals(1, restored.get().getOverlapRelationCount());
+
+		cache.put("ccc", createResult());
+
+		assertTrue(Files.exists(directory.resolve("aaa.fold")));
+		assertFalse(Files.exists(directory.resolve("bbb.fold")));
+		assertTrue(Files.exists(directory.resolve("ccc.fold")));
+		assertEquals(fileSize * 2, cache.getDiskUsage());
+	}
+
+	@Test
+	void testBrokenFileIsMiss() throws IOException {
+		var file = directory.resolve("aaa.fold");
+		Files.write(file, new byte[] { 1, 2, 3 });
+
+		var cache = new FoldResultCache(0, directory, Long.MAX_VALUE);
+
+		assertFalse(cache.get("aaa").isPresent());
+		assertFalse(Files.exists(file));
+	}
+}
@@ -0,0 +1,135 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.origeom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import javax.vecmath.Vector2d;
+
+import org.junit.jupiter.api.Test;
+
+import oripa.domain.fold.halfedge.OriFace;
+import oripa.domain.fold.halfedge.OriHalfedge;
+import oripa.domain.fold.halfedge.OriVertex;
+
+class FaceBoundingBoxGridTest {
+
+	private OriFace createRectangle(final int id, final double left, final double top,
+			final double right, final double bottom) {
+		var face = new OriFace();
+		face.setFaceID(id);
+		face.addHalfedge(new OriHalfedge(new OriVertex(left, bottom), face));
+		face.addHalfedge(new OriHalfedge(new OriVertex(right, bottom), face));
+		face.addHalfedge(new OriHalfedge(new OriVertex(right, top), face));
+		face.addHalfedge(new OriHalfedge(new OriVertex(left, top), face));
+		face.makeHalfedgeLoop();
+		return face;
+	}
+
+	private Set<List<Integer>> collectCandidatePairs(final FaceBoundingBoxGrid grid) {
+		var pairs = new HashSet<List<Integer>>();
+		grid.forEachCandidatePair((face0, face1) -> {
+			assertTrue(face0.getFaceID() < face1.getFaceID());
+			// each pair should be given only once.
+			assertTrue(pairs.add(List.of(face0.getFaceID(), face1.getFaceID())));
+		});
+		return pairs;
+	}
+
+	@Test
+	void testDistantFacesAreNotCandidates() {
+		var faces = List.of(
+				createRectangle(0, 0, 0, 10, 10),
+				createRectangle(1, 5, 5, 15, 15),
+				createRectangle(2, 100, 100, 110, 110));
+
+		var pairs = collectCandidatePairs(new FaceBoundingBoxGrid(faces, 0.1));
+
+		assertEquals(Set.of(List.of(0, 1)), pairs);
+	}
+
+	@Test
+	void testCandidatesAreAllIntersectingBoxes() {
+		var random = new Random(0);
+		var faces = new ArrayList<OriFace>();
+		for (int i = 0; i < 300; i++) {
+			double left = random.nextDouble() * 400;
+			double top = random.nextDouble() * 400;
+			double size = 1 + random.nextDouble() * (i % 10 == 0 ? 100 : 10);
+			faces.add(createRectangle(i, left, top, left + size, top + size));
+		}
+
+		var grid = new FaceBoundingBoxGrid(faces, 0.1);
+
+		var expected = new HashSet<List<Integer>>();
+		for (int i = 0; i < faces.size(); i++) {
+			for (int j = i + 1; j < faces.size(); j++) {
+				if (grid.isBoxIntersecting(i, j)) {
+					expected.add(List.of(i, j));
+				}
+			}
+		}
+
+		assertEquals(expected, collectCandidatePairs(grid));
+	}
+
+	@Test
+	void testIntersectingBoxesIncludeGivenFace() {
+		var faces = List.of(
+				createRectangle(0, 0, 0, 10, 10),
+				createRectangle(1, 5, 5, 15, 15),
+				createRectangle(2, 100, 100, 110, 110),
+				createRectangle(3, 14, 14, 20, 20));
+
+		var grid = new FaceBoundingBoxGrid(faces, 0.1);
+
+		assertEquals(Set.of(0, 1), toSet(grid.getIntersectingBoxes(0)));
+		assertEquals(Set.of(0, 1, 3), toSet(grid.getIntersectingBoxes(1)));
+		assertEquals(Set.of(2), toSet(grid.getIntersectingBoxes(2)));
+	}
+
+	@Test
+	void testBoxesContainingPoint() {
+		var faces = List.of(
+				createRectangle(0, 0, 0, 10, 10),
+				createRectangle(1, 5, 5, 15, 15),
+				createRectangle(2, 100, 100, 110, 110),
+				createRectangle(3, 14, 14, 20, 20));
+
+		var grid = new FaceBoundingBoxGrid(faces, 0.1);
+
+		assertEquals(Set.of(0, 1), toSet(grid.getBoxesContaining(new Vector2d(8, 8))));
+		assertEquals(Set.of(1, 3), toSet(grid.getBoxesContaining(new Vector2d(14.5, 14.5))));
+		assertEquals(Set.of(2), toSet(grid.getBoxesContaining(new Vector2d(105, 105))));
+		assertEquals(Set.of(), toSet(grid.getBoxesContaining(new Vector2d(50, 50))));
+	}
+
+	private Set<Integer> toSet(final BitSet bits) {
+		var set = new HashSet<Integer>();
+		bits.stream().forEach(set::add);
+		return set;
+	}
+}
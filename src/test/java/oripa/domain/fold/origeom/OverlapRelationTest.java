@@ -0,0 +1,122 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.origeom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class OverlapRelationTest {
+
+	@Test
+	void testNewMatrixIsFilledWithNoOverlap() {
+		var overlapRelation = new OverlapRelation(5);
+
+		for (int i = 0; i < 5; i++) {
+			for (int j = 0; j < 5; j++) {
+				assertEquals(OverlapRelationValues.NO_OVERLAP, overlapRelation.get(i, j));
+			}
+		}
+	}
+
+	@Test
+	void testSetAlsoSetsInversion() {
+		var overlapRelation = new OverlapRelation(40);
+
+		overlapRelation.setUpper(3, 35);
+		assertEquals(OverlapRelationValues.UPPER, overlapRelation.get(3, 35));
+		assertEquals(OverlapRelationValues.LOWER, overlapRelation.get(35, 3));
+
+		overlapRelation.setUpper(35, 3);
+		assertEquals(OverlapRelationValues.LOWER, overlapRelation.get(3, 35));
+		assertEquals(OverlapRelationValues.UPPER, overlapRelation.get(35, 3));
+
+		overlapRelation.setUndefined(35, 3);
+		assertTrue(overlapRelation.isUndefined(3, 35));
+		assertTrue(overlapRelation.isUndefined(35, 3));
+
+		// neighbor cells should not be affected.
+		assertTrue(overlapRelation.isNoOverlap(3, 34));
+		assertTrue(overlapRelation.isNoOverlap(3, 36));
+		assertTrue(overlapRelation.isNoOverlap(4, 35));
+	}
+
+	@Test
+	void testEveryCellIsIndependent() {
+		final int size = 37;
+		var overlapRelation = new OverlapRelation(size);
+		int[] values = { OverlapRelationValues.NO_OVERLAP, OverlapRelationValues.UPPER,
+				OverlapRelationValues.LOWER, OverlapRelationValues.UNDEFINED };
+
+		for (int i = 0; i < size; i++) {
+			for (int j = i + 1; j < size; j++) {
+				overlapRelation.set(i, j, values[(i * 7 + j) % 4]);
+			}
+		}
+
+		for (int i = 0; i < size; i++) {
+			for (int j = i + 1; j < size; j++) {
+				var value = values[(i * 7 + j) % 4];
+				assertEquals(value, overlapRelation.get(i, j));
+				if (value == OverlapRelationValues.UPPER) {
+					assertTrue(overlapRelation.isLower(j, i));
+				} else if (value == OverlapRelationValues.LOWER) {
+					assertTrue(overlapRelation.isUpper(j, i));
+				} else {
+					assertEquals(value, overlapRelation.get(j, i));
+				}
+			}
+		}
+	}
+
+	@Test
+	void testSetLowerIfUndefined() {
+		var overlapRelation = new OverlapRelation(3);
+		overlapRelation.setUndefined(0, 1);
+		overlapRelation.setUpper(1, 2);
+
+		assertTrue(overlapRelation.setLowerIfUndefined(1, 0));
+		assertTrue(overlapRelation.isUpper(0, 1));
+
+		assertFalse(overlapRelation.setLowerIfUndefined(1, 2));
+		assertTrue(overlapRelation.isUpper(1, 2));
+	}
+
+	@Test
+	void testCloneIsDeepCopy() {
+		var overlapRelation = new OverlapRelation(4);
+		overlapRelation.setUpper(0, 3);
+
+		var copy = overlapRelation.clone();
+		assertEquals(overlapRelation, copy);
+
+		copy.setLower(0, 3);
+		assertTrue(overlapRelation.isUpper(0, 3));
+		assertNotEquals(overlapRelation, copy);
+	}
+
+	@Test
+	void testDiagonal() {
+		var overlapRelation = new OverlapRelation(2);
+
+		overlapRelation.setNoOverlap(1, 1);
+		assertEquals(OverlapRelationValues.NO_OVERLAP, overlapRelation.get(1, 1));
+		assertThrows(IllegalArgumentException.class, () -> overlapRelation.setUpper(1, 1));
+	}
+}
@@ -0,0 +1,67 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.origeom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class OverlapRelationTrailTest {
+
+	@Test
+	void testUndoRestoresMarkedState() {
+		var overlapRelation = new OverlapRelation(4);
+		overlapRelation.setUndefined(0, 1);
+		overlapRelation.setUndefined(0, 2);
+		overlapRelation.setUndefined(1, 2);
+		var initial = overlapRelation.clone();
+
+		var trail = new OverlapRelationTrail(overlapRelation);
+
+		var mark0 = trail.mark();
+		trail.setUpper(0, 1);
+		trail.setUpper(0, 2);
+		var afterFirst = overlapRelation.clone();
+
+		var mark1 = trail.mark();
+		trail.setUpper(2, 1);
+		trail.set(0, 3, OverlapRelationValues.LOWER);
+		assertEquals(4, trail.size());
+		assertTrue(overlapRelation.isLower(1, 2));
+		assertTrue(overlapRelation.isUpper(3, 0));
+
+		trail.undo(mark1);
+		assertEquals(afterFirst, overlapRelation);
+
+		trail.undo(mark0);
+		assertEquals(initial, overlapRelation);
+		assertEquals(0, trail.size());
+	}
+
+	@Test
+	void testWritingSameValueIsNotRecorded() {
+		var overlapRelation = new OverlapRelation(2);
+		overlapRelation.setUpper(0, 1);
+
+		var trail = new OverlapRelationTrail(overlapRelation);
+		trail.setUpper(0, 1);
+
+		assertEquals(0, trail.size());
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.origeom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class TransitiveClosureTest {
+
+	private OverlapRelation createUndefinedRelation(final int size) {
+		var overlapRelation = new OverlapRelation(size);
+		for (int i = 0; i < size; i++) {
+			for (int j = i + 1; j < size; j++) {
+				overlapRelation.setUndefined(i, j);
+			}
+		}
+		return overlapRelation;
+	}
+
+	@Test
+	void testLongChainIsClosed() {
+		int size = 150;
+		var overlapRelation = createUndefinedRelation(size);
+		// face i + 1 is above face i.
+		for (int i = 0; i + 1 < size; i++) {
+			overlapRelation.setUpper(i + 1, i);
+		}
+
+		// shuffle the local indices to make the chain cross words.
+		var faceIDs = IntStream.range(0, size).map(i -> (i * 7) % size).toArray();
+
+		var pairs = new HashSet<List<Integer>>();
+		new TransitiveClosure().close(faceIDs, overlapRelation,
+				(upper, lower) -> assertTrue(pairs.add(List.of(upper, lower))));
+
+		assertEquals(size * (size - 1) / 2 - (size - 1), pairs.size());
+		for (var pair : pairs) {
+			assertTrue(pair.get(0) > pair.get(1) + 1);
+		}
+		// the matrix should not be modified.
+		assertTrue(overlapRelation.isUndefined(2, 0));
+	}
+
+	@Test
+	void testOnlyGivenFacesAreUsed() {
+		var overlapRelation = createUndefinedRelation(4);
+		overlapRelation.setUpper(0, 1);
+		overlapRelation.setUpper(1, 2);
+		overlapRelation.setUpper(2, 3);
+
+		var pairs = new HashSet<List<Integer>>();
+		var closure = new TransitiveClosure();
+		closure.close(new int[] { 0, 2, 3 }, overlapRelation, (upper, lower) -> pairs.add(List.of(upper, lower)));
+
+		assertEquals(Set.of(), pairs);
+
+		// buffers are reused.
+		closure.close(new int[] { 3, 1, 2 }, overlapRelation, (upper, lower) -> pairs.add(List.of(upper, lower)));
+
+		assertEquals(Set.of(List.of(1, 3)), pairs);
+	}
+
+	@Test
+	void testCycleIsReported() {
+		var overlapRelation = createUndefinedRelation(4);
+		overlapRelation.setUpper(0, 1);
+		overlapRelation.setUpper(1, 2);
+		overlapRelation.setUpper(2, 3);
+		overlapRelation.setUpper(3, 1);
+
+		var pairs = new HashSet<List<Integer>>();
+		var acyclic = new TransitiveClosure().close(new int[] { 0, 1, 2, 3 }, overlapRelation,
+				(upper, lower) -> pairs.add(List.of(upper, lower)));
+
+		assertFalse(acyclic);
+		assertEquals(Set.of(), pairs);
+	}
+}
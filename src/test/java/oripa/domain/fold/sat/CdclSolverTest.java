@@ -0,0 +1,98 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.sat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class CdclSolverTest {
+
+	@Test
+	void testPigeonholeIsUnsatisfiable() {
+		var solver = new CdclSolver();
+		int pigeons = 5;
+		int holes = 4;
+
+		var variables = new int[pigeons][holes];
+		for (int p = 0; p < pigeons; p++) {
+			for (int h = 0; h < holes; h++) {
+				variables[p][h] = solver.newVariable();
+			}
+			solver.addClause(variables[p]);
+		}
+		for (int h = 0; h < holes; h++) {
+			for (int p = 0; p < pigeons; p++) {
+				for (int q = p + 1; q < pigeons; q++) {
+					solver.addClause(-variables[p][h], -variables[q][h]);
+				}
+			}
+		}
+
+		assertFalse(solver.solve());
+		assertTrue(solver.getConflictCount() > 0);
+	}
+
+	@Test
+	void testBlockingClausesEnumerateAllModels() {
+		var solver = new CdclSolver();
+		var a = solver.newVariable();
+		var b = solver.newVariable();
+		var c = solver.newVariable();
+		// exactly one of a, b and c.
+		solver.addClause(a, b, c);
+		solver.addClause(-a, -b);
+		solver.addClause(-b, -c);
+		solver.addClause(-a, -c);
+
+		int count = 0;
+		while (solver.solve()) {
+			var values = new boolean[] { solver.getValue(a), solver.getValue(b), solver.getValue(c) };
+			int trueCount = 0;
+			var blockingClause = new int[values.length];
+			for (int v = 0; v < values.length; v++) {
+				trueCount += values[v] ? 1 : 0;
+				blockingClause[v] = values[v] ? -(v + 1) : v + 1;
+			}
+			assertEquals(1, trueCount);
+			count++;
+			if (!solver.addClause(blockingClause)) {
+				break;
+			}
+		}
+
+		assertEquals(3, count);
+	}
+
+	@Test
+	void testUnitClausesArePropagated() {
+		var solver = new CdclSolver();
+		var a = solver.newVariable();
+		var b = solver.newVariable();
+		solver.addClause(a);
+		solver.addClause(-a, b);
+
+		assertTrue(solver.solve());
+		assertTrue(solver.getValue(a));
+		assertTrue(solver.getValue(b));
+
+		assertFalse(solver.addClause(-b));
+		assertFalse(solver.solve());
+	}
+}
@@ -0,0 +1,172 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.subface;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import oripa.domain.fold.halfedge.OriFace;
+import oripa.domain.fold.origeom.OverlapRelation;
+import oripa.domain.fold.stackcond.StackConditionOf3Faces;
+
+class AnswerStacksTest {
+
+	private List<OriFace> createFaces(final int count) {
+		var faces = new ArrayList<OriFace>();
+		for (int i = 0; i < count; i++) {
+			var face = new OriFace();
+			face.setFaceID(i);
+			faces.add(face);
+		}
+		return faces;
+	}
+
+	private OverlapRelation createUndefinedOverlapRelation(final int count) {
+		var overlapRelation = new OverlapRelation(count);
+		for (int i = 0; i < count; i++) {
+			for (int j = i + 1; j < count; j++) {
+				overlapRelation.setUndefined(i, j);
+			}
+		}
+		return overlapRelation;
+	}
+
+	private List<List<Integer>> toIDs(final AnswerStacks stacks) {
+		var ids = new ArrayList<List<Integer>>();
+		for (var stack : stacks) {
+			ids.add(stack.stream().map(OriFace::getFaceID).collect(Collectors.toList()));
+		}
+		return ids;
+	}
+
+	@Test
+	void testStacksAreGeneratedInLexicographicOrder() {
+		var faces = createFaces(3);
+		var stacks = new AnswerStacks(faces, List.of(), List.of(), createUndefinedOverlapRelation(3),
+				AnswerStacks.DEFAULT_CAPACITY);
+
+		assertEquals(List.of(
+				List.of(0, 1, 2), List.of(0, 2, 1),
+				List.of(1, 0, 2), List.of(1, 2, 0),
+				List.of(2, 0, 1), List.of(2, 1, 0)), toIDs(stacks));
+		assertEquals(6, stacks.count(100));
+		assertEquals(4, stacks.count(4));
+	}
+
+	@Test
+	void testStackConditionsAreApplied() {
+		var faces = createFaces(3);
+		var overlapRelation = createUndefinedOverlapRelation(3);
+		overlapRelation.setUpper(0, 1);
+
+		// face 2 should not be between face 0 and face 1.
+		var cond = new StackConditionOf3Faces();
+		cond.lower = 0;
+		cond.upper = 1;
+		cond.other = 2;
+
+		var stacks = new AnswerStacks(faces, List.of(cond), List.of(), overlapRelation,
+				AnswerStacks.DEFAULT_CAPACITY);
+
+		assertEquals(List.of(List.of(0, 1, 2), List.of(2, 0, 1)), toIDs(stacks));
+	}
+
+	@Test
+	void testSpilledStacksAreRegenerated() {
+		var faces = createFaces(4);
+		var overlapRelation = createUndefinedOverlapRelation(4);
+		var expected = toIDs(new AnswerStacks(faces, List.of(), List.of(), overlapRelation,
+				AnswerStacks.DEFAULT_CAPACITY));
+
+		var stacks = new AnswerStacks(faces, List.of(), List.of(), overlapRelation, 5);
+
+		assertEquals(expected, toIDs(stacks));
+		// random access before the window
+		for (var k : List.of(23, 0, 17, 3)) {
+			var ids = stacks.get(k).stream().map(OriFace::getFaceID).collect(Collectors.toList());
+			assertEquals(expected.get(k), ids);
+		}
+		assertFalse(stacks.has(24));
+		assertThrows(IndexOutOfBoundsException.class, () -> stacks.get(24));
+	}
+
+	@Test
+	void testInterleavedGenerationsOnSharedFacesDontAffectEachOther() {
+		var faces = createFaces(4);
+		var unconstrained = createUndefinedOverlapRelation(4);
+		var constrained = createUndefinedOverlapRelation(4);
+		constrained.setUpper(3, 0);
+
+		var expected0 = toIDs(new AnswerStacks(faces, List.of(), List.of(), unconstrained, 2));
+		var expected1 = toIDs(new AnswerStacks(faces, List.of(), List.of(), constrained, 2));
+
+		var stacks0 = new AnswerStacks(faces, List.of(), List.of(), unconstrained, 2);
+		var stacks1 = new AnswerStacks(faces, List.of(), List.of(), constrained, 2);
+
+		var actual0 = new ArrayList<List<Integer>>();
+		var actual1 = new ArrayList<List<Integer>>();
+		for (int k = 0; stacks0.has(k) || stacks1.has(k); k++) {
+			if (stacks0.has(k)) {
+				actual0.add(stacks0.get(k).stream().map(OriFace::getFaceID).collect(Collectors.toList()));
+			}
+			if (stacks1.has(k)) {
+				actual1.add(stacks1.get(k).stream().map(OriFace::getFaceID).collect(Collectors.toList()));
+			}
+		}
+
+		assertEquals(24, expected0.size());
+		assertEquals(12, expected1.size());
+		assertEquals(expected0, actual0);
+		assertEquals(expected1, actual1);
+	}
+
+	@Test
+	void testCursorsAfterPrefixDontAffectEachOther() {
+		var faces = createFaces(4);
+		var overlapRelation = createUndefinedOverlapRelation(4);
+		var expected = toIDs(new AnswerStacks(faces, List.of(), List.of(), overlapRelation,
+				AnswerStacks.DEFAULT_CAPACITY));
+
+		var stacks = new AnswerStacks(faces, List.of(), List.of(), overlapRelation, 2);
+		var cursor0 = stacks.cursor();
+		var cursor1 = stacks.cursor();
+
+		// cursor1 is always behind cursor0 as a search of another thread.
+		var actual0 = new ArrayList<List<Integer>>();
+		var actual1 = new ArrayList<List<Integer>>();
+		while (cursor0.hasNext()) {
+			for (int i = 0; i < 3 && cursor0.hasNext(); i++) {
+				assertEquals(actual0.size(), cursor0.nextIndex());
+				actual0.add(cursor0.next().stream().map(OriFace::getFaceID).collect(Collectors.toList()));
+			}
+			actual1.add(cursor1.next().stream().map(OriFace::getFaceID).collect(Collectors.toList()));
+		}
+		cursor1.forEachRemaining(
+				stack -> actual1.add(stack.stream().map(OriFace::getFaceID).collect(Collectors.toList())));
+
+		assertEquals(expected, actual0);
+		assertEquals(expected, actual1);
+		assertEquals(24, stacks.count(100));
+	}
+}
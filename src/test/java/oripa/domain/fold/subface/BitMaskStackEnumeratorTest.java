@@ -0,0 +1,96 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.subface;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import oripa.domain.fold.halfedge.OriFace;
+import oripa.domain.fold.origeom.OverlapRelation;
+import oripa.domain.fold.stackcond.StackConditionOf3Faces;
+import oripa.domain.fold.stackcond.StackConditionOf4Faces;
+
+class BitMaskStackEnumeratorTest {
+
+	private List<List<Integer>> enumerate(final StackEnumerator enumerator) {
+		var stacks = new ArrayList<List<Integer>>();
+		enumerator.resume();
+		while (enumerator.next()) {
+			var stack = new ArrayList<Integer>();
+			for (var index : enumerator.getStack()) {
+				stack.add(index);
+			}
+			stacks.add(stack);
+		}
+		enumerator.suspend();
+		return stacks;
+	}
+
+	@Test
+	void testSameStacksAsDepthFirstEnumerator() {
+		var faces = new ArrayList<OriFace>();
+		// face 6 is out of the subface.
+		for (int i = 0; i < 6; i++) {
+			var face = new OriFace();
+			face.setFaceID(i);
+			faces.add(face);
+		}
+
+		var overlapRelation = new OverlapRelation(7);
+		for (int i = 0; i < 7; i++) {
+			for (int j = i + 1; j < 7; j++) {
+				overlapRelation.setUndefined(i, j);
+			}
+		}
+		overlapRelation.setUpper(0, 1);
+		overlapRelation.setUpper(2, 3);
+
+		var cond3 = new StackConditionOf3Faces();
+		cond3.lower = 0;
+		cond3.upper = 1;
+		cond3.other = 4;
+
+		var cond3OutOfSubFace = new StackConditionOf3Faces();
+		cond3OutOfSubFace.lower = 5;
+		cond3OutOfSubFace.upper = 6;
+		cond3OutOfSubFace.other = 3;
+
+		var cond4 = new StackConditionOf4Faces();
+		cond4.lower1 = 0;
+		cond4.upper1 = 1;
+		cond4.lower2 = 2;
+		cond4.upper2 = 3;
+
+		var constraints = new StackConstraints(faces, List.of(cond3, cond3OutOfSubFace), List.of(cond4),
+				overlapRelation);
+
+		var expected = enumerate(new DepthFirstStackEnumerator(constraints));
+
+		var enumerator = new BitMaskStackEnumerator(constraints);
+		assertEquals(expected, enumerate(enumerator));
+		assertFalse(expected.isEmpty());
+
+		enumerator.restart();
+		assertEquals(expected, enumerate(enumerator));
+	}
+}
@@ -30,9 +30,10 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import oripa.domain.cptool.LineAdder;
+import oripa.domain.cptool.compgeom.PlanarArrangementBuilder;
 import oripa.domain.creasepattern.CreasePatternFactory;
 import oripa.domain.creasepattern.CreasePatternInterface;
+import oripa.value.OriLine;
 
 /**
  * @author OUCHI Koji
@@ -45,7 +46,7 @@ class FacesToCreasePatternConverterTest {
 	@Mock
 	private CreasePatternFactory cpFactory;
 	@Mock
-	private LineAdder adder;
+	private PlanarArrangementBuilder arrangementBuilder;
 
 	@Mock
 	private CreasePatternInterface creasePattern;
@@ -60,18 +61,16 @@ class FacesToCreasePatternConverterTest {
 		var face2 = OriFaceFactoryForTest.create10PxSquareMock(10, 0);
 		var faces = List.of(face1, face2);
 
-		when(cpFactory.createCreasePattern(anyCollection())).thenReturn(creasePattern);
+		var splitLines = List.of(new OriLine(0, 0, 10, 0, OriLine.Type.MOUNTAIN));
+		when(arrangementBuilder.build(anyCollection())).thenReturn(splitLines);
+		when(cpFactory.createCreasePattern(splitLines)).thenReturn(creasePattern);
 
 		var converted = converter.convertToCreasePattern(faces);
 		assertSame(creasePattern, converted);
 
-		// tried to convert all half-edges?
-		verify(adder, times(
-				faces.stream()
-						.mapToInt(f -> f.halfedgeCount())
-						.sum()))
-								.addLine(any(), anyCollection());
-
-		verify(creasePattern).cleanDuplicatedLines();
+		// tried to convert all half-edges at once?
+		verify(arrangementBuilder).build(argThat(lines -> lines.size() == faces.stream()
+				.mapToInt(f -> f.halfedgeCount())
+				.sum()));
 	}
 }
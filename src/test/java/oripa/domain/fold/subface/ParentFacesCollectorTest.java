@@ -72,4 +72,38 @@ class ParentFacesCollectorTest {
 		assertTrue(parents.contains(face4));
 	}
 
+	/**
+	 * Test method for
+	 * {@link oripa.domain.fold.subface.ParentFacesCollector#collect(java.util.List, java.util.List, double)}.
+	 */
+	@Test
+	void testCollectAll() {
+		var face1 = OriFaceFactoryForTest.create10PxSquareMock(0, 0);
+		var face2 = OriFaceFactoryForTest.create10PxSquareMock(10, 0);
+		var face3 = OriFaceFactoryForTest.create10PxSquareMock(0, 10);
+		var face4 = OriFaceFactoryForTest.create10PxSquareMock(5, 5); // overlap
+
+		var faces = List.of(face1, face2, face3, face4);
+
+		var subface1 = mock(SubFace.class);
+		var innerPoint1 = new Vector2d(8, 8);
+		when(subface1.getInnerPoint()).thenReturn(innerPoint1);
+
+		var subface2 = mock(SubFace.class);
+		var innerPoint2 = new Vector2d(12, 3);
+		when(subface2.getInnerPoint()).thenReturn(innerPoint2);
+
+		when(face1.isOnFaceExclusively(eq(innerPoint1), anyDouble())).thenReturn(true);
+		when(face4.isOnFaceExclusively(eq(innerPoint1), anyDouble())).thenReturn(true);
+		when(face2.isOnFaceExclusively(eq(innerPoint2), anyDouble())).thenReturn(true);
+
+		var parentsList = collector.collect(faces, List.of(subface1, subface2), 20);
+
+		assertEquals(List.of(face1, face4), parentsList.get(0));
+		assertEquals(List.of(face2), parentsList.get(1));
+
+		// faces far from the point should not be tested.
+		verify(face2, never()).isOnFaceExclusively(eq(innerPoint1), anyDouble());
+		verify(face3, never()).isOnFaceExclusively(any(), anyDouble());
+	}
 }
@@ -0,0 +1,92 @@
+/**
+ * ORIPA - Origami Pattern Editor
+ * Copyright (C) 2013-     ORIPA OSS Project  https://github.com/oripa/oripa
+ * Copyright (C) 2005-2009 Jun Mitani         http://mitani.cs.tsukuba.ac.jp/
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package oripa.domain.fold.subface;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import oripa.domain.fold.halfedge.OriFace;
+import oripa.domain.fold.origeom.OverlapRelation;
+
+class SharedParentFacesFirstOrderingTest {
+
+	private List<OriFace> createFaces(final int count) {
+		var faces = new ArrayList<OriFace>();
+		for (int i = 0; i < count; i++) {
+			var face = new OriFace();
+			face.setFaceID(i);
+			faces.add(face);
+		}
+		return faces;
+	}
+
+	/**
+	 * Creates a subface whose parent faces have no relation, which has the
+	 * factorial of the number of parent faces as stacks, or a decided one.
+	 */
+	private SubFace createSubFace(final boolean decided, final OriFace... parentFaces) {
+		var overlapRelation = new OverlapRelation(5);
+		for (int i = 0; i < parentFaces.length; i++) {
+			for (int j = i + 1; j < parentFaces.length; j++) {
+				if (decided) {
+					overlapRelation.setUpper(parentFaces[i].getFaceID(), parentFaces[j].getFaceID());
+				} else {
+					overlapRelation.setUndefined(parentFaces[i].getFaceID(), parentFaces[j].getFaceID());
+				}
+			}
+		}
+		var sub = new SubFace(new OriFace());
+		sub.parentFaces.addAll(List.of(parentFaces));
+		sub.sortFaceOverlapOrder(List.of(parentFaces), overlapRelation);
+		return sub;
+	}
+
+	@Test
+	void testSubFaceSharingVisitedFacesComesNext() {
+		var faces = createFaces(5);
+		var decided = createSubFace(true, faces.get(0), faces.get(1));
+		// 6 stacks
+		var far = createSubFace(false, faces.get(1), faces.get(3), faces.get(4));
+		// 2 stacks
+		var first = createSubFace(false, faces.get(0), faces.get(2));
+		// 6 stacks
+		var near = createSubFace(false, faces.get(0), faces.get(2), faces.get(3));
+
+		var sorted = new SharedParentFacesFirstOrdering().sort(List.of(decided, far, first, near));
+
+		assertEquals(List.of(decided, first, near, far), sorted);
+	}
+
+	@Test
+	void testFewestStacksFirst() {
+		var faces = createFaces(4);
+		var decided = createSubFace(true, faces.get(0), faces.get(1));
+		var many = createSubFace(false, faces.get(0), faces.get(1), faces.get(2));
+		var few = createSubFace(false, faces.get(2), faces.get(3));
+		var fewToo = createSubFace(false, faces.get(0), faces.get(3));
+
+		var sorted = new FewestStacksFirstOrdering().sort(List.of(many, few, decided, fewToo));
+
+		assertEquals(List.of(decided, few, fewToo, many), sorted);
+	}
+}
@@ -70,6 +70,9 @@ class SubFacesFactoryTest {
 		var face2 = mock(OriFace.class);
 		var face3 = mock(OriFace.class);
 		var inputFaces = List.of(face1, face2, face3);
+		when(face1.getFaceID()).thenReturn(0);
+		when(face2.getFaceID()).thenReturn(1);
+		when(face3.getFaceID()).thenReturn(2);
 
 		when(facesToCPConverter.convertToCreasePattern(inputFaces)).thenReturn(cp);
 		when(modelFactory.buildOrigami(cp, PAPER_SIZE)).thenReturn(model);
@@ -84,21 +87,18 @@ class SubFacesFactoryTest {
 		var subFacesWithDuplication = List.of(sub1, sub2, sub3);
 		when(facesToSubFacesConverter.convertToSubFaces(splitFaces)).thenReturn(subFacesWithDuplication);
 
-		when(parentCollector.collect(inputFaces, sub1, PAPER_SIZE))
-				.thenReturn(List.of(face1, face2));
-		when(parentCollector.collect(inputFaces, sub2, PAPER_SIZE))
-				.thenReturn(List.of(face2, face1));
-		when(parentCollector.collect(inputFaces, sub3, PAPER_SIZE))
-				.thenReturn(List.of(face1, face2, face3));
+		when(parentCollector.collect(inputFaces, subFacesWithDuplication, PAPER_SIZE))
+				.thenReturn(List.of(
+						List.of(face1, face2),
+						List.of(face2, face1),
+						List.of(face1, face2, face3)));
 
 		var subFaces = subFacesFactory.createSubFaces(inputFaces, PAPER_SIZE);
 
 		verify(facesToCPConverter).convertToCreasePattern(inputFaces);
 		verify(modelFactory).buildOrigami(cp, PAPER_SIZE);
 		verify(facesToSubFacesConverter).convertToSubFaces(splitFaces);
-		verify(parentCollector).collect(inputFaces, sub1, PAPER_SIZE);
-		verify(parentCollector).collect(inputFaces, sub2, PAPER_SIZE);
-		verify(parentCollector).collect(inputFaces, sub3, PAPER_SIZE);
+		verify(parentCollector).collect(inputFaces, subFacesWithDuplication, PAPER_SIZE);
 
 		assertEquals(2, subFaces.size());
 